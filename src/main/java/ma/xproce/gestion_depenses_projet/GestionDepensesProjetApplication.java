@@ -6,6 +6,7 @@ import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
 import java.math.BigDecimal;
@@ -14,6 +15,7 @@ import java.time.YearMonth;
 import java.util.List;
 
 @SpringBootApplication
+@EnableScheduling
 public class GestionDepensesProjetApplication {
 
     public static void main(String[] args) {
@@ -14,7 +14,10 @@ import java.time.YearMonth;
 public class Budget {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "budget_id")
+    @TableGenerator(name = "budget_id", table = IdGenerators.TABLE,
+            pkColumnName = IdGenerators.ENTITY_COLUMN, valueColumnName = IdGenerators.NEXT_ID_COLUMN,
+            pkColumnValue = "budget", allocationSize = IdGenerators.ALLOCATION_SIZE)
     private Long id;
 
     private BigDecimal amount;
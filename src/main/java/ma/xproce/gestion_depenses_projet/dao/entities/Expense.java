@@ -14,7 +14,10 @@ import java.time.LocalDate;
 public class Expense {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "expense_id")
+    @TableGenerator(name = "expense_id", table = IdGenerators.TABLE,
+            pkColumnName = IdGenerators.ENTITY_COLUMN, valueColumnName = IdGenerators.NEXT_ID_COLUMN,
+            pkColumnValue = "expense", allocationSize = IdGenerators.ALLOCATION_SIZE)
     private Long id;
 
     @Column(nullable = false)
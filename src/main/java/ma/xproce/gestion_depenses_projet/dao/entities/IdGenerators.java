@@ -0,0 +1,16 @@
+package ma.xproce.gestion_depenses_projet.dao.entities;
+
+/**
+ * Settings shared by the pooled table generators of the batched entities and by the startup
+ * seeding of their rows.
+ */
+public final class IdGenerators {
+
+    public static final String TABLE = "id_generator";
+    public static final String ENTITY_COLUMN = "entity";
+    public static final String NEXT_ID_COLUMN = "next_id";
+    public static final int ALLOCATION_SIZE = 50;
+
+    private IdGenerators() {
+    }
+}
@@ -0,0 +1,45 @@
+package ma.xproce.gestion_depenses_projet.dao.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table(name = "over_budget_entry",
+        uniqueConstraints = @UniqueConstraint(name = "uk_over_budget_user_category_month",
+                columnNames = {"user_id", "category_id", "month"}))
+public class OverBudgetEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private User user;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Category category;
+
+    @Column(nullable = false)
+    private YearMonth month;
+
+    @Column(nullable = false)
+    private BigDecimal budgetAmount;
+
+    @Column(nullable = false)
+    private BigDecimal spentAmount;
+
+    @Column(nullable = false)
+    private BigDecimal overage;
+}
@@ -14,7 +14,10 @@ import java.math.BigDecimal;
 public class Report {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "report_id")
+    @TableGenerator(name = "report_id", table = IdGenerators.TABLE,
+            pkColumnName = IdGenerators.ENTITY_COLUMN, valueColumnName = IdGenerators.NEXT_ID_COLUMN,
+            pkColumnValue = "report", allocationSize = IdGenerators.ALLOCATION_SIZE)
     private Long id;
 
     @Enumerated(EnumType.STRING)
@@ -40,17 +43,11 @@ public class Report {
     private BigDecimal totalOverBudgetAmount;
 
 
-    @ManyToOne(fetch = FetchType.LAZY)
-    private User user;
-
-    @Lob
-    @Column(columnDefinition = "LONGTEXT")
-    private String categoryDetailsJson;
+    private LocalDateTime updatedAt;
 
 
-    @Lob
-    @Column(columnDefinition = "LONGTEXT")
-    private String timeSeriesJson;
+    @ManyToOne(fetch = FetchType.LAZY)
+    private User user;
 
 
 
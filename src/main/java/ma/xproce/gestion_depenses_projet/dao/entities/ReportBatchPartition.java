@@ -0,0 +1,34 @@
+package ma.xproce.gestion_depenses_projet.dao.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * A range of user ids processed by one worker. {@code lastUserId} is the checkpoint: every user
+ * up to it has been handled.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table(name = "report_batch_partition")
+public class ReportBatchPartition {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    private ReportBatchRun run;
+
+    private long fromUserId;
+    private long toUserId;
+    private long lastUserId;
+
+    private int processedUsers;
+    private int failedUsers;
+
+    private boolean done;
+}
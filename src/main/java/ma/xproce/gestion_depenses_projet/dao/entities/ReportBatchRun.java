@@ -0,0 +1,41 @@
+package ma.xproce.gestion_depenses_projet.dao.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+
+/**
+ * One month-end generation of monthly reports. A run left {@code RUNNING} by a crash or by users
+ * that failed is resumed from its partitions' checkpoints.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table(name = "report_batch_run")
+public class ReportBatchRun {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, unique = true)
+    private YearMonth month;
+
+    @Enumerated(EnumType.STRING)
+    private Status status;
+
+    private long totalUsers;
+
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+
+    public enum Status {
+        RUNNING,
+        DONE
+    }
+}
@@ -0,0 +1,38 @@
+package ma.xproce.gestion_depenses_projet.dao.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.math.BigDecimal;
+
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table(name = "report_category_line",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"report_id", "category_name"}))
+public class ReportCategoryLine {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Report report;
+
+    private Long categoryId;
+
+    @Column(nullable = false)
+    private String categoryName;
+
+    private BigDecimal budget;
+    private BigDecimal expenses;
+    private Double usagePercentage;
+    private BigDecimal overBudgetAmount;
+    private Integer transactionCount;
+}
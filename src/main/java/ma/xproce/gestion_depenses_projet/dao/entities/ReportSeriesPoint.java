@@ -0,0 +1,39 @@
+package ma.xproce.gestion_depenses_projet.dao.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * One point of a report's series: a day, or the first day of a month for annual reports. Only the
+ * amounts of the point itself are stored, so an expense or budget change updates a single point;
+ * cumulative amounts are summed when the series is read.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table(name = "report_series_point",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"report_id", "point_date"}))
+public class ReportSeriesPoint {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Report report;
+
+    @Column(nullable = false)
+    private LocalDate pointDate;
+
+    private BigDecimal periodExpenses;
+    private BigDecimal periodBudget;
+}
@@ -10,6 +10,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import java.time.YearMonth;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -20,35 +21,40 @@ public interface BudgetRepository extends JpaRepository<Budget, Long> {
     @Query("SELECT b FROM Budget b WHERE b.user = :user AND b.month = :month")
     List<Budget> findByUserAndMonth(@Param("user") User user, @Param("month") YearMonth month);
 
-        @Query("""
-                     SELECT b.user, b.category, b.amount, COALESCE(SUM(e.amount), 0) as spent
-                     FROM Budget b
-                     LEFT JOIN Expense e ON e.user = b.user AND e.category = b.category
-                         AND FUNCTION('YEAR', e.date) = :year AND FUNCTION('MONTH', e.date) = :month
-                     WHERE b.month = :monthValue
-                     GROUP BY b.user, b.category, b.amount
-                     HAVING COALESCE(SUM(e.amount), 0) > b.amount
-                     ORDER BY (COALESCE(SUM(e.amount), 0) - b.amount) DESC
-                     """)
-        List<Object[]> findTopOverBudgetForMonth(@Param("monthValue") YearMonth monthValue,
-                                                                                         @Param("year") int year,
-                                                                                         @Param("month") int month,
-                                                                                         Pageable pageable);
-    
     @Query("""
-                 SELECT b.user, b.category, b.amount, COALESCE(SUM(e.amount), 0) as spent
-                 FROM Budget b
-                 LEFT JOIN Expense e ON e.user = b.user AND e.category = b.category
-                     AND FUNCTION('YEAR', e.date) = :year AND FUNCTION('MONTH', e.date) = :month
-                 WHERE b.user = :user AND b.month = :monthValue
-                 GROUP BY b.user, b.category, b.amount
-                 HAVING COALESCE(SUM(e.amount), 0) > b.amount
-                 ORDER BY (COALESCE(SUM(e.amount), 0) - b.amount) DESC
-                 """)
-    List<Object[]> findTopOverBudgetForUserAndMonth(@Param("user") User user,
-                                                    @Param("monthValue") YearMonth monthValue,
-                                                    @Param("year") int year,
-                                                    @Param("month") int month,
-                                                    Pageable pageable);
+           SELECT b.category.id, b.month, SUM(b.amount)
+           FROM Budget b
+           WHERE b.user = :user AND b.category.id IN :categoryIds
+             AND b.month BETWEEN :startMonth AND :endMonth
+           GROUP BY b.category.id, b.month
+           """)
+    List<Object[]> sumByCategoryAndMonth(@Param("user") User user,
+                                         @Param("categoryIds") Collection<Long> categoryIds,
+                                         @Param("startMonth") YearMonth startMonth,
+                                         @Param("endMonth") YearMonth endMonth);
+
+    @Query("""
+           SELECT c.id, c.name, b.month, SUM(b.amount)
+           FROM Budget b JOIN b.category c
+           WHERE b.user = :user AND b.month BETWEEN :startMonth AND :endMonth
+           GROUP BY c.id, c.name, b.month
+           """)
+    List<Object[]> sumBudgetsByCategoryAndMonth(@Param("user") User user,
+                                                @Param("startMonth") YearMonth startMonth,
+                                                @Param("endMonth") YearMonth endMonth);
+
+    @Query("""
+           SELECT new ma.xproce.gestion_depenses_projet.dao.repositories.OverBudgetLine(
+               u.id, u.username, c.id, c.name, b.month, b.amount, r.total, r.total - b.amount)
+           FROM Budget b
+           JOIN b.user u
+           JOIN b.category c
+           JOIN ExpenseMonthRollup r ON r.user = b.user AND r.category = b.category AND r.month = b.month
+           WHERE b.user = :user AND b.month = :month AND r.total > b.amount
+           ORDER BY (r.total - b.amount) DESC
+           """)
+    List<OverBudgetLine> findTopOverBudgetForUserAndMonth(@Param("user") User user,
+                                                         @Param("month") YearMonth month,
+                                                         Pageable pageable);
 }
 
@@ -0,0 +1,9 @@
+package ma.xproce.gestion_depenses_projet.dao.repositories;
+
+import java.math.BigDecimal;
+
+/**
+ * Expenses of one category over a period, as returned by the grouped top-category queries.
+ */
+public record CategoryTotal(Long categoryId, String categoryName, BigDecimal total, long expenseCount) {
+}
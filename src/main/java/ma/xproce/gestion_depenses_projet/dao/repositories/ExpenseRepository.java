@@ -5,16 +5,26 @@ import ma.xproce.gestion_depenses_projet.dao.entities.Expense;
 import ma.xproce.gestion_depenses_projet.dao.entities.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 
 public interface ExpenseRepository extends JpaRepository<Expense, Long> {
 
+    String SEARCH_FILTERS = "AND (:category IS NULL OR e.category = :category) " +
+            "AND (:startDate IS NULL OR e.date >= :startDate) " +
+            "AND (:endDate IS NULL OR e.date <= :endDate) ";
+
+    String ROW_SELECT = "SELECT new ma.xproce.gestion_depenses_projet.dao.repositories.ExpenseRow(" +
+            "e.id, e.date, e.amount, e.description, c.id, c.name, e.overBudget) " +
+            "FROM Expense e LEFT JOIN e.category c WHERE e.user = :user " + SEARCH_FILTERS;
+
     List<Expense> findAllByUser(User user);
     List<Expense> findByUserAndCategory(User user, Category category);
     List<Expense> findByUserAndDateBetween(User user, LocalDate start, LocalDate end);
@@ -31,29 +41,111 @@ public interface ExpenseRepository extends JpaRepository<Expense, Long> {
             User user, Category category, LocalDate start, LocalDate end, Pageable pageable);
 
 
-    @Query("SELECT e FROM Expense e WHERE e.user = :user " +
-            "AND (:category IS NULL OR e.category = :category) " +
-            "AND (:startDate IS NULL OR e.date >= :startDate) " +
-            "AND (:endDate IS NULL OR e.date <= :endDate)")
-    Page<Expense> searchExpenses(@Param("user") User user,
-                                 @Param("category") Category category,
-                                 @Param("startDate") LocalDate startDate,
-                                 @Param("endDate") LocalDate endDate,
-                                 Pageable pageable);
-
-
-    @Query("SELECT COALESCE(SUM(e.amount), 0) FROM Expense e WHERE e.user = :user AND e.category = :category AND FUNCTION('YEAR', e.date) = :year AND FUNCTION('MONTH', e.date) = :month")
+    @Query("SELECT e FROM Expense e WHERE e.user = :user " + SEARCH_FILTERS)
+    Slice<Expense> findExpenses(@Param("user") User user,
+                                @Param("category") Category category,
+                                @Param("startDate") LocalDate startDate,
+                                @Param("endDate") LocalDate endDate,
+                                Pageable pageable);
+
+    @Query("SELECT COUNT(e) FROM Expense e WHERE e.user = :user " + SEARCH_FILTERS)
+    long countExpenses(@Param("user") User user,
+                       @Param("category") Category category,
+                       @Param("startDate") LocalDate startDate,
+                       @Param("endDate") LocalDate endDate);
+
+
+    /**
+     * Keyset pages come in pairs: the first page has no cursor predicate, and the following ones
+     * bound the sort column on the cursor's side before breaking ties on the id, so that the index
+     * range starts at the cursor.
+     */
+    @Query(ROW_SELECT + "ORDER BY e.date DESC, e.id DESC")
+    List<ExpenseRow> firstByDateDesc(@Param("user") User user,
+                                     @Param("category") Category category,
+                                     @Param("startDate") LocalDate startDate,
+                                     @Param("endDate") LocalDate endDate,
+                                     Pageable limit);
+
+    @Query(ROW_SELECT +
+            "AND e.date <= :afterDate AND (e.date < :afterDate OR e.id < :afterId) " +
+            "ORDER BY e.date DESC, e.id DESC")
+    List<ExpenseRow> seekByDateDesc(@Param("user") User user,
+                                    @Param("category") Category category,
+                                    @Param("startDate") LocalDate startDate,
+                                    @Param("endDate") LocalDate endDate,
+                                    @Param("afterDate") LocalDate afterDate,
+                                    @Param("afterId") Long afterId,
+                                    Pageable limit);
+
+    @Query(ROW_SELECT + "ORDER BY e.date ASC, e.id ASC")
+    List<ExpenseRow> firstByDateAsc(@Param("user") User user,
+                                    @Param("category") Category category,
+                                    @Param("startDate") LocalDate startDate,
+                                    @Param("endDate") LocalDate endDate,
+                                    Pageable limit);
+
+    @Query(ROW_SELECT +
+            "AND e.date >= :afterDate AND (e.date > :afterDate OR e.id > :afterId) " +
+            "ORDER BY e.date ASC, e.id ASC")
+    List<ExpenseRow> seekByDateAsc(@Param("user") User user,
+                                   @Param("category") Category category,
+                                   @Param("startDate") LocalDate startDate,
+                                   @Param("endDate") LocalDate endDate,
+                                   @Param("afterDate") LocalDate afterDate,
+                                   @Param("afterId") Long afterId,
+                                   Pageable limit);
+
+    @Query(ROW_SELECT + "ORDER BY e.amount DESC, e.id DESC")
+    List<ExpenseRow> firstByAmountDesc(@Param("user") User user,
+                                       @Param("category") Category category,
+                                       @Param("startDate") LocalDate startDate,
+                                       @Param("endDate") LocalDate endDate,
+                                       Pageable limit);
+
+    @Query(ROW_SELECT +
+            "AND e.amount <= :afterAmount AND (e.amount < :afterAmount OR e.id < :afterId) " +
+            "ORDER BY e.amount DESC, e.id DESC")
+    List<ExpenseRow> seekByAmountDesc(@Param("user") User user,
+                                      @Param("category") Category category,
+                                      @Param("startDate") LocalDate startDate,
+                                      @Param("endDate") LocalDate endDate,
+                                      @Param("afterAmount") BigDecimal afterAmount,
+                                      @Param("afterId") Long afterId,
+                                      Pageable limit);
+
+    @Query(ROW_SELECT + "ORDER BY e.amount ASC, e.id ASC")
+    List<ExpenseRow> firstByAmountAsc(@Param("user") User user,
+                                      @Param("category") Category category,
+                                      @Param("startDate") LocalDate startDate,
+                                      @Param("endDate") LocalDate endDate,
+                                      Pageable limit);
+
+    @Query(ROW_SELECT +
+            "AND e.amount >= :afterAmount AND (e.amount > :afterAmount OR e.id > :afterId) " +
+            "ORDER BY e.amount ASC, e.id ASC")
+    List<ExpenseRow> seekByAmountAsc(@Param("user") User user,
+                                     @Param("category") Category category,
+                                     @Param("startDate") LocalDate startDate,
+                                     @Param("endDate") LocalDate endDate,
+                                     @Param("afterAmount") BigDecimal afterAmount,
+                                     @Param("afterId") Long afterId,
+                                     Pageable limit);
+
+
+    @Query("SELECT COALESCE(SUM(e.amount), 0) FROM Expense e WHERE e.user = :user AND e.category = :category " +
+            "AND e.date >= :startDate AND e.date < :endDate")
     BigDecimal getTotalSpentByUserAndCategoryAndMonth(@Param("user") User user,
                                                       @Param("category") Category category,
-                                                      @Param("year") int year,
-                                                      @Param("month") int month);
+                                                      @Param("startDate") LocalDate startDate,
+                                                      @Param("endDate") LocalDate endDate);
 
 
 
 
-    @Query("SELECT e.category, SUM(e.amount) FROM Expense e " +
+    @Query("SELECT c.id, c.name, SUM(e.amount), COUNT(e) FROM Expense e JOIN e.category c " +
             "WHERE e.user = :user AND e.date BETWEEN :startDate AND :endDate " +
-            "GROUP BY e.category")
+            "GROUP BY c.id, c.name")
     List<Object[]> getExpensesByCategoryForPeriod(@Param("user") User user,
                                                   @Param("startDate") LocalDate startDate,
                                                   @Param("endDate") LocalDate endDate);
@@ -68,37 +160,53 @@ public interface ExpenseRepository extends JpaRepository<Expense, Long> {
 
 
     @Query("""
-           SELECT FUNCTION('YEAR', e.date), FUNCTION('MONTH', e.date), SUM(e.amount)
+           SELECT e.category.id, e.date, SUM(e.amount)
            FROM Expense e
-           WHERE e.user = :user
-           GROUP BY FUNCTION('YEAR', e.date), FUNCTION('MONTH', e.date)
-           ORDER BY FUNCTION('YEAR', e.date) DESC, FUNCTION('MONTH', e.date) DESC
+           WHERE e.user = :user AND e.category.id IN :categoryIds
+             AND e.date >= :startDate AND e.date < :endDate
+           GROUP BY e.category.id, e.date
            """)
-    List<Object[]> getAllMonthlyTotals(@Param("user") User user);
+    List<Object[]> sumByCategoryAndDate(@Param("user") User user,
+                                        @Param("categoryIds") Collection<Long> categoryIds,
+                                        @Param("startDate") LocalDate startDate,
+                                        @Param("endDate") LocalDate endDate);
 
     @Query("""
            SELECT FUNCTION('DAY', e.date), SUM(e.amount)
            FROM Expense e
            WHERE e.user = :user
-             AND FUNCTION('YEAR', e.date) = :year
-             AND FUNCTION('MONTH', e.date) = :month
+             AND e.date >= :startDate AND e.date < :endDate
            GROUP BY FUNCTION('DAY', e.date)
            ORDER BY FUNCTION('DAY', e.date)
            """)
     List<Object[]> getDailyExpenses(
             @Param("user") User user,
-            @Param("year") int year,
-            @Param("month") int month
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate
     );
 
     @Query("""
-            SELECT e.category as category, SUM(e.amount) as total
-            FROM Expense e
-            WHERE FUNCTION('YEAR', e.date) = :year AND FUNCTION('MONTH', e.date) = :month
-            GROUP BY e.category
-            ORDER BY total DESC
+            SELECT new ma.xproce.gestion_depenses_projet.dao.repositories.CategoryTotal(
+                c.id, c.name, SUM(e.amount), COUNT(e))
+            FROM Expense e JOIN e.category c
+            WHERE e.user = :user AND e.date >= :startDate AND e.date < :endDate
+            GROUP BY c.id, c.name
+            ORDER BY SUM(e.amount) DESC, c.id
+            """)
+    List<CategoryTotal> findTopCategoriesForUser(@Param("user") User user,
+                                                 @Param("startDate") LocalDate startDate,
+                                                 @Param("endDate") LocalDate endDate,
+                                                 Pageable limit);
+
+    @Query("""
+            SELECT new ma.xproce.gestion_depenses_projet.dao.repositories.CategoryTotal(
+                c.id, c.name, SUM(e.amount), COUNT(e))
+            FROM Expense e JOIN e.category c
+            WHERE e.date >= :startDate AND e.date < :endDate
+            GROUP BY c.id, c.name
+            ORDER BY SUM(e.amount) DESC, c.id
             """)
-    List<Object[]> findTopCategoriesForMonth(@Param("year") int year,
-                                                   @Param("month") int month,
-                                                   Pageable pageable);
+    List<CategoryTotal> findTopCategories(@Param("startDate") LocalDate startDate,
+                                          @Param("endDate") LocalDate endDate,
+                                          Pageable limit);
 }
\ No newline at end of file
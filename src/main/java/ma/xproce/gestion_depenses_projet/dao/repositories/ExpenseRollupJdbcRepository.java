@@ -0,0 +1,154 @@
+package ma.xproce.gestion_depenses_projet.dao.repositories;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Atomic updates of the (user, category, month) expense rollups and of each user's latest month
+ * with spending, the row locks used by the over-budget check, and the rebuild from raw expenses.
+ * Writers hold a shared lock on their user row until they commit and a rebuild holds an exclusive
+ * lock on the user rows of its range, so the two never interleave for the same user.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ExpenseRollupJdbcRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Adds {@code total} and {@code count} to the rollup and widens its min and max with the amounts
+     * added, {@code addedMin} and {@code addedMax} being null when nothing was added.
+     */
+    public void add(Long userId, Long categoryId, YearMonth month, BigDecimal total, long count,
+                    BigDecimal addedMin, BigDecimal addedMax) {
+        jdbcTemplate.update(
+                "INSERT INTO expense_month_rollup (user_id, category_id, month, total, expense_count, min_amount, max_amount) " +
+                        "VALUES (?, ?, ?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE " +
+                        "total = total + ?, expense_count = expense_count + ?, " +
+                        "min_amount = CASE WHEN ? IS NULL THEN min_amount WHEN min_amount IS NULL THEN ? ELSE LEAST(min_amount, ?) END, " +
+                        "max_amount = CASE WHEN ? IS NULL THEN max_amount WHEN max_amount IS NULL THEN ? ELSE GREATEST(max_amount, ?) END",
+                userId, categoryId, month.toString(), total, count, addedMin, addedMax,
+                total, count,
+                addedMin, addedMin, addedMin,
+                addedMax, addedMax, addedMax);
+    }
+
+    /**
+     * Recomputes min and max from the raw expenses when an amount removed from the rollup could
+     * have been one of them.
+     */
+    public void refreshBounds(Long userId, Long categoryId, YearMonth month,
+                              BigDecimal removedMin, BigDecimal removedMax) {
+        jdbcTemplate.update(
+                "UPDATE expense_month_rollup r SET " +
+                        "r.min_amount = (SELECT MIN(e.amount) FROM expense e WHERE e.user_id = r.user_id " +
+                        "AND e.category_id = r.category_id AND e.date >= ? AND e.date < ?), " +
+                        "r.max_amount = (SELECT MAX(e.amount) FROM expense e WHERE e.user_id = r.user_id " +
+                        "AND e.category_id = r.category_id AND e.date >= ? AND e.date < ?) " +
+                        "WHERE r.user_id = ? AND r.category_id = ? AND r.month = ? " +
+                        "AND (r.min_amount >= ? OR r.max_amount <= ?)",
+                month.atDay(1), month.plusMonths(1).atDay(1), month.atDay(1), month.plusMonths(1).atDay(1),
+                userId, categoryId, month.toString(), removedMin, removedMax);
+    }
+
+    public BigDecimal findTotal(Long userId, Long categoryId, YearMonth month) {
+        List<BigDecimal> totals = jdbcTemplate.queryForList(
+                "SELECT total FROM expense_month_rollup WHERE user_id = ? AND category_id = ? AND month = ?",
+                BigDecimal.class, userId, categoryId, month.toString());
+        return totals.isEmpty() ? BigDecimal.ZERO : totals.get(0);
+    }
+
+    /**
+     * Creates the rollup if needed and locks it until the surrounding transaction ends, so
+     * concurrent checks for the same rollup run one after the other.
+     */
+    public BigDecimal lockTotal(Long userId, Long categoryId, YearMonth month) {
+        jdbcTemplate.update(
+                "INSERT INTO expense_month_rollup (user_id, category_id, month, total, expense_count) " +
+                        "VALUES (?, ?, ?, 0, 0) ON DUPLICATE KEY UPDATE total = total",
+                userId, categoryId, month.toString());
+        return jdbcTemplate.queryForObject(
+                "SELECT total FROM expense_month_rollup WHERE user_id = ? AND category_id = ? AND month = ? FOR UPDATE",
+                BigDecimal.class, userId, categoryId, month.toString());
+    }
+
+    /**
+     * Takes a shared lock on the user row until the surrounding transaction ends, waiting for a
+     * rebuild of that user's rollups to commit.
+     */
+    public void lockUserShared(Long userId) {
+        jdbcTemplate.queryForList("SELECT id FROM user WHERE id = ? FOR SHARE", Long.class, userId);
+    }
+
+    /**
+     * Moves the user's latest month with spending forward to {@code month} when it is later.
+     */
+    public void raiseLatestMonth(Long userId, YearMonth month) {
+        jdbcTemplate.update(
+                "INSERT INTO latest_spend_month (user_id, month) VALUES (?, ?) " +
+                        "ON DUPLICATE KEY UPDATE month = GREATEST(COALESCE(month, ''), ?)",
+                userId, month.toString(), month.toString());
+    }
+
+    /**
+     * Recomputes the user's latest month with spending from the rollups when it is one of the
+     * months amounts were removed from.
+     */
+    public void refreshLatestMonth(Long userId, Collection<YearMonth> months) {
+        List<Object> args = new ArrayList<>();
+        args.add(userId);
+        args.add(userId);
+        months.forEach(month -> args.add(month.toString()));
+        jdbcTemplate.update(
+                "UPDATE latest_spend_month SET month = (SELECT MAX(m.month) FROM (" +
+                        "SELECT month FROM expense_month_rollup WHERE user_id = ? " +
+                        "GROUP BY month HAVING SUM(total) > 0) m) " +
+                        "WHERE user_id = ? AND month IN (" + String.join(", ", Collections.nCopies(months.size(), "?")) + ")",
+                args.toArray());
+    }
+
+    public Optional<YearMonth> findLatestMonth(Long userId) {
+        List<String> months = jdbcTemplate.queryForList(
+                "SELECT month FROM latest_spend_month WHERE user_id = ? AND month IS NOT NULL",
+                String.class, userId);
+        return months.stream().findFirst().map(YearMonth::parse);
+    }
+
+    public boolean isEmpty() {
+        return jdbcTemplate.queryForList("SELECT 1 FROM expense_month_rollup LIMIT 1").isEmpty();
+    }
+
+    public int rebuild(long fromUserId, long toUserId) {
+        jdbcTemplate.queryForList("SELECT id FROM user WHERE id BETWEEN ? AND ? FOR UPDATE",
+                Long.class, fromUserId, toUserId);
+        jdbcTemplate.update("DELETE FROM expense_month_rollup WHERE user_id BETWEEN ? AND ?", fromUserId, toUserId);
+        int rollups = jdbcTemplate.update(
+                "INSERT INTO expense_month_rollup (user_id, category_id, month, total, expense_count, min_amount, max_amount) " +
+                        "SELECT user_id, category_id, DATE_FORMAT(date, '%Y-%m'), SUM(amount), COUNT(*), MIN(amount), MAX(amount) " +
+                        "FROM expense WHERE user_id BETWEEN ? AND ? AND category_id IS NOT NULL " +
+                        "GROUP BY user_id, category_id, DATE_FORMAT(date, '%Y-%m')",
+                fromUserId, toUserId);
+
+        jdbcTemplate.update("DELETE FROM latest_spend_month WHERE user_id BETWEEN ? AND ?", fromUserId, toUserId);
+        jdbcTemplate.update(
+                "INSERT INTO latest_spend_month (user_id, month) " +
+                        "SELECT user_id, MAX(month) FROM (SELECT user_id, month FROM expense_month_rollup " +
+                        "WHERE user_id BETWEEN ? AND ? GROUP BY user_id, month HAVING SUM(total) > 0) m " +
+                        "GROUP BY user_id",
+                fromUserId, toUserId);
+        return rollups;
+    }
+
+    public boolean isLatestMonthEmpty() {
+        return jdbcTemplate.queryForList("SELECT 1 FROM latest_spend_month LIMIT 1").isEmpty();
+    }
+}
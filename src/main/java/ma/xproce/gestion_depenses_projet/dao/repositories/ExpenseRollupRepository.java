@@ -0,0 +1,63 @@
+package ma.xproce.gestion_depenses_projet.dao.repositories;
+
+import ma.xproce.gestion_depenses_projet.dao.entities.ExpenseMonthRollup;
+import ma.xproce.gestion_depenses_projet.dao.entities.User;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.YearMonth;
+import java.util.Collection;
+import java.util.List;
+
+public interface ExpenseRollupRepository extends JpaRepository<ExpenseMonthRollup, Long> {
+
+    @Query("""
+            SELECT new ma.xproce.gestion_depenses_projet.dao.repositories.CategoryTotal(
+                c.id, c.name, SUM(r.total), SUM(r.expenseCount))
+            FROM ExpenseMonthRollup r JOIN r.category c
+            WHERE r.user = :user AND r.month BETWEEN :startMonth AND :endMonth AND r.expenseCount > 0
+            GROUP BY c.id, c.name
+            ORDER BY SUM(r.total) DESC, c.id
+            """)
+    List<CategoryTotal> findTopCategoriesForUser(@Param("user") User user,
+                                                 @Param("startMonth") YearMonth startMonth,
+                                                 @Param("endMonth") YearMonth endMonth,
+                                                 Pageable limit);
+
+    @Query("""
+            SELECT new ma.xproce.gestion_depenses_projet.dao.repositories.CategoryTotal(
+                c.id, c.name, SUM(r.total), SUM(r.expenseCount))
+            FROM ExpenseMonthRollup r JOIN r.category c
+            WHERE r.month BETWEEN :startMonth AND :endMonth AND r.expenseCount > 0
+            GROUP BY c.id, c.name
+            ORDER BY SUM(r.total) DESC, c.id
+            """)
+    List<CategoryTotal> findTopCategories(@Param("startMonth") YearMonth startMonth,
+                                          @Param("endMonth") YearMonth endMonth,
+                                          Pageable limit);
+
+    @Query("""
+            SELECT r.month, SUM(r.total)
+            FROM ExpenseMonthRollup r
+            WHERE r.user = :user AND r.month BETWEEN :startMonth AND :endMonth
+            GROUP BY r.month
+            ORDER BY r.month
+            """)
+    List<Object[]> sumByMonth(@Param("user") User user,
+                              @Param("startMonth") YearMonth startMonth,
+                              @Param("endMonth") YearMonth endMonth);
+
+    @Query("""
+            SELECT r.category.id, r.month, r.total
+            FROM ExpenseMonthRollup r
+            WHERE r.user = :user AND r.category.id IN :categoryIds
+              AND r.month BETWEEN :startMonth AND :endMonth
+            ORDER BY r.month
+            """)
+    List<Object[]> findCategoryMonths(@Param("user") User user,
+                                      @Param("categoryIds") Collection<Long> categoryIds,
+                                      @Param("startMonth") YearMonth startMonth,
+                                      @Param("endMonth") YearMonth endMonth);
+}
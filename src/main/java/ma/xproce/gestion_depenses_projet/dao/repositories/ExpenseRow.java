@@ -0,0 +1,23 @@
+package ma.xproce.gestion_depenses_projet.dao.repositories;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Columns of an expense returned by the scrolling JSON API, loaded without the user.
+ */
+@Getter
+@AllArgsConstructor
+public class ExpenseRow {
+
+    private final Long id;
+    private final LocalDate date;
+    private final BigDecimal amount;
+    private final String description;
+    private final Long categoryId;
+    private final String categoryName;
+    private final boolean overBudget;
+}
@@ -0,0 +1,30 @@
+package ma.xproce.gestion_depenses_projet.dao.repositories;
+
+import ma.xproce.gestion_depenses_projet.dao.entities.OverBudgetEntry;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+
+public interface OverBudgetEntryRepository extends JpaRepository<OverBudgetEntry, Long> {
+
+    String LEADERBOARD_FILTERS = "WHERE o.month = :month " +
+            "AND (:username IS NULL OR LOWER(u.username) LIKE LOWER(CONCAT('%', :username, '%'))) " +
+            "AND (:categoryName IS NULL OR LOWER(c.name) LIKE LOWER(CONCAT('%', :categoryName, '%'))) " +
+            "AND (:minOverage IS NULL OR o.overage >= :minOverage) ";
+
+    @Query(value = "SELECT new ma.xproce.gestion_depenses_projet.dao.repositories.OverBudgetLine(" +
+            "u.id, u.username, c.id, c.name, o.month, o.budgetAmount, o.spentAmount, o.overage) " +
+            "FROM OverBudgetEntry o JOIN o.user u JOIN o.category c " + LEADERBOARD_FILTERS +
+            "ORDER BY o.overage DESC, o.id",
+            countQuery = "SELECT COUNT(o) FROM OverBudgetEntry o JOIN o.user u JOIN o.category c " + LEADERBOARD_FILTERS)
+    Page<OverBudgetLine> findLeaderboard(@Param("month") YearMonth month,
+                                         @Param("username") String username,
+                                         @Param("categoryName") String categoryName,
+                                         @Param("minOverage") BigDecimal minOverage,
+                                         Pageable pageable);
+}
@@ -0,0 +1,62 @@
+package ma.xproce.gestion_depenses_projet.dao.repositories;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.YearMonth;
+
+/**
+ * Keeps the over-budget leaderboard in line with the budgets and the monthly expense rollups:
+ * a (user, category, month) has a row exactly when its rollup total exceeds its budget. Rows are
+ * upserted on their unique key, so concurrent refreshes of the same line never collide.
+ */
+@Repository
+@RequiredArgsConstructor
+public class OverBudgetJdbcRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void refresh(Long userId, Long categoryId, YearMonth month) {
+        upsertOverBudget("WHERE user_id = ? AND category_id = ? AND month = ?", userId, categoryId, month.toString());
+        jdbcTemplate.update(
+                "DELETE FROM over_budget_entry WHERE user_id = ? AND category_id = ? AND month = ? " +
+                        "AND NOT EXISTS (SELECT 1 FROM (SELECT SUM(amount) AS amount FROM budget " +
+                        "WHERE user_id = ? AND category_id = ? AND month = ?) b " +
+                        "JOIN expense_month_rollup r ON r.user_id = ? AND r.category_id = ? AND r.month = ? " +
+                        "WHERE r.total > b.amount)",
+                userId, categoryId, month.toString(),
+                userId, categoryId, month.toString(),
+                userId, categoryId, month.toString());
+    }
+
+    public int rebuildMonth(YearMonth month) {
+        jdbcTemplate.update("DELETE FROM over_budget_entry WHERE month = ?", month.toString());
+        return upsertOverBudget("WHERE month = ?", month.toString());
+    }
+
+    public int rebuildAll() {
+        jdbcTemplate.update("DELETE FROM over_budget_entry");
+        return upsertOverBudget("");
+    }
+
+    public boolean isEmpty() {
+        return jdbcTemplate.queryForList("SELECT 1 FROM over_budget_entry LIMIT 1").isEmpty();
+    }
+
+    private int upsertOverBudget(String budgetFilter, Object... args) {
+        return jdbcTemplate.update(
+                "INSERT INTO over_budget_entry (user_id, category_id, month, budget_amount, spent_amount, overage) " +
+                        "SELECT * FROM (" +
+                        "SELECT b.user_id, b.category_id, b.month, b.amount AS budget_amount, " +
+                        "r.total AS spent_amount, r.total - b.amount AS overage " +
+                        "FROM (SELECT user_id, category_id, month, SUM(amount) AS amount FROM budget " + budgetFilter +
+                        " GROUP BY user_id, category_id, month) b " +
+                        "JOIN expense_month_rollup r " +
+                        "ON r.user_id = b.user_id AND r.category_id = b.category_id AND r.month = b.month " +
+                        "WHERE r.total > b.amount) AS src " +
+                        "ON DUPLICATE KEY UPDATE budget_amount = src.budget_amount, " +
+                        "spent_amount = src.spent_amount, overage = src.overage",
+                args);
+    }
+}
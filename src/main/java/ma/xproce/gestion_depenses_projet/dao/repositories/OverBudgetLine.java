@@ -0,0 +1,8 @@
+package ma.xproce.gestion_depenses_projet.dao.repositories;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+
+public record OverBudgetLine(Long userId, String username, Long categoryId, String categoryName, YearMonth month,
+                             BigDecimal budgetAmount, BigDecimal spentAmount, BigDecimal overage) {
+}
@@ -0,0 +1,31 @@
+package ma.xproce.gestion_depenses_projet.dao.repositories;
+
+import ma.xproce.gestion_depenses_projet.dao.entities.ReportBatchPartition;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface ReportBatchPartitionRepository extends JpaRepository<ReportBatchPartition, Long> {
+
+    @Query("SELECT p FROM ReportBatchPartition p WHERE p.run.id = :runId AND p.done = false ORDER BY p.fromUserId")
+    List<ReportBatchPartition> findPending(@Param("runId") Long runId);
+
+    @Query("SELECT COUNT(p) FROM ReportBatchPartition p WHERE p.run.id = :runId AND p.done = false")
+    long countPending(@Param("runId") Long runId);
+
+    /**
+     * Reopens the partitions where some users failed, from their first user and with their counters
+     * cleared, so a replay counts every user once.
+     */
+    @Modifying
+    @Query("UPDATE ReportBatchPartition p SET p.lastUserId = p.fromUserId - 1, p.processedUsers = 0, " +
+            "p.failedUsers = 0, p.done = false WHERE p.run.id = :runId AND p.failedUsers > 0")
+    int replayFailed(@Param("runId") Long runId);
+
+    @Query("SELECT COALESCE(SUM(p.processedUsers), 0), COALESCE(SUM(p.failedUsers), 0) " +
+            "FROM ReportBatchPartition p WHERE p.run.id = :runId")
+    List<Object[]> sumProgress(@Param("runId") Long runId);
+}
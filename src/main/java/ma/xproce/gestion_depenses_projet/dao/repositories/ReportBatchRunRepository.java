@@ -0,0 +1,15 @@
+package ma.xproce.gestion_depenses_projet.dao.repositories;
+
+import ma.xproce.gestion_depenses_projet.dao.entities.ReportBatchRun;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Optional;
+
+public interface ReportBatchRunRepository extends JpaRepository<ReportBatchRun, Long> {
+
+    Optional<ReportBatchRun> findByMonth(YearMonth month);
+
+    List<ReportBatchRun> findByStatus(ReportBatchRun.Status status);
+}
@@ -0,0 +1,14 @@
+package ma.xproce.gestion_depenses_projet.dao.repositories;
+
+import ma.xproce.gestion_depenses_projet.dao.entities.ReportCategoryLine;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface ReportCategoryLineRepository extends JpaRepository<ReportCategoryLine, Long> {
+
+    @Query("SELECT l FROM ReportCategoryLine l WHERE l.report.id = :reportId ORDER BY l.categoryName")
+    List<ReportCategoryLine> findByReportId(@Param("reportId") Long reportId);
+}
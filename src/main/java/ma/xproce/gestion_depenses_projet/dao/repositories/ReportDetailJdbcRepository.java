@@ -0,0 +1,96 @@
+package ma.xproce.gestion_depenses_projet.dao.repositories;
+
+import lombok.RequiredArgsConstructor;
+import ma.xproce.gestion_depenses_projet.dao.entities.ReportCategoryLine;
+import ma.xproce.gestion_depenses_projet.dao.entities.ReportSeriesPoint;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Batch writes and in-place updates of report detail rows, which would otherwise cost one
+ * statement per row through JPA.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ReportDetailJdbcRepository {
+
+    private static final int BATCH_SIZE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void insertCategoryLines(Long reportId, Collection<ReportCategoryLine> lines) {
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO report_category_line (report_id, category_id, category_name, budget, expenses, " +
+                        "usage_percentage, over_budget_amount, transaction_count) VALUES (?, ?, ?, ?, ?, ?, ?, ?)",
+                lines, BATCH_SIZE, (ps, line) -> {
+                    ps.setLong(1, reportId);
+                    ps.setObject(2, line.getCategoryId());
+                    ps.setString(3, line.getCategoryName());
+                    ps.setBigDecimal(4, line.getBudget());
+                    ps.setBigDecimal(5, line.getExpenses());
+                    ps.setDouble(6, line.getUsagePercentage());
+                    ps.setBigDecimal(7, line.getOverBudgetAmount());
+                    ps.setInt(8, line.getTransactionCount());
+                });
+    }
+
+    public void insertSeriesPoints(Long reportId, List<ReportSeriesPoint> points) {
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO report_series_point (report_id, point_date, period_expenses, period_budget) " +
+                        "VALUES (?, ?, ?, ?)",
+                points, BATCH_SIZE, (ps, point) -> {
+                    ps.setLong(1, reportId);
+                    ps.setObject(2, point.getPointDate());
+                    ps.setBigDecimal(3, point.getPeriodExpenses());
+                    ps.setBigDecimal(4, point.getPeriodBudget());
+                });
+    }
+
+    public void deleteDetails(Long reportId) {
+        jdbcTemplate.update("DELETE FROM report_category_line WHERE report_id = ?", reportId);
+        jdbcTemplate.update("DELETE FROM report_series_point WHERE report_id = ?", reportId);
+    }
+
+    public void addExpenses(Long reportId, LocalDate pointDate, BigDecimal amount) {
+        jdbcTemplate.update(
+                "UPDATE report_series_point SET period_expenses = period_expenses + ? " +
+                        "WHERE report_id = ? AND point_date = ?",
+                amount, reportId, pointDate);
+    }
+
+    public void addBudget(Long reportId, LocalDate pointDate, BigDecimal amount) {
+        jdbcTemplate.update(
+                "UPDATE report_series_point SET period_budget = period_budget + ? " +
+                        "WHERE report_id = ? AND point_date = ?",
+                amount, reportId, pointDate);
+    }
+
+    public void setPeriodBudget(Long reportId, LocalDate from, LocalDate to, BigDecimal amount) {
+        jdbcTemplate.update(
+                "UPDATE report_series_point SET period_budget = ? " +
+                        "WHERE report_id = ? AND point_date BETWEEN ? AND ?",
+                amount, reportId, from, to);
+    }
+
+    /**
+     * Gives the lines of {@code categoryId} its new name and marks their reports as updated, returning
+     * the ids of those reports.
+     */
+    public List<Long> renameCategory(Long categoryId, String categoryName) {
+        List<Long> reportIds = jdbcTemplate.queryForList(
+                "SELECT DISTINCT report_id FROM report_category_line WHERE category_id = ?", Long.class, categoryId);
+        if (reportIds.isEmpty()) {
+            return reportIds;
+        }
+        jdbcTemplate.update("UPDATE report_category_line SET category_name = ? WHERE category_id = ?",
+                categoryName, categoryId);
+        jdbcTemplate.update("UPDATE reports SET updated_at = NOW(6) WHERE id IN (" +
+                "SELECT report_id FROM report_category_line WHERE category_id = ?)", categoryId);
+        return reportIds;
+    }
+}
@@ -2,6 +2,8 @@ package ma.xproce.gestion_depenses_projet.dao.repositories;
 
 import ma.xproce.gestion_depenses_projet.dao.entities.Report;
 import ma.xproce.gestion_depenses_projet.dao.entities.User;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -12,7 +14,12 @@ import java.util.Optional;
 
 public interface ReportRepository extends JpaRepository<Report, Long> {
 
-    List<Report> findAllByUserOrderByGeneratedAtDesc(User user);
+    @Query(value = "SELECT new ma.xproce.gestion_depenses_projet.dao.repositories.ReportSummary(" +
+            "r.id, r.type, r.generatedAt, r.startDate, r.endDate, " +
+            "r.totalBudget, r.totalExpenses, r.totalSavings, r.globalUsagePercentage) " +
+            "FROM Report r WHERE r.user = :user ORDER BY r.generatedAt DESC, r.id DESC",
+            countQuery = "SELECT COUNT(r) FROM Report r WHERE r.user = :user")
+    Page<ReportSummary> findSummariesByUser(@Param("user") User user, Pageable pageable);
 
     @Query("SELECT r FROM Report r WHERE r.user = :user AND r.type = :type " +
             "ORDER BY r.generatedAt DESC")
@@ -27,5 +34,11 @@ public interface ReportRepository extends JpaRepository<Report, Long> {
                                          @Param("startDate") LocalDate startDate,
                                          @Param("endDate") LocalDate endDate);
 
-    void deleteByUserAndId(User user, Long id);
+    @Query("SELECT r FROM Report r WHERE r.user = :user " +
+            "AND r.startDate <= :to AND r.endDate >= :from")
+    List<Report> findOverlapping(@Param("user") User user,
+                                 @Param("from") LocalDate from,
+                                 @Param("to") LocalDate to);
+
+    long deleteByUserAndId(User user, Long id);
 }
\ No newline at end of file
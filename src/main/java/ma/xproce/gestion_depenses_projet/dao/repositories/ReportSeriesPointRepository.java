@@ -0,0 +1,22 @@
+package ma.xproce.gestion_depenses_projet.dao.repositories;
+
+import ma.xproce.gestion_depenses_projet.dao.entities.ReportSeriesPoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface ReportSeriesPointRepository extends JpaRepository<ReportSeriesPoint, Long> {
+
+    @Query("SELECT p FROM ReportSeriesPoint p WHERE p.report.id = :reportId " +
+            "AND p.pointDate BETWEEN :from AND :to ORDER BY p.pointDate")
+    List<ReportSeriesPoint> findRange(@Param("reportId") Long reportId,
+                                      @Param("from") LocalDate from,
+                                      @Param("to") LocalDate to);
+
+    @Query("SELECT COALESCE(SUM(p.periodExpenses), 0), COALESCE(SUM(p.periodBudget), 0) " +
+            "FROM ReportSeriesPoint p WHERE p.report.id = :reportId AND p.pointDate < :before")
+    List<Object[]> sumBefore(@Param("reportId") Long reportId, @Param("before") LocalDate before);
+}
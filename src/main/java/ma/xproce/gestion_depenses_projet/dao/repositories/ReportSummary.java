@@ -0,0 +1,27 @@
+package ma.xproce.gestion_depenses_projet.dao.repositories;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import ma.xproce.gestion_depenses_projet.dao.entities.Report;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Scalar columns of a report shown on the reports list, loaded without the detail columns.
+ */
+@Getter
+@AllArgsConstructor
+public class ReportSummary {
+
+    private final Long id;
+    private final Report.ReportType type;
+    private final LocalDateTime generatedAt;
+    private final LocalDate startDate;
+    private final LocalDate endDate;
+    private final BigDecimal totalBudget;
+    private final BigDecimal totalExpenses;
+    private final BigDecimal totalSavings;
+    private final Double globalUsagePercentage;
+}
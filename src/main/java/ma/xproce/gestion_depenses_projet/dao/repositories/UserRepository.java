@@ -1,8 +1,12 @@
 package ma.xproce.gestion_depenses_projet.dao.repositories;
 
 import ma.xproce.gestion_depenses_projet.dao.entities.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long> {
@@ -13,4 +17,20 @@ public interface UserRepository extends JpaRepository<User, Long> {
     boolean existsByEmail(String email);
     boolean existsByUsername(String username);
 
+    @Query("SELECT MIN(u.id), MAX(u.id), COUNT(u) FROM User u")
+    List<Object[]> findIdBounds();
+
+    @Query("SELECT u.id FROM User u WHERE u.id > :after AND u.id <= :to ORDER BY u.id")
+    List<Long> findIdsAfter(@Param("after") long after, @Param("to") long to, Pageable pageable);
+
+    @Query("""
+           SELECT new ma.xproce.gestion_depenses_projet.dao.repositories.UserSummary(
+               u.id, u.username, u.email,
+               (SELECT COUNT(c) FROM Category c WHERE c.user = u),
+               (SELECT COUNT(b) FROM Budget b WHERE b.user = u))
+           FROM User u
+           ORDER BY u.id DESC
+           """)
+    List<UserSummary> findRecentUsers(Pageable limit);
+
 }
@@ -0,0 +1,18 @@
+package ma.xproce.gestion_depenses_projet.dao.repositories;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * A user account with its category and budget counts, loaded without the collections.
+ */
+@Getter
+@AllArgsConstructor
+public class UserSummary {
+
+    private final Long id;
+    private final String username;
+    private final String email;
+    private final long categoryCount;
+    private final long budgetCount;
+}
@@ -0,0 +1,7 @@
+package ma.xproce.gestion_depenses_projet.service;
+
+/**
+ * Published whenever a user or admin account is created or deleted.
+ */
+public record AccountChangedEvent(Long accountId, boolean deleted) {
+}
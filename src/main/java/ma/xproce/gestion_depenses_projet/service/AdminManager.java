@@ -3,6 +3,7 @@ package ma.xproce.gestion_depenses_projet.service;
 import lombok.RequiredArgsConstructor;
 import ma.xproce.gestion_depenses_projet.dao.entities.Admin;
 import ma.xproce.gestion_depenses_projet.dao.repositories.AdminRepository;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -17,6 +18,7 @@ public class AdminManager implements AdminService {
 
     private final AdminRepository adminRepository;
     private final PasswordEncoder passwordEncoder;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     public Admin createAdmin(Admin admin) {
@@ -34,7 +36,9 @@ public class AdminManager implements AdminService {
 
         admin.setPassword(passwordEncoder.encode(admin.getPassword()));
 
-        return adminRepository.save(admin);
+        Admin saved = adminRepository.save(admin);
+        eventPublisher.publishEvent(new AccountChangedEvent(saved.getId(), false));
+        return saved;
     }
 
     @Override
@@ -72,6 +76,7 @@ public class AdminManager implements AdminService {
     @Override
     public void deleteAdmin(Long id) {
         adminRepository.deleteById(id);
+        eventPublisher.publishEvent(new AccountChangedEvent(id, true));
     }
 
     @Override
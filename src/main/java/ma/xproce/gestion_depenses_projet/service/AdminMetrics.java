@@ -0,0 +1,19 @@
+package ma.xproce.gestion_depenses_projet.service;
+
+import ma.xproce.gestion_depenses_projet.dao.repositories.UserSummary;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Figures shown on the admin home page, computed together at {@code refreshedAt}.
+ * {@code topCategory} and {@code overBudget} are null when there is nothing to report.
+ */
+public record AdminMetrics(long totalUsers,
+                           long totalAdmins,
+                           long totalCategories,
+                           List<UserSummary> recentUsers,
+                           MostSpentCategory topCategory,
+                           OverBudgetRank overBudget,
+                           LocalDateTime refreshedAt) {
+}
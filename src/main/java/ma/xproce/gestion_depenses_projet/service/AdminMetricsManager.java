@@ -0,0 +1,79 @@
+package ma.xproce.gestion_depenses_projet.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ma.xproce.gestion_depenses_projet.dao.repositories.AdminRepository;
+import ma.xproce.gestion_depenses_projet.dao.repositories.CategoryRepository;
+import ma.xproce.gestion_depenses_projet.dao.repositories.UserRepository;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Serves the admin home figures from a snapshot instead of querying every table on each page
+ * load. Committed writes only mark the snapshot stale; it is then recomputed by the next quick
+ * check, and in any case on a longer period so that month changes are picked up.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AdminMetricsManager implements AdminMetricsService {
+
+    private static final int RECENT_USERS = 2;
+
+    private final UserRepository userRepository;
+    private final AdminRepository adminRepository;
+    private final CategoryRepository categoryRepository;
+    private final ExpenseService expenseService;
+    private final OverBudgetLeaderboardService overBudgetLeaderboardService;
+
+    private final AtomicBoolean stale = new AtomicBoolean(true);
+    private volatile AdminMetrics metrics;
+
+    @Override
+    public AdminMetrics getMetrics() {
+        AdminMetrics current = metrics;
+        return current != null ? current : refresh();
+    }
+
+    @Override
+    public synchronized AdminMetrics refresh() {
+        long started = System.nanoTime();
+        stale.set(false);
+        AdminMetrics refreshed = new AdminMetrics(
+                userRepository.count(),
+                adminRepository.count(),
+                categoryRepository.count(),
+                userRepository.findRecentUsers(PageRequest.of(0, RECENT_USERS)),
+                expenseService.getTopSpendingCategoryForCurrentMonth().orElse(null),
+                overBudgetLeaderboardService.getTopForCurrentOrPreviousMonth().orElse(null),
+                LocalDateTime.now());
+        metrics = refreshed;
+        log.debug("Indicateurs d'administration recalculés en {} ms", (System.nanoTime() - started) / 1_000_000);
+        return refreshed;
+    }
+
+    @Scheduled(fixedDelayString = "${admin.metrics.stale-check-ms:10000}")
+    public void refreshIfStale() {
+        if (stale.get()) {
+            refresh();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${admin.metrics.refresh-ms:300000}")
+    public void refreshPeriodically() {
+        refresh();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true,
+            classes = {ExpenseChangedEvent.class, BudgetChangedEvent.class,
+                    CategoryChangedEvent.class, AccountChangedEvent.class, ExpenseRollupsRebuiltEvent.class})
+    public void markStale() {
+        stale.set(true);
+    }
+}
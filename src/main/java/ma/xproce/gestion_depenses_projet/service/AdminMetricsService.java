@@ -0,0 +1,8 @@
+package ma.xproce.gestion_depenses_projet.service;
+
+public interface AdminMetricsService {
+
+    AdminMetrics getMetrics();
+
+    AdminMetrics refresh();
+}
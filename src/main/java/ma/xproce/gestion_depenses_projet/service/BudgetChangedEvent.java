@@ -0,0 +1,25 @@
+package ma.xproce.gestion_depenses_projet.service;
+
+import ma.xproce.gestion_depenses_projet.dao.entities.Budget;
+import ma.xproce.gestion_depenses_projet.dao.entities.User;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+
+/**
+ * Published inside the writing transaction whenever a budget is set, updated or deleted.
+ * {@code before} is null for a new budget and {@code after} is null for a delete.
+ */
+public record BudgetChangedEvent(User user, Snapshot before, Snapshot after) {
+
+    public record Snapshot(Long categoryId, String categoryName, YearMonth month, BigDecimal amount) {
+
+        public static Snapshot of(Budget budget) {
+            return new Snapshot(
+                    budget.getCategory() != null ? budget.getCategory().getId() : null,
+                    budget.getCategory() != null ? budget.getCategory().getName() : null,
+                    budget.getMonth(),
+                    budget.getAmount());
+        }
+    }
+}
@@ -6,7 +6,9 @@ import ma.xproce.gestion_depenses_projet.dao.entities.Category;
 import ma.xproce.gestion_depenses_projet.dao.entities.User;
 import ma.xproce.gestion_depenses_projet.dao.repositories.BudgetRepository;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.YearMonth;
 import java.util.List;
@@ -17,8 +19,10 @@ import java.util.Optional;
 public class BudgetManager implements BudgetService {
 
     private final BudgetRepository budgetRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
+    @Transactional
     public Budget setBudget(User user, Category category, YearMonth month, Budget budget) {
         Optional<Budget> existing = budgetRepository.findByUserAndCategoryAndMonth(user, category, month);
         if (existing.isPresent()) {
@@ -27,7 +31,9 @@ public class BudgetManager implements BudgetService {
         budget.setUser(user);
         budget.setCategory(category);
         budget.setMonth(month);
-        return budgetRepository.save(budget);
+        Budget saved = budgetRepository.save(budget);
+        eventPublisher.publishEvent(new BudgetChangedEvent(user, null, BudgetChangedEvent.Snapshot.of(saved)));
+        return saved;
     }
 
     @Override
@@ -40,19 +46,6 @@ public class BudgetManager implements BudgetService {
         return budgetRepository.findAllByUser(user);
     }
 
-    @Override
-    public Optional<OverBudgetCategory> getTopOverBudgetForCurrentOrPreviousMonth() {
-        YearMonth current = YearMonth.now();
-
-        Optional<OverBudgetCategory> currentResult = getTopOverBudgetForMonth(current);
-        if (currentResult.isPresent()) {
-            return currentResult;
-        }
-
-        YearMonth previous = current.minusMonths(1);
-        return getTopOverBudgetForMonth(previous);
-    }
-
     @Override
     public Optional<OverBudgetCategory> getTopOverBudgetForUserCurrentOrPreviousMonth(User user) {
         YearMonth current = YearMonth.now();
@@ -66,57 +59,32 @@ public class BudgetManager implements BudgetService {
         return getTopOverBudgetForUserAndMonth(user, previous);
     }
 
-    private Optional<OverBudgetCategory> getTopOverBudgetForMonth(YearMonth month) {
-        List<Object[]> rows = budgetRepository.findTopOverBudgetForMonth(
-                month, month.getYear(), month.getMonthValue(), PageRequest.of(0, 1));
-
-        if (rows == null || rows.isEmpty()) {
-            return Optional.empty();
-        }
-
-        Object[] row = rows.get(0);
-        if (row == null || row.length < 4 || row[0] == null || row[1] == null || row[2] == null || row[3] == null) {
-            return Optional.empty();
-        }
-
-        User user = (User) row[0];
-        Category category = (Category) row[1];
-        var budgetAmount = (java.math.BigDecimal) row[2];
-        var spentAmount = (java.math.BigDecimal) row[3];
-
-        return Optional.of(new OverBudgetCategory(user, category, budgetAmount, spentAmount, month));
-    }
-
     private Optional<OverBudgetCategory> getTopOverBudgetForUserAndMonth(User user, YearMonth month) {
-        List<Object[]> rows = budgetRepository.findTopOverBudgetForUserAndMonth(
-                user, month, month.getYear(), month.getMonthValue(), PageRequest.of(0, 1));
-
-        if (rows == null || rows.isEmpty()) {
-            return Optional.empty();
-        }
-
-        Object[] row = rows.get(0);
-        if (row == null || row.length < 4 || row[0] == null || row[1] == null || row[2] == null || row[3] == null) {
-            return Optional.empty();
-        }
-
-        User resultUser = (User) row[0];
-        Category category = (Category) row[1];
-        var budgetAmount = (java.math.BigDecimal) row[2];
-        var spentAmount = (java.math.BigDecimal) row[3];
-
-        return Optional.of(new OverBudgetCategory(resultUser, category, budgetAmount, spentAmount, month));
+        return budgetRepository.findTopOverBudgetForUserAndMonth(user, month, PageRequest.of(0, 1)).stream()
+                .findFirst()
+                .map(line -> new OverBudgetCategory(line.categoryId(), line.categoryName(),
+                        line.budgetAmount(), line.spentAmount(), line.month()));
     }
 
     @Override
+    @Transactional
     public Budget updateBudget(User user, Budget budget) {
+        BudgetChangedEvent.Snapshot before = budget.getId() == null ? null
+                : budgetRepository.findById(budget.getId()).map(BudgetChangedEvent.Snapshot::of).orElse(null);
         budget.setUser(user);
-        return budgetRepository.save(budget);
+        Budget saved = budgetRepository.save(budget);
+        eventPublisher.publishEvent(new BudgetChangedEvent(user, before, BudgetChangedEvent.Snapshot.of(saved)));
+        return saved;
     }
 
     @Override
+    @Transactional
     public void deleteBudget(Long budgetId) {
-        budgetRepository.deleteById(budgetId);
+        budgetRepository.findById(budgetId).ifPresent(budget -> {
+            BudgetChangedEvent.Snapshot before = BudgetChangedEvent.Snapshot.of(budget);
+            budgetRepository.delete(budget);
+            eventPublisher.publishEvent(new BudgetChangedEvent(budget.getUser(), before, null));
+        });
     }
 }
 
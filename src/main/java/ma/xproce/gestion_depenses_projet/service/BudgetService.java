@@ -12,8 +12,6 @@ public interface BudgetService {
     Budget setBudget(User user, Category category, YearMonth month, Budget budget);
     Optional<Budget> getBudget(User user, Category category, YearMonth month);
     List<Budget> getAllUserBudgets(User user);
-    Optional<OverBudgetCategory> getTopOverBudgetForCurrentOrPreviousMonth();
-
     Optional<OverBudgetCategory> getTopOverBudgetForUserCurrentOrPreviousMonth(User user);
     Budget updateBudget(User user, Budget budget);
 
@@ -0,0 +1,11 @@
+package ma.xproce.gestion_depenses_projet.service;
+
+import ma.xproce.gestion_depenses_projet.dao.entities.User;
+
+/**
+ * Published inside the writing transaction whenever a category is created, renamed or deleted.
+ * Deleting a category also deletes its expenses; they are announced first by an
+ * {@link ExpenseChangedEvent} removing each of them, so rollups and derived tables follow.
+ */
+public record CategoryChangedEvent(User user, Long categoryId, boolean deleted) {
+}
@@ -2,10 +2,14 @@ package ma.xproce.gestion_depenses_projet.service;
 
 import lombok.RequiredArgsConstructor;
 import ma.xproce.gestion_depenses_projet.dao.entities.Category;
+import ma.xproce.gestion_depenses_projet.dao.entities.Expense;
 import ma.xproce.gestion_depenses_projet.dao.entities.User;
 import ma.xproce.gestion_depenses_projet.dao.repositories.CategoryRepository;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -14,8 +18,10 @@ import java.util.Optional;
 public class CategoryManager implements CategoryService {
 
     private final CategoryRepository categoryRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
+    @Transactional
     public Category createCategory(User user, Category category) {
         List<Category> existing = categoryRepository.findAllByUser(user);
         boolean alreadyExists = existing.stream().anyMatch(cat ->
@@ -27,7 +33,9 @@ public class CategoryManager implements CategoryService {
                     .get();
         }
         category.setUser(user);
-        return categoryRepository.save(category);
+        Category saved = categoryRepository.save(category);
+        eventPublisher.publishEvent(new CategoryChangedEvent(user, saved.getId(), false));
+        return saved;
     }
 
     @Override
@@ -36,8 +44,21 @@ public class CategoryManager implements CategoryService {
     }
 
     @Override
+    @Transactional
     public void deleteCategory(Long categoryId) {
-        categoryRepository.deleteById(categoryId);
+        categoryRepository.findById(categoryId).ifPresent(category -> {
+            List<ExpenseChangedEvent.Change> removed = new ArrayList<>();
+            if (category.getExpenses() != null) {
+                for (Expense expense : category.getExpenses()) {
+                    removed.add(new ExpenseChangedEvent.Change(ExpenseChangedEvent.Snapshot.of(expense), null));
+                }
+            }
+            categoryRepository.delete(category);
+            if (!removed.isEmpty()) {
+                eventPublisher.publishEvent(new ExpenseChangedEvent(category.getUser(), removed));
+            }
+            eventPublisher.publishEvent(new CategoryChangedEvent(category.getUser(), categoryId, true));
+        });
     }
 
     @Override
@@ -46,13 +67,16 @@ public class CategoryManager implements CategoryService {
     }
 
     @Override
+    @Transactional
     public Category updateCategory(Long categoryId, Category updatedCategory) {
         Optional<Category> existingCategory = categoryRepository.findById(categoryId);
         if (existingCategory.isPresent()) {
             Category category = existingCategory.get();
             category.setName(updatedCategory.getName());
             category.setDescription(updatedCategory.getDescription());
-            return categoryRepository.save(category);
+            Category saved = categoryRepository.save(category);
+            eventPublisher.publishEvent(new CategoryChangedEvent(saved.getUser(), categoryId, false));
+            return saved;
         }
         return null;
     }
@@ -0,0 +1,152 @@
+package ma.xproce.gestion_depenses_projet.service;
+
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * CSV with a header row naming at least the {@code date}, {@code amount} and {@code category}
+ * columns, plus an optional {@code description}. The delimiter is {@code ,} or {@code ;}, taken
+ * from the header. Dates are {@code yyyy-MM-dd} or {@code dd/MM/yyyy}; amounts may use a decimal
+ * comma or thousands separators. Amounts are expense amounts, so debits are positive and a
+ * negative amount is a credit or refund, which is skipped.
+ */
+@Component
+public class CsvExpenseParser implements ExpenseRecordParser {
+
+    private static final DateTimeFormatter FRENCH_DATE = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+
+    @Override
+    public boolean supports(String filename) {
+        return filename != null && filename.toLowerCase(Locale.ROOT).endsWith(".csv");
+    }
+
+    @Override
+    public void parse(BufferedReader reader, Sink sink) throws IOException {
+        String header = reader.readLine();
+        if (header == null) {
+            return;
+        }
+        header = header.replace("\uFEFF", "");
+        char delimiter = header.indexOf(';') >= 0 ? ';' : ',';
+
+        List<String> columns = split(header, delimiter);
+        int dateColumn = indexOf(columns, "date");
+        int amountColumn = indexOf(columns, "amount", "montant");
+        int categoryColumn = indexOf(columns, "category", "categorie", "catégorie");
+        int descriptionColumn = indexOf(columns, "description", "libelle", "libellé");
+        if (dateColumn < 0 || amountColumn < 0 || categoryColumn < 0) {
+            sink.error(1, "En-tête invalide : colonnes date, amount et category requises");
+            return;
+        }
+
+        long lineNumber = 1;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+
+            List<String> fields = split(line, delimiter);
+            if (fields.size() <= Math.max(dateColumn, Math.max(amountColumn, categoryColumn))) {
+                sink.error(lineNumber, "Nombre de colonnes insuffisant");
+                continue;
+            }
+
+            LocalDate date = parseDate(fields.get(dateColumn));
+            if (date == null) {
+                sink.error(lineNumber, "Date invalide : " + fields.get(dateColumn));
+                continue;
+            }
+            BigDecimal amount = parseAmount(fields.get(amountColumn));
+            if (amount == null || amount.signum() == 0) {
+                sink.error(lineNumber, "Montant invalide : " + fields.get(amountColumn));
+                continue;
+            }
+            if (amount.signum() < 0) {
+                sink.skip(lineNumber, "Crédit ou remboursement ignoré : " + fields.get(amountColumn));
+                continue;
+            }
+            String description = descriptionColumn >= 0 && descriptionColumn < fields.size()
+                    ? fields.get(descriptionColumn) : null;
+
+            sink.record(new ExpenseRecord(lineNumber, date, amount, fields.get(categoryColumn).trim(), description));
+        }
+    }
+
+    private static int indexOf(List<String> columns, String... names) {
+        for (int i = 0; i < columns.size(); i++) {
+            String column = columns.get(i).trim().toLowerCase(Locale.ROOT);
+            for (String name : names) {
+                if (column.equals(name)) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    static List<String> split(String line, char delimiter) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == delimiter) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    static LocalDate parseDate(String value) {
+        String trimmed = value.trim();
+        try {
+            return trimmed.indexOf('/') >= 0 ? LocalDate.parse(trimmed, FRENCH_DATE) : LocalDate.parse(trimmed);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    static BigDecimal parseAmount(String value) {
+        String normalized = value.trim().replace(" ", "").replace("\u00A0", "");
+        int comma = normalized.lastIndexOf(',');
+        int dot = normalized.lastIndexOf('.');
+        if (comma >= 0 && dot >= 0) {
+            normalized = comma > dot
+                    ? normalized.replace(".", "").replace(',', '.')
+                    : normalized.replace(",", "");
+        } else {
+            normalized = normalized.replace(',', '.');
+        }
+        try {
+            return new BigDecimal(normalized);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package ma.xproce.gestion_depenses_projet.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ma.xproce.gestion_depenses_projet.dao.entities.User;
+import ma.xproce.gestion_depenses_projet.dao.repositories.BudgetRepository;
+import ma.xproce.gestion_depenses_projet.dao.repositories.CategoryTotal;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DashboardManager implements DashboardService {
+
+    private final ExpenseService expenseService;
+    private final BudgetRepository budgetRepository;
+    private final LastMonthStatisticsService lastMonthStatisticsService;
+    private final DashboardSnapshotCache dashboardSnapshotCache;
+
+    @Override
+    public DashboardSnapshot getSnapshot(User user) {
+        YearMonth currentMonth = YearMonth.now();
+        return dashboardSnapshotCache.get(user.getId(), currentMonth, () -> loadSnapshot(user, currentMonth));
+    }
+
+    @SuppressWarnings("unchecked")
+    private DashboardSnapshot loadSnapshot(User user, YearMonth currentMonth) {
+        YearMonth month = currentMonth;
+        List<CategoryTotal> spent = getCategoryTotals(user, month);
+        List<Object[]> budgets = budgetRepository.sumBudgetsByCategoryAndMonth(user, month, month);
+        if (spent.isEmpty() && budgets.isEmpty() && month.getMonthValue() > 1) {
+            month = month.minusMonths(1);
+            spent = getCategoryTotals(user, month);
+            budgets = budgetRepository.sumBudgetsByCategoryAndMonth(user, month, month);
+        }
+
+        Map<String, BigDecimal> expensesByCategory = new LinkedHashMap<>();
+        BigDecimal totalExpenses = BigDecimal.ZERO;
+        for (CategoryTotal categoryTotal : spent) {
+            expensesByCategory.merge(categoryTotal.categoryName(), categoryTotal.total(), BigDecimal::add);
+            totalExpenses = totalExpenses.add(categoryTotal.total());
+        }
+
+        List<DashboardSnapshot.BudgetUsage> budgetUsage = new ArrayList<>();
+        BigDecimal totalBudget = BigDecimal.ZERO;
+        for (Object[] row : budgets) {
+            String categoryName = (String) row[1];
+            BigDecimal amount = (BigDecimal) row[3];
+            if (amount == null) {
+                continue;
+            }
+            budgetUsage.add(new DashboardSnapshot.BudgetUsage(categoryName, amount,
+                    expensesByCategory.getOrDefault(categoryName, BigDecimal.ZERO)));
+            totalBudget = totalBudget.add(amount);
+        }
+
+        YearMonth lastActiveMonth = null;
+        List<String> labels = List.of();
+        List<Double> values = List.of();
+        try {
+            Optional<Map<String, Object>> lastMonth = lastMonthStatisticsService.getLastValidMonth(user);
+            if (lastMonth.isPresent()) {
+                Map<String, Object> data = lastMonth.get();
+                lastActiveMonth = YearMonth.of((Integer) data.get("year"), (Integer) data.get("month"));
+                labels = (List<String>) data.get("labels");
+                values = (List<Double>) data.get("values");
+            }
+        } catch (RuntimeException e) {
+            log.warn("Graphique du dernier mois indisponible pour l'utilisateur {}", user.getId(), e);
+        }
+
+        return new DashboardSnapshot(month, totalExpenses, totalBudget,
+                Collections.unmodifiableMap(expensesByCategory), List.copyOf(budgetUsage),
+                lastActiveMonth, List.copyOf(labels), List.copyOf(values));
+    }
+
+    private List<CategoryTotal> getCategoryTotals(User user, YearMonth month) {
+        return expenseService.getTopCategories(user, month.atDay(1), month.plusMonths(1).atDay(1), Integer.MAX_VALUE);
+    }
+}
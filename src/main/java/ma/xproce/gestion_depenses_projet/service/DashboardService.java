@@ -0,0 +1,8 @@
+package ma.xproce.gestion_depenses_projet.service;
+
+import ma.xproce.gestion_depenses_projet.dao.entities.User;
+
+public interface DashboardService {
+
+    DashboardSnapshot getSnapshot(User user);
+}
@@ -0,0 +1,32 @@
+package ma.xproce.gestion_depenses_projet.service;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Everything the user home page shows: the totals of the displayed month, spending and budget
+ * per category for that month, and the daily chart of the last month with expenses.
+ * {@code lastActiveMonth} is null when the user has no expenses.
+ */
+public record DashboardSnapshot(YearMonth month,
+                                BigDecimal totalExpenses,
+                                BigDecimal totalBudget,
+                                Map<String, BigDecimal> expensesByCategory,
+                                List<BudgetUsage> budgetUsage,
+                                YearMonth lastActiveMonth,
+                                List<String> lastMonthLabels,
+                                List<Double> lastMonthValues) {
+
+    public BigDecimal difference() {
+        return totalBudget.subtract(totalExpenses);
+    }
+
+    public boolean hasFinancialData() {
+        return totalBudget.compareTo(BigDecimal.ZERO) > 0 || totalExpenses.compareTo(BigDecimal.ZERO) > 0;
+    }
+
+    public record BudgetUsage(String categoryName, BigDecimal budget, BigDecimal spent) {
+    }
+}
@@ -0,0 +1,61 @@
+package ma.xproce.gestion_depenses_projet.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.YearMonth;
+import java.util.function.Supplier;
+
+/**
+ * Least recently used cache of home page snapshots, one per user and calendar month. A user's
+ * snapshot is dropped once a transaction that changed their expenses, budgets or categories
+ * commits. A snapshot loaded while an eviction happened is returned but not kept, since it may
+ * predate the change.
+ */
+@Component
+public class DashboardSnapshotCache {
+
+    private final LruCache<Key, DashboardSnapshot> snapshots;
+
+    public DashboardSnapshotCache(@Value("${dashboard.cache.max-entries:1000}") int maxEntries) {
+        this.snapshots = new LruCache<>(maxEntries);
+    }
+
+    public DashboardSnapshot get(Long userId, YearMonth currentMonth, Supplier<DashboardSnapshot> loader) {
+        return snapshots.get(new Key(userId, currentMonth), loader);
+    }
+
+    public void evictUser(Long userId) {
+        snapshots.evictIf(key -> key.userId().equals(userId));
+    }
+
+    public void clear() {
+        snapshots.clear();
+    }
+
+    @EventListener
+    public void onRollupsRebuilt(ExpenseRollupsRebuiltEvent event) {
+        clear();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onExpenseChanged(ExpenseChangedEvent event) {
+        evictUser(event.user().getId());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onBudgetChanged(BudgetChangedEvent event) {
+        evictUser(event.user().getId());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        evictUser(event.user().getId());
+    }
+
+    private record Key(Long userId, YearMonth currentMonth) {
+    }
+}
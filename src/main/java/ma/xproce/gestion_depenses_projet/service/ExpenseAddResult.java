@@ -0,0 +1,24 @@
+package ma.xproce.gestion_depenses_projet.service;
+
+import ma.xproce.gestion_depenses_projet.dao.entities.Expense;
+
+import java.math.BigDecimal;
+
+/**
+ * Outcome of adding an expense under its monthly budget: either the saved expense, or the budget
+ * and the amount already spent when the expense would exceed it and was not confirmed.
+ */
+public record ExpenseAddResult(Expense expense, BigDecimal budgetAmount, BigDecimal totalSpent) {
+
+    public static ExpenseAddResult added(Expense expense) {
+        return new ExpenseAddResult(expense, null, null);
+    }
+
+    public static ExpenseAddResult overBudget(BigDecimal budgetAmount, BigDecimal totalSpent) {
+        return new ExpenseAddResult(null, budgetAmount, totalSpent);
+    }
+
+    public boolean isAdded() {
+        return expense != null;
+    }
+}
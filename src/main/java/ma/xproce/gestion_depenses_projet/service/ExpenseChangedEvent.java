@@ -0,0 +1,32 @@
+package ma.xproce.gestion_depenses_projet.service;
+
+import ma.xproce.gestion_depenses_projet.dao.entities.Expense;
+import ma.xproce.gestion_depenses_projet.dao.entities.User;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Published inside the writing transaction whenever expenses are added, updated or deleted.
+ * {@code before} is null for an insert and {@code after} is null for a delete.
+ */
+public record ExpenseChangedEvent(User user, List<Change> changes) {
+
+    public record Snapshot(Long categoryId, String categoryName, LocalDate date, BigDecimal amount) {
+
+        public static Snapshot of(Expense expense) {
+            return new Snapshot(
+                    expense.getCategory() != null ? expense.getCategory().getId() : null,
+                    expense.getCategory() != null ? expense.getCategory().getName() : null,
+                    expense.getDate(),
+                    expense.getAmount());
+        }
+    }
+
+    public record Change(Snapshot before, Snapshot after) {}
+
+    public static ExpenseChangedEvent of(User user, Snapshot before, Snapshot after) {
+        return new ExpenseChangedEvent(user, List.of(new Change(before, after)));
+    }
+}
@@ -0,0 +1,47 @@
+package ma.xproce.gestion_depenses_projet.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.util.function.LongSupplier;
+
+/**
+ * Least recently used cache of expense search totals, so paging through a search does not count
+ * the user's expenses again for every page. A user's entries are dropped once a transaction that
+ * changed their expenses, or deleted one of their categories, commits.
+ */
+@Component
+public class ExpenseCountCache {
+
+    private final LruCache<Key, Long> counts;
+
+    public ExpenseCountCache(@Value("${expenses.count-cache.max-entries:1000}") int maxEntries) {
+        this.counts = new LruCache<>(maxEntries);
+    }
+
+    public long count(Long userId, Long categoryId, LocalDate startDate, LocalDate endDate, LongSupplier loader) {
+        return counts.get(new Key(userId, categoryId, startDate, endDate), loader::getAsLong);
+    }
+
+    public void evictUser(Long userId) {
+        counts.evictIf(key -> key.userId().equals(userId));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onExpenseChanged(ExpenseChangedEvent event) {
+        evictUser(event.user().getId());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        if (event.deleted()) {
+            evictUser(event.user().getId());
+        }
+    }
+
+    private record Key(Long userId, Long categoryId, LocalDate startDate, LocalDate endDate) {
+    }
+}
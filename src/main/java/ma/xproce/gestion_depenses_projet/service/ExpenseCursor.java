@@ -0,0 +1,62 @@
+package ma.xproce.gestion_depenses_projet.service;
+
+import ma.xproce.gestion_depenses_projet.dao.repositories.ExpenseRow;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Base64;
+
+/**
+ * Position of the last expense of a scrolled page: its sort key and id, along with the sort the
+ * position belongs to. Exchanged with clients as an opaque Base64 token.
+ */
+record ExpenseCursor(String sortBy, Sort.Direction direction, String key, long id) {
+
+    static final String SORT_DATE = "date";
+    static final String SORT_AMOUNT = "amount";
+
+    static ExpenseCursor after(String sortBy, Sort.Direction direction, ExpenseRow row) {
+        String key = SORT_AMOUNT.equals(sortBy) ? row.getAmount().toPlainString() : row.getDate().toString();
+        return new ExpenseCursor(sortBy, direction, key, row.getId());
+    }
+
+    String encode() {
+        String value = sortBy + ":" + direction + ":" + key + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static ExpenseCursor decode(String token, String sortBy, Sort.Direction direction) {
+        String[] parts;
+        try {
+            parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split(":");
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Curseur invalide", e);
+        }
+        if (parts.length != 4 || !parts[0].equals(sortBy) || !parts[1].equals(direction.name())) {
+            throw new IllegalArgumentException("Curseur invalide pour ce tri");
+        }
+
+        ExpenseCursor cursor;
+        try {
+            cursor = new ExpenseCursor(sortBy, direction, parts[2], Long.parseLong(parts[3]));
+            if (SORT_AMOUNT.equals(sortBy)) {
+                cursor.amount();
+            } else {
+                cursor.date();
+            }
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Curseur invalide", e);
+        }
+        return cursor;
+    }
+
+    LocalDate date() {
+        return LocalDate.parse(key);
+    }
+
+    BigDecimal amount() {
+        return new BigDecimal(key);
+    }
+}
@@ -0,0 +1,242 @@
+package ma.xproce.gestion_depenses_projet.service;
+
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import ma.xproce.gestion_depenses_projet.dao.entities.Budget;
+import ma.xproce.gestion_depenses_projet.dao.entities.Category;
+import ma.xproce.gestion_depenses_projet.dao.entities.Expense;
+import ma.xproce.gestion_depenses_projet.dao.entities.User;
+import ma.xproce.gestion_depenses_projet.dao.repositories.ExpenseRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.YearMonth;
+import java.util.*;
+
+/**
+ * Streams an import file through the matching parser and inserts the accepted rows in batches,
+ * one {@link ExpenseChangedEvent} per batch. Expense ids come from a pooled generator, so
+ * Hibernate groups the inserts into JDBC batches. The whole file is imported in one transaction
+ * that is rolled back as soon as one row is rejected, so a file is either fully imported or not at
+ * all and can simply be sent again once corrected. Like {@link ExpenseService#addExpenseWithinBudget},
+ * expenses that take their category past its monthly budget are flagged, the month total being
+ * locked the first time the import meets that category and month.
+ */
+@Slf4j
+@Service
+public class ExpenseImportManager implements ExpenseImportService {
+
+    private static final int MAX_REPORTED_ERRORS = 1000;
+
+    private final List<ExpenseRecordParser> parsers;
+    private final CategoryService categoryService;
+    private final ExpenseRepository expenseRepository;
+    private final BudgetService budgetService;
+    private final ExpenseRollupService expenseRollupService;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int batchSize;
+
+    public ExpenseImportManager(List<ExpenseRecordParser> parsers,
+                                CategoryService categoryService,
+                                ExpenseRepository expenseRepository,
+                                BudgetService budgetService,
+                                ExpenseRollupService expenseRollupService,
+                                EntityManager entityManager,
+                                TransactionTemplate transactionTemplate,
+                                ApplicationEventPublisher eventPublisher,
+                                @Value("${expenses.import.batch-size:1000}") int batchSize) {
+        this.parsers = parsers;
+        this.categoryService = categoryService;
+        this.expenseRepository = expenseRepository;
+        this.budgetService = budgetService;
+        this.expenseRollupService = expenseRollupService;
+        this.entityManager = entityManager;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public ExpenseImportResult importExpenses(User user, String filename, InputStream input) throws IOException {
+        ExpenseRecordParser parser = parsers.stream()
+                .filter(p -> p.supports(filename))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Format de fichier non pris en charge : " + filename));
+
+        Map<String, Category> categories = new HashMap<>();
+        for (Category category : categoryService.getUserCategories(user)) {
+            categories.put(normalize(category.getName()), category);
+        }
+
+        long started = System.nanoTime();
+        ImportSink sink = new ImportSink(user, categories);
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+                    parser.parse(reader, sink);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                sink.flush();
+                if (sink.rejected > 0) {
+                    status.setRollbackOnly();
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        long imported = sink.rejected > 0 ? 0 : sink.written;
+
+        long elapsedNanos = System.nanoTime() - started;
+        double seconds = elapsedNanos / 1_000_000_000.0;
+        ExpenseImportResult result = new ExpenseImportResult(
+                sink.accepted + sink.rejected + sink.skipped,
+                imported,
+                sink.rejected,
+                imported > 0 ? sink.overBudget : 0,
+                sink.skipped,
+                sink.errors,
+                sink.skippedRows,
+                elapsedNanos / 1_000_000,
+                seconds > 0 ? (sink.accepted + sink.rejected + sink.skipped) / seconds : 0.0);
+        log.info("Import de {} pour {} : {} lignes importées, {} rejetées, {} ignorées, {} lignes/s",
+                filename, user.getUsername(), result.importedRows(), result.rejectedRows(), result.skippedRows(),
+                String.format("%.0f", result.rowsPerSecond()));
+        return result;
+    }
+
+    private static String normalize(String categoryName) {
+        return categoryName.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private class ImportSink implements ExpenseRecordParser.Sink {
+
+        private final User user;
+        private final Map<String, Category> categories;
+        private final List<Expense> batch = new ArrayList<>();
+        private final List<ExpenseImportResult.RowError> errors = new ArrayList<>();
+        private final List<ExpenseImportResult.RowError> skippedRows = new ArrayList<>();
+        private final Map<MonthKey, MonthBudget> monthBudgets = new HashMap<>();
+        private long accepted;
+        private long written;
+        private long rejected;
+        private long overBudget;
+        private long skipped;
+
+        ImportSink(User user, Map<String, Category> categories) {
+            this.user = user;
+            this.categories = categories;
+        }
+
+        @Override
+        public void record(ExpenseRecord record) {
+            Category category = categories.get(normalize(record.categoryName()));
+            if (category == null) {
+                error(record.line(), "Catégorie inconnue : " + record.categoryName());
+                return;
+            }
+
+            accepted++;
+            if (rejected > 0) {
+                return;
+            }
+
+            Expense expense = Expense.builder()
+                    .user(user)
+                    .category(category)
+                    .date(record.date())
+                    .amount(record.amount())
+                    .description(record.description())
+                    .build();
+            MonthBudget monthBudget = monthBudgets.computeIfAbsent(
+                    new MonthKey(category.getId(), YearMonth.from(record.date())),
+                    key -> loadMonthBudget(category, key.month()));
+            if (monthBudget.add(record.amount())) {
+                expense.setOverBudget(true);
+                overBudget++;
+            }
+
+            batch.add(expense);
+            if (batch.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        @Override
+        public void error(long line, String message) {
+            rejected++;
+            batch.clear();
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new ExpenseImportResult.RowError(line, message));
+            }
+        }
+
+        @Override
+        public void skip(long line, String reason) {
+            skipped++;
+            if (skippedRows.size() < MAX_REPORTED_ERRORS) {
+                skippedRows.add(new ExpenseImportResult.RowError(line, reason));
+            }
+        }
+
+        private MonthBudget loadMonthBudget(Category category, YearMonth month) {
+            BigDecimal amount = budgetService.getBudget(user, category, month)
+                    .map(Budget::getAmount)
+                    .orElse(null);
+            if (amount == null) {
+                return new MonthBudget(null, BigDecimal.ZERO);
+            }
+            return new MonthBudget(amount, expenseRollupService.lockMonthTotal(user, category, month));
+        }
+
+        void flush() {
+            if (batch.isEmpty() || rejected > 0) {
+                return;
+            }
+
+            List<ExpenseChangedEvent.Change> changes = new ArrayList<>(batch.size());
+            for (Expense expense : batch) {
+                changes.add(new ExpenseChangedEvent.Change(null, ExpenseChangedEvent.Snapshot.of(expense)));
+            }
+            expenseRepository.saveAll(batch);
+            eventPublisher.publishEvent(new ExpenseChangedEvent(user, changes));
+            entityManager.flush();
+            entityManager.clear();
+            written += batch.size();
+            batch.clear();
+        }
+    }
+
+    private record MonthKey(Long categoryId, YearMonth month) {
+    }
+
+    private static final class MonthBudget {
+
+        private final BigDecimal budget;
+        private BigDecimal spent;
+
+        MonthBudget(BigDecimal budget, BigDecimal spent) {
+            this.budget = budget;
+            this.spent = spent;
+        }
+
+        boolean add(BigDecimal amount) {
+            if (budget == null) {
+                return false;
+            }
+            spent = spent.add(amount);
+            return spent.compareTo(budget) > 0;
+        }
+    }
+}
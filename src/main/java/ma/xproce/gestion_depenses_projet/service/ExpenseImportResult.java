@@ -0,0 +1,23 @@
+package ma.xproce.gestion_depenses_projet.service;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk import. An import is all or nothing: when {@code rejectedRows} is not zero no
+ * row was imported. {@code errors} lists at most the first rejected rows; {@code rejectedRows}
+ * counts all of them. {@code overBudgetRows} counts the imported expenses flagged as over budget.
+ * Credits and refunds are not expenses: they are counted in {@code skippedRows}, the first ones
+ * listed in {@code skipped}, and do not prevent the import.
+ */
+public record ExpenseImportResult(long totalRows,
+                                  long importedRows,
+                                  long rejectedRows,
+                                  long overBudgetRows,
+                                  long skippedRows,
+                                  List<RowError> errors,
+                                  List<RowError> skipped,
+                                  long elapsedMillis,
+                                  double rowsPerSecond) {
+
+    public record RowError(long line, String message) {}
+}
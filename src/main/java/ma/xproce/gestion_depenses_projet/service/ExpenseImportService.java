@@ -0,0 +1,11 @@
+package ma.xproce.gestion_depenses_projet.service;
+
+import ma.xproce.gestion_depenses_projet.dao.entities.User;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+public interface ExpenseImportService {
+
+    ExpenseImportResult importExpenses(User user, String filename, InputStream input) throws IOException;
+}
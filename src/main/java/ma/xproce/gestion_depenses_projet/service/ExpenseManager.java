@@ -1,14 +1,27 @@
 package ma.xproce.gestion_depenses_projet.service;
 
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ma.xproce.gestion_depenses_projet.dao.entities.Budget;
 import ma.xproce.gestion_depenses_projet.dao.entities.Category;
 import ma.xproce.gestion_depenses_projet.dao.entities.Expense;
 import ma.xproce.gestion_depenses_projet.dao.entities.User;
+import ma.xproce.gestion_depenses_projet.dao.repositories.CategoryTotal;
 import ma.xproce.gestion_depenses_projet.dao.repositories.ExpenseRepository;
+import ma.xproce.gestion_depenses_projet.dao.repositories.ExpenseRollupRepository;
+import ma.xproce.gestion_depenses_projet.dao.repositories.ExpenseRow;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DeadlockLoserDataAccessException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -16,16 +29,63 @@ import java.time.YearMonth;
 import java.util.List;
 import java.util.Optional;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class ExpenseManager implements ExpenseService {
 
+    private static final int BUDGET_CHECK_ATTEMPTS = 3;
+
     private final ExpenseRepository expenseRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ExpenseCountCache expenseCountCache;
+    private final BudgetService budgetService;
+    private final ExpenseRollupService expenseRollupService;
+    private final ExpenseRollupRepository expenseRollupRepository;
+    private final TransactionTemplate transactionTemplate;
 
     @Override
+    @Transactional
     public Expense addExpense(User user, Expense expense) {
         expense.setUser(user);
-        return expenseRepository.save(expense);
+        Expense saved = expenseRepository.save(expense);
+        eventPublisher.publishEvent(ExpenseChangedEvent.of(user, null, ExpenseChangedEvent.Snapshot.of(saved)));
+        return saved;
+    }
+
+    /**
+     * Runs the budget check and the insert in one transaction, retried a few times when it loses a
+     * deadlock or lock wait on the monthly rollup row, as two first expenses of a month can.
+     */
+    @Override
+    public ExpenseAddResult addExpenseWithinBudget(User user, Expense expense, boolean allowOverBudget) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> addWithinBudget(user, expense, allowOverBudget));
+            } catch (DeadlockLoserDataAccessException | CannotAcquireLockException e) {
+                if (attempt >= BUDGET_CHECK_ATTEMPTS) {
+                    throw e;
+                }
+                log.debug("Contrôle du budget interrompu par un verrou, nouvelle tentative {}", attempt + 1, e);
+                expense.setId(null);
+                expense.setOverBudget(false);
+            }
+        }
+    }
+
+    private ExpenseAddResult addWithinBudget(User user, Expense expense, boolean allowOverBudget) {
+        YearMonth month = YearMonth.from(expense.getDate());
+        Optional<Budget> budget = budgetService.getBudget(user, expense.getCategory(), month);
+        if (budget.isPresent() && budget.get().getAmount() != null) {
+            BigDecimal totalSpent = expenseRollupService.lockMonthTotal(user, expense.getCategory(), month);
+            if (totalSpent.add(expense.getAmount()).compareTo(budget.get().getAmount()) > 0) {
+                if (!allowOverBudget) {
+                    return ExpenseAddResult.overBudget(budget.get().getAmount(), totalSpent);
+                }
+                expense.setOverBudget(true);
+            }
+        }
+        return ExpenseAddResult.added(addExpense(user, expense));
     }
 
     @Override
@@ -44,19 +104,29 @@ public class ExpenseManager implements ExpenseService {
     }
 
     @Override
+    @Transactional
     public void deleteExpense(Long id) {
-        expenseRepository.deleteById(id);
+        expenseRepository.findById(id).ifPresent(expense -> {
+            ExpenseChangedEvent.Snapshot before = ExpenseChangedEvent.Snapshot.of(expense);
+            expenseRepository.delete(expense);
+            eventPublisher.publishEvent(ExpenseChangedEvent.of(expense.getUser(), before, null));
+        });
     }
 
     @Override
+    @Transactional
     public Expense updateExpense(Long id, Expense expense) {
         Expense existingExpense = expenseRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Dépense non trouvée"));
+        ExpenseChangedEvent.Snapshot before = ExpenseChangedEvent.Snapshot.of(existingExpense);
         existingExpense.setDescription(expense.getDescription());
         existingExpense.setAmount(expense.getAmount());
         existingExpense.setDate(expense.getDate());
         existingExpense.setCategory(expense.getCategory());
-        return expenseRepository.save(existingExpense);
+        Expense saved = expenseRepository.save(existingExpense);
+        eventPublisher.publishEvent(ExpenseChangedEvent.of(
+                saved.getUser(), before, ExpenseChangedEvent.Snapshot.of(saved)));
+        return saved;
     }
 
     
@@ -68,14 +138,63 @@ public class ExpenseManager implements ExpenseService {
     @Override
     public Page<Expense> searchExpenses(User user, Category category,
                                         LocalDate startDate, LocalDate endDate, Pageable pageable) {
-        return expenseRepository.searchExpenses(user, category, startDate, endDate, pageable);
+        Slice<Expense> slice = expenseRepository.findExpenses(user, category, startDate, endDate, pageable);
+        long total = countExpenses(user, category, startDate, endDate);
+        return new PageImpl<>(slice.getContent(), pageable, total);
+    }
+
+    @Override
+    public ExpenseSlice scrollExpenses(User user, Category category, LocalDate startDate, LocalDate endDate,
+                                       String sortBy, Sort.Direction direction, String cursor, int size,
+                                       boolean includeTotal) {
+        if (!ExpenseCursor.SORT_DATE.equals(sortBy) && !ExpenseCursor.SORT_AMOUNT.equals(sortBy)) {
+            throw new IllegalArgumentException("Tri non pris en charge pour le défilement : " + sortBy);
+        }
+        ExpenseCursor after = cursor == null || cursor.isEmpty()
+                ? null
+                : ExpenseCursor.decode(cursor, sortBy, direction);
+        Pageable limit = PageRequest.of(0, size + 1);
+        boolean ascending = direction == Sort.Direction.ASC;
+
+        List<ExpenseRow> rows;
+        if (ExpenseCursor.SORT_AMOUNT.equals(sortBy)) {
+            if (after == null) {
+                rows = ascending
+                        ? expenseRepository.firstByAmountAsc(user, category, startDate, endDate, limit)
+                        : expenseRepository.firstByAmountDesc(user, category, startDate, endDate, limit);
+            } else {
+                rows = ascending
+                        ? expenseRepository.seekByAmountAsc(user, category, startDate, endDate, after.amount(), after.id(), limit)
+                        : expenseRepository.seekByAmountDesc(user, category, startDate, endDate, after.amount(), after.id(), limit);
+            }
+        } else if (after == null) {
+            rows = ascending
+                    ? expenseRepository.firstByDateAsc(user, category, startDate, endDate, limit)
+                    : expenseRepository.firstByDateDesc(user, category, startDate, endDate, limit);
+        } else {
+            rows = ascending
+                    ? expenseRepository.seekByDateAsc(user, category, startDate, endDate, after.date(), after.id(), limit)
+                    : expenseRepository.seekByDateDesc(user, category, startDate, endDate, after.date(), after.id(), limit);
+        }
+
+        boolean hasNext = rows.size() > size;
+        List<ExpenseRow> content = hasNext ? rows.subList(0, size) : rows;
+        String nextCursor = hasNext
+                ? ExpenseCursor.after(sortBy, direction, content.get(content.size() - 1)).encode()
+                : null;
+        Long total = includeTotal ? countExpenses(user, category, startDate, endDate) : null;
+        return new ExpenseSlice(List.copyOf(content), content.size(), hasNext, nextCursor, total);
+    }
+
+    private long countExpenses(User user, Category category, LocalDate startDate, LocalDate endDate) {
+        return expenseCountCache.count(user.getId(), category != null ? category.getId() : null,
+                startDate, endDate,
+                () -> expenseRepository.countExpenses(user, category, startDate, endDate));
     }
 
     @Override
     public BigDecimal getTotalSpentByMonthAndCategory(User user, Category category, YearMonth month) {
-        return expenseRepository.getTotalSpentByUserAndCategoryAndMonth(
-                user, category, month.getYear(), month.getMonthValue()
-        );
+        return expenseRollupService.getMonthTotal(user, category, month);
     }
 
     @Override
@@ -106,50 +225,28 @@ public class ExpenseManager implements ExpenseService {
         return getTopCategoryForUserAndMonth(user, previousMonth);
     }
 
-    private Optional<MostSpentCategory> getTopCategoryForMonth(YearMonth month) {
-        List<Object[]> results = expenseRepository.findTopCategoriesForMonth(
-                month.getYear(), month.getMonthValue(), PageRequest.of(0, 1));
-
-        if (results == null || results.isEmpty()) {
-            return Optional.empty();
-        }
-
-        Object[] row = results.get(0);
-        if (row == null || row.length < 2 || row[0] == null || row[1] == null) {
-            return Optional.empty();
+    @Override
+    public List<CategoryTotal> getTopCategories(User user, LocalDate startDate, LocalDate endDate, int limit) {
+        Pageable top = PageRequest.of(0, limit);
+        if (startDate.getDayOfMonth() == 1 && endDate.getDayOfMonth() == 1 && endDate.isAfter(startDate)) {
+            YearMonth startMonth = YearMonth.from(startDate);
+            YearMonth endMonth = YearMonth.from(endDate).minusMonths(1);
+            return user != null
+                    ? expenseRollupRepository.findTopCategoriesForUser(user, startMonth, endMonth, top)
+                    : expenseRollupRepository.findTopCategories(startMonth, endMonth, top);
         }
+        return user != null
+                ? expenseRepository.findTopCategoriesForUser(user, startDate, endDate, top)
+                : expenseRepository.findTopCategories(startDate, endDate, top);
+    }
 
-        Category category = (Category) row[0];
-        BigDecimal totalAmount = (BigDecimal) row[1];
-        return Optional.of(new MostSpentCategory(category, totalAmount, month));
+    private Optional<MostSpentCategory> getTopCategoryForMonth(YearMonth month) {
+        return getTopCategoryForUserAndMonth(null, month);
     }
 
     private Optional<MostSpentCategory> getTopCategoryForUserAndMonth(User user, YearMonth month) {
-        List<Expense> userExpenses = expenseRepository.findAllByUser(user);
-        
-        if (userExpenses == null || userExpenses.isEmpty()) {
-            return Optional.empty();
-        }
-
-        var categoryMap = userExpenses.stream()
-                .filter(expense -> YearMonth.from(expense.getDate()).equals(month))
-                .collect(java.util.stream.Collectors.groupingBy(
-                        Expense::getCategory,
-                        java.util.stream.Collectors.reducing(
-                                BigDecimal.ZERO,
-                                Expense::getAmount,
-                                BigDecimal::add
-                        )
-                ));
-
-        if (categoryMap.isEmpty()) {
-            return Optional.empty();
-        }
-
-        var topCategory = categoryMap.entrySet().stream()
-                .max(java.util.Map.Entry.comparingByValue())
-                .map(entry -> new MostSpentCategory(entry.getKey(), entry.getValue(), month));
-
-        return topCategory;
+        return getTopCategories(user, month.atDay(1), month.plusMonths(1).atDay(1), 1).stream()
+                .findFirst()
+                .map(top -> new MostSpentCategory(top.categoryId(), top.categoryName(), top.total(), month));
     }
 }
\ No newline at end of file
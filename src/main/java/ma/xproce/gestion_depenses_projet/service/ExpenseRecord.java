@@ -0,0 +1,10 @@
+package ma.xproce.gestion_depenses_projet.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * One expense read from an import file. {@code line} is the line where the record starts.
+ */
+public record ExpenseRecord(long line, LocalDate date, BigDecimal amount, String categoryName, String description) {
+}
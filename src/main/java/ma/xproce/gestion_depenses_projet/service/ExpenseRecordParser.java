@@ -0,0 +1,29 @@
+package ma.xproce.gestion_depenses_projet.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+
+/**
+ * Reads expenses from one import file format. Implementations read line by line and hand each
+ * record or malformed row to the sink as they go, so a file is never held in memory.
+ * <p>
+ * All formats follow one sign rule: a record is money leaving the account and is handed over
+ * with a positive amount, whatever sign the format gives debits. Money coming in (credits,
+ * refunds, deposits) is never an expense; it is passed to {@link Sink#skip} with its line rather
+ * than rejected, so it neither fails the import nor disappears silently.
+ */
+public interface ExpenseRecordParser {
+
+    boolean supports(String filename);
+
+    void parse(BufferedReader reader, Sink sink) throws IOException;
+
+    interface Sink {
+
+        void record(ExpenseRecord record);
+
+        void error(long line, String message);
+
+        void skip(long line, String reason);
+    }
+}
@@ -0,0 +1,49 @@
+package ma.xproce.gestion_depenses_projet.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.function.Supplier;
+
+/**
+ * In-process cache of monthly rollup totals, split into independently locked LRU stripes so
+ * concurrent lookups for different users rarely wait on each other.
+ */
+@Component
+public class ExpenseRollupCache {
+
+    public record Key(Long userId, Long categoryId, YearMonth month) {
+    }
+
+    private final LruCache<Key, BigDecimal>[] stripes;
+
+    @SuppressWarnings("unchecked")
+    public ExpenseRollupCache(@Value("${expenses.rollups.cache-stripes:16}") int stripeCount,
+                             @Value("${expenses.rollups.cache-max-entries:10000}") int maxEntries) {
+        int perStripe = Math.max(1, maxEntries / stripeCount);
+        this.stripes = new LruCache[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new LruCache<>(perStripe);
+        }
+    }
+
+    public BigDecimal get(Key key, Supplier<BigDecimal> loader) {
+        return stripe(key).get(key, loader);
+    }
+
+    public void evict(Key key) {
+        stripe(key).evict(key);
+    }
+
+    public void clear() {
+        for (LruCache<Key, BigDecimal> stripe : stripes) {
+            stripe.clear();
+        }
+    }
+
+    private LruCache<Key, BigDecimal> stripe(Key key) {
+        return stripes[Math.floorMod(key.hashCode(), stripes.length)];
+    }
+}
@@ -0,0 +1,40 @@
+package ma.xproce.gestion_depenses_projet.service;
+
+import lombok.RequiredArgsConstructor;
+import ma.xproce.gestion_depenses_projet.dao.repositories.ExpenseRepository;
+import ma.xproce.gestion_depenses_projet.dao.repositories.ExpenseRollupJdbcRepository;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Fills the monthly rollups and latest spending months from the recorded expenses when either
+ * table is still empty, or on demand when the application is started with
+ * {@code --rebuild-expense-rollups}. Runs once every startup runner, including the demo data
+ * seeding, has finished, and before the other ready listeners that read the rollups.
+ */
+@Component
+@RequiredArgsConstructor
+public class ExpenseRollupInitializer {
+
+    static final int READY_ORDER = 0;
+
+    private static final String REBUILD_OPTION = "rebuild-expense-rollups";
+
+    private final ExpenseRollupService expenseRollupService;
+    private final ExpenseRollupJdbcRepository expenseRollupJdbcRepository;
+    private final ExpenseRepository expenseRepository;
+    private final ApplicationArguments applicationArguments;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(READY_ORDER)
+    public void initialize() {
+        boolean requested = applicationArguments.containsOption(REBUILD_OPTION);
+        boolean missing = expenseRollupJdbcRepository.isEmpty() || expenseRollupJdbcRepository.isLatestMonthEmpty();
+        if (requested || (missing && expenseRepository.count() > 0)) {
+            expenseRollupService.rebuild();
+        }
+    }
+}
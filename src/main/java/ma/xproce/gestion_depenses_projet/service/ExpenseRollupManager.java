@@ -0,0 +1,216 @@
+package ma.xproce.gestion_depenses_projet.service;
+
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import ma.xproce.gestion_depenses_projet.dao.entities.Category;
+import ma.xproce.gestion_depenses_projet.dao.entities.User;
+import ma.xproce.gestion_depenses_projet.dao.repositories.ExpenseRollupJdbcRepository;
+import ma.xproce.gestion_depenses_projet.dao.repositories.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Maintains the (user, category, month) expense rollups: total, count, min and max, along with
+ * each user's latest month with spending. Rollups are updated in the transaction that changes
+ * the expenses, and cached totals are dropped once it commits. A rebuild recomputes them from the
+ * raw expenses, one user id range per worker; each range locks its users, so writes for them wait
+ * until that range is committed.
+ */
+@Slf4j
+@Service
+public class ExpenseRollupManager implements ExpenseRollupService {
+
+    /**
+     * Order of the rollup update among the {@link ExpenseChangedEvent} listeners; listeners that
+     * read the rollups in the writing transaction run after it.
+     */
+    static final int LISTENER_ORDER = 0;
+
+    private final ExpenseRollupJdbcRepository expenseRollupJdbcRepository;
+    private final ExpenseRollupCache expenseRollupCache;
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManager entityManager;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int rebuildWorkers;
+    private final int rebuildPartitionSize;
+
+    public ExpenseRollupManager(ExpenseRollupJdbcRepository expenseRollupJdbcRepository,
+                                ExpenseRollupCache expenseRollupCache,
+                                UserRepository userRepository,
+                                TransactionTemplate transactionTemplate,
+                                EntityManager entityManager,
+                                ApplicationEventPublisher eventPublisher,
+                                @Value("${expenses.rollups.rebuild-workers:4}") int rebuildWorkers,
+                                @Value("${expenses.rollups.rebuild-partition-size:1000}") int rebuildPartitionSize) {
+        this.expenseRollupJdbcRepository = expenseRollupJdbcRepository;
+        this.expenseRollupCache = expenseRollupCache;
+        this.userRepository = userRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.entityManager = entityManager;
+        this.eventPublisher = eventPublisher;
+        this.rebuildWorkers = rebuildWorkers;
+        this.rebuildPartitionSize = rebuildPartitionSize;
+    }
+
+    @Override
+    public BigDecimal getMonthTotal(User user, Category category, YearMonth month) {
+        return expenseRollupCache.get(new ExpenseRollupCache.Key(user.getId(), category.getId(), month),
+                () -> expenseRollupJdbcRepository.findTotal(user.getId(), category.getId(), month));
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public BigDecimal lockMonthTotal(User user, Category category, YearMonth month) {
+        expenseRollupJdbcRepository.lockUserShared(user.getId());
+        return expenseRollupJdbcRepository.lockTotal(user.getId(), category.getId(), month);
+    }
+
+    @Override
+    public int rebuild() {
+        Object[] bounds = userRepository.findIdBounds().get(0);
+        if (((Number) bounds[2]).longValue() == 0) {
+            return 0;
+        }
+        long minId = ((Number) bounds[0]).longValue();
+        long maxId = ((Number) bounds[1]).longValue();
+
+        long started = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(rebuildWorkers);
+        try {
+            List<CompletableFuture<Integer>> partitions = new ArrayList<>();
+            for (long from = minId; from <= maxId; from += rebuildPartitionSize) {
+                long to = Math.min(from + rebuildPartitionSize - 1, maxId);
+                partitions.add(CompletableFuture.supplyAsync(() -> transactionTemplate.execute(
+                        status -> expenseRollupJdbcRepository.rebuild(from, to)), executor));
+            }
+            int rollups = partitions.stream().mapToInt(CompletableFuture::join).sum();
+            expenseRollupCache.clear();
+            log.info("{} agrégats mensuels reconstruits en {} ms", rollups, (System.nanoTime() - started) / 1_000_000);
+            eventPublisher.publishEvent(new ExpenseRollupsRebuiltEvent(rollups));
+            return rollups;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Override
+    public Optional<YearMonth> getLatestActiveMonth(User user) {
+        return expenseRollupJdbcRepository.findLatestMonth(user.getId());
+    }
+
+    @EventListener
+    @Order(LISTENER_ORDER)
+    public void onExpenseChanged(ExpenseChangedEvent event) {
+        Map<ExpenseRollupCache.Key, Delta> deltas = deltas(event);
+        if (deltas.isEmpty()) {
+            return;
+        }
+        expenseRollupJdbcRepository.lockUserShared(event.user().getId());
+        boolean flushed = false;
+        YearMonth latestAdded = null;
+        Set<YearMonth> removedMonths = new HashSet<>();
+        for (Map.Entry<ExpenseRollupCache.Key, Delta> entry : deltas.entrySet()) {
+            ExpenseRollupCache.Key key = entry.getKey();
+            Delta delta = entry.getValue();
+            expenseRollupJdbcRepository.add(key.userId(), key.categoryId(), key.month(),
+                    delta.total, delta.count, delta.addedMin, delta.addedMax);
+            if (delta.addedMax != null && delta.addedMax.signum() > 0
+                    && (latestAdded == null || key.month().isAfter(latestAdded))) {
+                latestAdded = key.month();
+            }
+            if (delta.removedMin != null) {
+                if (!flushed) {
+                    entityManager.flush();
+                    flushed = true;
+                }
+                expenseRollupJdbcRepository.refreshBounds(key.userId(), key.categoryId(), key.month(),
+                        delta.removedMin, delta.removedMax);
+                removedMonths.add(key.month());
+            }
+        }
+
+        Long userId = event.user().getId();
+        if (latestAdded != null) {
+            expenseRollupJdbcRepository.raiseLatestMonth(userId, latestAdded);
+        }
+        if (!removedMonths.isEmpty()) {
+            expenseRollupJdbcRepository.refreshLatestMonth(userId, removedMonths);
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void evictChangedRollups(ExpenseChangedEvent event) {
+        deltas(event).keySet().forEach(expenseRollupCache::evict);
+    }
+
+    private static Map<ExpenseRollupCache.Key, Delta> deltas(ExpenseChangedEvent event) {
+        Map<ExpenseRollupCache.Key, Delta> deltas = new LinkedHashMap<>();
+        for (ExpenseChangedEvent.Change change : event.changes()) {
+            addDelta(deltas, event.user(), change.before(), true);
+            addDelta(deltas, event.user(), change.after(), false);
+        }
+        return deltas;
+    }
+
+    private static void addDelta(Map<ExpenseRollupCache.Key, Delta> deltas, User user,
+                                 ExpenseChangedEvent.Snapshot snapshot, boolean removed) {
+        if (snapshot == null || snapshot.categoryId() == null
+                || snapshot.date() == null || snapshot.amount() == null) {
+            return;
+        }
+        ExpenseRollupCache.Key key = new ExpenseRollupCache.Key(
+                user.getId(), snapshot.categoryId(), YearMonth.from(snapshot.date()));
+        Delta delta = deltas.computeIfAbsent(key, k -> new Delta());
+        if (removed) {
+            delta.remove(snapshot.amount());
+        } else {
+            delta.add(snapshot.amount());
+        }
+    }
+
+    private static final class Delta {
+
+        private BigDecimal total = BigDecimal.ZERO;
+        private long count;
+        private BigDecimal addedMin;
+        private BigDecimal addedMax;
+        private BigDecimal removedMin;
+        private BigDecimal removedMax;
+
+        void add(BigDecimal amount) {
+            total = total.add(amount);
+            count++;
+            addedMin = addedMin == null ? amount : addedMin.min(amount);
+            addedMax = addedMax == null ? amount : addedMax.max(amount);
+        }
+
+        void remove(BigDecimal amount) {
+            total = total.subtract(amount);
+            count--;
+            removedMin = removedMin == null ? amount : removedMin.min(amount);
+            removedMax = removedMax == null ? amount : removedMax.max(amount);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package ma.xproce.gestion_depenses_projet.service;
+
+import ma.xproce.gestion_depenses_projet.dao.entities.Category;
+import ma.xproce.gestion_depenses_projet.dao.entities.User;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.Optional;
+
+public interface ExpenseRollupService {
+
+    BigDecimal getMonthTotal(User user, Category category, YearMonth month);
+
+    BigDecimal lockMonthTotal(User user, Category category, YearMonth month);
+
+    Optional<YearMonth> getLatestActiveMonth(User user);
+
+    int rebuild();
+}
@@ -0,0 +1,8 @@
+package ma.xproce.gestion_depenses_projet.service;
+
+/**
+ * Published once the expense rollups and latest spending months have been recomputed from the
+ * raw expenses, so that anything derived from them can be refreshed.
+ */
+public record ExpenseRollupsRebuiltEvent(int rollups) {
+}
@@ -3,8 +3,10 @@ package ma.xproce.gestion_depenses_projet.service;
 import ma.xproce.gestion_depenses_projet.dao.entities.Category;
 import ma.xproce.gestion_depenses_projet.dao.entities.Expense;
 import ma.xproce.gestion_depenses_projet.dao.entities.User;
+import ma.xproce.gestion_depenses_projet.dao.repositories.CategoryTotal;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -15,6 +17,7 @@ import java.util.Optional;
 public interface ExpenseService {
 
     Expense addExpense(User user, Expense expense);
+    ExpenseAddResult addExpenseWithinBudget(User user, Expense expense, boolean allowOverBudget);
     Expense updateExpense(Long id, Expense expense);
     List<Expense> getExpensesByUser(User user);
     List<Expense> getExpensesByCategory(User user, Category category);
@@ -25,7 +28,15 @@ public interface ExpenseService {
     Page<Expense> getExpensesByUser(User user, Pageable pageable);
     Page<Expense> searchExpenses(User user, Category category, LocalDate startDate,
                                  LocalDate endDate, Pageable pageable);
+    ExpenseSlice scrollExpenses(User user, Category category, LocalDate startDate, LocalDate endDate,
+                                String sortBy, Sort.Direction direction, String cursor, int size,
+                                boolean includeTotal);
     BigDecimal getTotalSpentByMonthAndCategory(User user, Category category, YearMonth month);
+    /**
+     * Categories with the highest spend in {@code [startDate, endDate)}, for one user or for all
+     * users when {@code user} is null. Whole-month ranges are read from the monthly rollups.
+     */
+    List<CategoryTotal> getTopCategories(User user, LocalDate startDate, LocalDate endDate, int limit);
     Optional<MostSpentCategory> getTopSpendingCategoryForCurrentMonth();
     
 
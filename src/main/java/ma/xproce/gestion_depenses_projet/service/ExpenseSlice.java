@@ -0,0 +1,13 @@
+package ma.xproce.gestion_depenses_projet.service;
+
+import ma.xproce.gestion_depenses_projet.dao.repositories.ExpenseRow;
+
+import java.util.List;
+
+/**
+ * One page of a keyset scroll over expenses. {@code nextCursor} is null on the last page and
+ * {@code totalElements} is null unless the total was requested.
+ */
+public record ExpenseSlice(List<ExpenseRow> content, int size, boolean hasNext, String nextCursor,
+                           Long totalElements) {
+}
@@ -0,0 +1,50 @@
+package ma.xproce.gestion_depenses_projet.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ma.xproce.gestion_depenses_projet.dao.entities.IdGenerators;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Moves the {@code id_generator} rows of the pooled entities past the ids already present in
+ * their tables, which were filled by auto-increment before the switch to table generation. The
+ * pooled optimizer hands out the block ending at the stored value, so the row is set to the
+ * current maximum plus one full block. Runs once the schema is up to date and before the web
+ * server, the scheduled jobs and the startup runners can insert anything.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class IdGeneratorSeeder implements SmartInitializingSingleton {
+
+    private static final Map<String, String> TABLES = Map.of(
+            "expense", "expense",
+            "budget", "budget",
+            "report", "reports");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        TABLES.forEach((entity, table) -> {
+            Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table, Long.class);
+            if (maxId == null || maxId == 0) {
+                return;
+            }
+
+            long next = maxId + IdGenerators.ALLOCATION_SIZE;
+            int updated = jdbcTemplate.update(
+                    "INSERT INTO " + IdGenerators.TABLE + " (" + IdGenerators.ENTITY_COLUMN + ", " +
+                            IdGenerators.NEXT_ID_COLUMN + ") VALUES (?, ?) ON DUPLICATE KEY UPDATE " +
+                            IdGenerators.NEXT_ID_COLUMN + " = GREATEST(" + IdGenerators.NEXT_ID_COLUMN + ", ?)",
+                    entity, next, next);
+            if (updated > 0) {
+                log.info("Générateur d'identifiants {} positionné après l'id {}", entity, maxId);
+            }
+        });
+    }
+}
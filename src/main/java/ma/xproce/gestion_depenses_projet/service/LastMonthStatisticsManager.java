@@ -1,18 +1,22 @@
 package ma.xproce.gestion_depenses_projet.service;
 
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import ma.xproce.gestion_depenses_projet.dao.entities.User;
 import ma.xproce.gestion_depenses_projet.dao.repositories.ExpenseRepository;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.time.YearMonth;
 import java.util.*;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class LastMonthStatisticsManager implements LastMonthStatisticsService {
 
     private final ExpenseRepository expenseRepository;
+    private final ExpenseRollupService expenseRollupService;
 
     private BigDecimal toBig(Object o) {
         if (o instanceof BigDecimal bd) return bd;
@@ -23,36 +27,17 @@ public class LastMonthStatisticsManager implements LastMonthStatisticsService {
     @Override
     public Optional<Map<String, Object>> getLastValidMonth(User user) {
 
-        System.out.println("=== getLastValidMonth CALLED ===");
-
-        List<Object[]> monthlyTotals = expenseRepository.getAllMonthlyTotals(user);
-
-        if (monthlyTotals == null || monthlyTotals.isEmpty()) {
-            System.out.println("NO MONTHLY TOTALS");
+        Optional<YearMonth> latestMonth = expenseRollupService.getLatestActiveMonth(user);
+        if (latestMonth.isEmpty()) {
+            log.debug("Aucun mois avec des dépenses pour l'utilisateur {}", user.getId());
             return Optional.empty();
         }
 
-        monthlyTotals.forEach(r -> System.out.println("MONTH: " + Arrays.toString(r)));
-
-        Integer lastYear = null;
-        Integer lastMonth = null;
-
-        for (Object[] row : monthlyTotals) {
-            int year = ((Number) row[0]).intValue();
-            int month = ((Number) row[1]).intValue();
-            BigDecimal total = toBig(row[2]);
-
-            if (total.compareTo(BigDecimal.ZERO) > 0) {
-                lastYear = year;
-                lastMonth = month;
-                break;
-            }
-        }
-
-        if (lastYear == null || lastMonth == null) return Optional.empty();
-
-        List<Object[]> daily = expenseRepository.getDailyExpenses(user, lastYear, lastMonth);
-        daily.forEach(r -> System.out.println("DAY: " + Arrays.toString(r)));
+        YearMonth lastActiveMonth = latestMonth.get();
+        List<Object[]> daily = expenseRepository.getDailyExpenses(
+                user, lastActiveMonth.atDay(1), lastActiveMonth.plusMonths(1).atDay(1));
+        log.debug("Dernier mois actif {} pour l'utilisateur {} : {} jours avec des dépenses",
+                lastActiveMonth, user.getId(), daily.size());
 
         List<String> labels = new ArrayList<>();
         List<Double> values = new ArrayList<>();
@@ -63,12 +48,11 @@ public class LastMonthStatisticsManager implements LastMonthStatisticsService {
         }
 
         Map<String, Object> result = new HashMap<>();
-        result.put("year", lastYear);
-        result.put("month", lastMonth);
+        result.put("year", lastActiveMonth.getYear());
+        result.put("month", lastActiveMonth.getMonthValue());
         result.put("labels", labels);
         result.put("values", values);
 
         return Optional.of(result);
     }
 }
-
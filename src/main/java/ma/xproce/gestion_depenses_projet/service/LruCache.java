@@ -0,0 +1,71 @@
+package ma.xproce.gestion_depenses_projet.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Bounded least recently used map shared by the in-process caches. Values are loaded outside the
+ * lock; a value loaded while any entry was evicted is returned but not kept, since it may predate
+ * the change the eviction stands for.
+ */
+final class LruCache<K, V> {
+
+    private final Map<K, V> entries;
+    private long evictions;
+
+    LruCache(int maxEntries) {
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    synchronized V getIfPresent(K key) {
+        return entries.get(key);
+    }
+
+    V get(K key, Supplier<V> loader) {
+        return get(key, value -> true, loader);
+    }
+
+    /**
+     * Returns the cached value when {@code valid} accepts it, otherwise loads, caches and returns
+     * a fresh one.
+     */
+    V get(K key, Predicate<V> valid, Supplier<V> loader) {
+        long evictionsBefore;
+        synchronized (this) {
+            V cached = entries.get(key);
+            if (cached != null && valid.test(cached)) {
+                return cached;
+            }
+            evictionsBefore = evictions;
+        }
+        V value = loader.get();
+        synchronized (this) {
+            if (value != null && evictions == evictionsBefore) {
+                entries.put(key, value);
+            }
+        }
+        return value;
+    }
+
+    synchronized void evict(K key) {
+        entries.remove(key);
+        evictions++;
+    }
+
+    synchronized void evictIf(Predicate<K> filter) {
+        entries.keySet().removeIf(filter);
+        evictions++;
+    }
+
+    synchronized void clear() {
+        entries.clear();
+        evictions++;
+    }
+}
@@ -0,0 +1,300 @@
+package ma.xproce.gestion_depenses_projet.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import ma.xproce.gestion_depenses_projet.dao.entities.ReportBatchPartition;
+import ma.xproce.gestion_depenses_projet.dao.entities.ReportBatchRun;
+import ma.xproce.gestion_depenses_projet.dao.repositories.ReportBatchPartitionRepository;
+import ma.xproce.gestion_depenses_projet.dao.repositories.ReportBatchRunRepository;
+import ma.xproce.gestion_depenses_projet.dao.repositories.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates last month's monthly report for every user once a month. Users are split into id
+ * ranges that a fixed pool of workers processes in parallel, one transaction per user. Each
+ * partition checkpoints the last user it handled, so a run interrupted by a restart picks up
+ * where it stopped; generation itself is idempotent, so users after the last checkpoint are
+ * simply seen again. Runs are queued and processed one month at a time, so several runs left
+ * unfinished by a restart are all resumed in turn. Partitions with users that failed are replayed
+ * from their first user, since a report that already exists is returned as is; a run that still
+ * has failures after {@value #MAX_ATTEMPTS} attempts stays {@code RUNNING} and is resumed by the
+ * next scheduled batch or restart.
+ */
+@Slf4j
+@Service
+public class MonthlyReportBatch {
+
+    static final int MAX_ATTEMPTS = 3;
+
+    private final UserRepository userRepository;
+    private final ReportBatchRunRepository runRepository;
+    private final ReportBatchPartitionRepository partitionRepository;
+    private final ReportService reportService;
+    private final TransactionTemplate transactionTemplate;
+    private final int partitionSize;
+    private final int chunkSize;
+    private final ThreadPoolExecutor executor;
+
+    private final NavigableSet<YearMonth> pendingMonths = new ConcurrentSkipListSet<>();
+    private final Map<YearMonth, Integer> attempts = new ConcurrentHashMap<>();
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong runProcessed = new AtomicLong();
+    private volatile long runStartedNanos;
+    private volatile long runFinishedNanos;
+    private final Counter generatedCounter;
+    private final Counter failedCounter;
+
+    public MonthlyReportBatch(UserRepository userRepository,
+                              ReportBatchRunRepository runRepository,
+                              ReportBatchPartitionRepository partitionRepository,
+                              ReportService reportService,
+                              TransactionTemplate transactionTemplate,
+                              MeterRegistry meterRegistry,
+                              @Value("${reports.batch.workers:4}") int workers,
+                              @Value("${reports.batch.partition-size:500}") int partitionSize,
+                              @Value("${reports.batch.chunk-size:50}") int chunkSize) {
+        this.userRepository = userRepository;
+        this.runRepository = runRepository;
+        this.partitionRepository = partitionRepository;
+        this.reportService = reportService;
+        this.transactionTemplate = transactionTemplate;
+        this.partitionSize = partitionSize;
+        this.chunkSize = chunkSize;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "report-batch-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        this.generatedCounter = Counter.builder("reports.batch.users")
+                .tag("outcome", "generated")
+                .register(meterRegistry);
+        this.failedCounter = Counter.builder("reports.batch.users")
+                .tag("outcome", "failed")
+                .register(meterRegistry);
+        Gauge.builder("reports.batch.throughput", this, MonthlyReportBatch::throughput)
+                .description("Utilisateurs traités par seconde lors du dernier lot mensuel")
+                .baseUnit("users/s")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(cron = "${reports.batch.cron:0 30 1 1 * *}")
+    public void generatePreviousMonth() {
+        resumeInterruptedRuns();
+        start(YearMonth.now().minusMonths(1));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterruptedRuns() {
+        runRepository.findByStatus(ReportBatchRun.Status.RUNNING).stream()
+                .map(ReportBatchRun::getMonth)
+                .sorted()
+                .forEach(month -> {
+                    log.info("Reprise du lot de rapports mensuels {}", month);
+                    attempts.remove(month);
+                    start(month);
+                });
+    }
+
+    /**
+     * Queues the run for {@code month}, creating or resuming it, and starts it in the background.
+     * Runs go one at a time: when another run is in progress, this one starts once the runs queued
+     * before it have finished, oldest month first. A month that is already queued is queued once,
+     * and a month that has already been generated is skipped.
+     */
+    public void start(YearMonth month) {
+        pendingMonths.add(month);
+        startNextPending();
+    }
+
+    private void startNextPending() {
+        while (!pendingMonths.isEmpty() && running.compareAndSet(false, true)) {
+            YearMonth month = pendingMonths.pollFirst();
+            boolean launched = false;
+            try {
+                launched = month != null && launch(month);
+            } catch (RuntimeException e) {
+                log.error("Impossible de lancer le lot de rapports mensuels {}", month, e);
+            } finally {
+                if (!launched) {
+                    running.set(false);
+                }
+            }
+            if (launched) {
+                return;
+            }
+        }
+    }
+
+    private boolean launch(YearMonth month) {
+        ReportBatchRun run = transactionTemplate.execute(status ->
+                runRepository.findByMonth(month).orElseGet(() -> createRun(month)));
+        if (run.getStatus() == ReportBatchRun.Status.DONE) {
+            return false;
+        }
+
+        List<ReportBatchPartition> partitions = partitionRepository.findPending(run.getId());
+        runProcessed.set(0);
+        runStartedNanos = System.nanoTime();
+        runFinishedNanos = 0;
+
+        List<CompletableFuture<Void>> tasks = new ArrayList<>();
+        for (ReportBatchPartition partition : partitions) {
+            tasks.add(CompletableFuture.runAsync(() -> processPartition(partition, month), executor));
+        }
+        CompletableFuture.allOf(tasks.toArray(CompletableFuture[]::new))
+                .whenComplete((ignored, error) -> finish(run.getId(), month, error));
+        return true;
+    }
+
+    private ReportBatchRun createRun(YearMonth month) {
+        Object[] bounds = userRepository.findIdBounds().get(0);
+        long totalUsers = ((Number) bounds[2]).longValue();
+
+        ReportBatchRun run = runRepository.save(ReportBatchRun.builder()
+                .month(month)
+                .status(ReportBatchRun.Status.RUNNING)
+                .totalUsers(totalUsers)
+                .startedAt(LocalDateTime.now())
+                .build());
+
+        if (totalUsers > 0) {
+            long minId = ((Number) bounds[0]).longValue();
+            long maxId = ((Number) bounds[1]).longValue();
+            List<ReportBatchPartition> partitions = new ArrayList<>();
+            for (long from = minId; from <= maxId; from += partitionSize) {
+                partitions.add(ReportBatchPartition.builder()
+                        .run(run)
+                        .fromUserId(from)
+                        .toUserId(Math.min(from + partitionSize - 1, maxId))
+                        .lastUserId(from - 1)
+                        .build());
+            }
+            partitionRepository.saveAll(partitions);
+        }
+        log.info("Lot de rapports mensuels {} créé pour {} utilisateurs", month, totalUsers);
+        return run;
+    }
+
+    private void processPartition(ReportBatchPartition partition, YearMonth month) {
+        while (!partition.isDone()) {
+            List<Long> userIds = userRepository.findIdsAfter(
+                    partition.getLastUserId(), partition.getToUserId(), PageRequest.of(0, chunkSize));
+
+            int processed = 0;
+            int failed = 0;
+            for (Long userId : userIds) {
+                try {
+                    reportService.generateMonthlyReport(
+                            userRepository.getReferenceById(userId), month.getYear(), month.getMonthValue());
+                    processed++;
+                    generatedCounter.increment();
+                } catch (RuntimeException e) {
+                    failed++;
+                    failedCounter.increment();
+                    log.warn("Échec du rapport mensuel {} pour l'utilisateur {}", month, userId, e);
+                }
+                runProcessed.incrementAndGet();
+            }
+
+            if (!userIds.isEmpty()) {
+                partition.setLastUserId(userIds.get(userIds.size() - 1));
+            }
+            partition.setProcessedUsers(partition.getProcessedUsers() + processed);
+            partition.setFailedUsers(partition.getFailedUsers() + failed);
+            partition.setDone(userIds.size() < chunkSize);
+            ReportBatchPartition checkpoint = partition;
+            partition = transactionTemplate.execute(status -> partitionRepository.save(checkpoint));
+        }
+        log.info("Partition {}-{} du lot {} terminée ({} utilisateurs/s)",
+                partition.getFromUserId(), partition.getToUserId(), month, String.format("%.1f", throughput()));
+    }
+
+    private void finish(Long runId, YearMonth month, Throwable error) {
+        boolean retry = false;
+        try {
+            runFinishedNanos = System.nanoTime();
+            if (error != null) {
+                log.error("Lot de rapports mensuels {} interrompu", month, error);
+            }
+            Object[] progress = partitionRepository.sumProgress(runId).get(0);
+
+            Boolean done = transactionTemplate.execute(status -> {
+                partitionRepository.replayFailed(runId);
+                if (partitionRepository.countPending(runId) > 0) {
+                    return false;
+                }
+                ReportBatchRun current = runRepository.findById(runId).orElseThrow();
+                current.setStatus(ReportBatchRun.Status.DONE);
+                current.setFinishedAt(LocalDateTime.now());
+                return true;
+            });
+
+            if (Boolean.TRUE.equals(done)) {
+                attempts.remove(month);
+                log.info("Lot de rapports mensuels {} terminé : {} générés, {} utilisateurs/s",
+                        month, progress[0], String.format("%.1f", throughput()));
+            } else if (attempts.merge(month, 1, Integer::sum) < MAX_ATTEMPTS) {
+                retry = true;
+                log.warn("Lot de rapports mensuels {} incomplet ({} échecs), nouvelle tentative", month, progress[1]);
+            } else {
+                attempts.remove(month);
+                log.error("Lot de rapports mensuels {} incomplet après {} tentatives ({} échecs), " +
+                        "il sera repris au prochain lot ou au prochain démarrage", month, MAX_ATTEMPTS, progress[1]);
+            }
+        } catch (RuntimeException e) {
+            log.error("Impossible de clore le lot de rapports mensuels {}, il sera repris au prochain démarrage",
+                    month, e);
+        } finally {
+            if (retry) {
+                pendingMonths.add(month);
+            }
+            running.set(false);
+            startNextPending();
+        }
+    }
+
+    private double throughput() {
+        long started = runStartedNanos;
+        if (started == 0) {
+            return 0.0;
+        }
+        long end = runFinishedNanos != 0 ? runFinishedNanos : System.nanoTime();
+        double seconds = (end - started) / 1_000_000_000.0;
+        return seconds > 0 ? runProcessed.get() / seconds : 0.0;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
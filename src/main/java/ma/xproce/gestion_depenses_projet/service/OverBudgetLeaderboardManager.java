@@ -0,0 +1,132 @@
+package ma.xproce.gestion_depenses_projet.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ma.xproce.gestion_depenses_projet.dao.repositories.OverBudgetEntryRepository;
+import ma.xproce.gestion_depenses_projet.dao.repositories.OverBudgetJdbcRepository;
+import ma.xproce.gestion_depenses_projet.dao.repositories.OverBudgetLine;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.LinkedHashSet;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Maintains the over-budget leaderboard table, so ranking a month is an index range scan whatever
+ * the number of users. The lines touched by an expense or budget change are recomputed in their
+ * own transaction once the change has committed, so writes neither wait on nor lock the
+ * leaderboard. A nightly reconciliation recomputes the current and previous months from the
+ * budgets and rollups, which also repairs a refresh that failed after a commit.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OverBudgetLeaderboardManager implements OverBudgetLeaderboardService {
+
+    private final OverBudgetEntryRepository overBudgetEntryRepository;
+    private final OverBudgetJdbcRepository overBudgetJdbcRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Override
+    public Page<OverBudgetRank> getLeaderboard(YearMonth month, String username, String categoryName,
+                                               BigDecimal minOverage, Pageable pageable) {
+        Page<OverBudgetLine> lines = overBudgetEntryRepository.findLeaderboard(
+                month, blankToNull(username), blankToNull(categoryName), minOverage, pageable);
+        long offset = pageable.isPaged() ? pageable.getOffset() : 0;
+        int[] index = {0};
+        return lines.map(line -> OverBudgetRank.of(offset + ++index[0], line));
+    }
+
+    @Override
+    public Optional<OverBudgetRank> getTopForCurrentOrPreviousMonth() {
+        YearMonth current = YearMonth.now();
+        Optional<OverBudgetRank> top = getTop(current);
+        return top.isPresent() ? top : getTop(current.minusMonths(1));
+    }
+
+    private Optional<OverBudgetRank> getTop(YearMonth month) {
+        return getLeaderboard(month, null, null, null, PageRequest.of(0, 1)).stream().findFirst();
+    }
+
+    @Override
+    public int reconcile(YearMonth month) {
+        Integer lines = transactionTemplate.execute(status -> overBudgetJdbcRepository.rebuildMonth(month));
+        log.info("Classement des dépassements de {} recalculé : {} lignes", month, lines);
+        return lines != null ? lines : 0;
+    }
+
+    @Scheduled(cron = "${budgets.leaderboard.reconcile-cron:0 15 3 * * *}")
+    public void reconcileRecentMonths() {
+        YearMonth current = YearMonth.now();
+        reconcile(current.minusMonths(1));
+        reconcile(current);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(ExpenseRollupInitializer.READY_ORDER + 1)
+    public void initialize() {
+        if (overBudgetJdbcRepository.isEmpty()) {
+            rebuildAll();
+        }
+    }
+
+    @EventListener
+    public void onRollupsRebuilt(ExpenseRollupsRebuiltEvent event) {
+        rebuildAll();
+    }
+
+    private void rebuildAll() {
+        Integer lines = transactionTemplate.execute(status -> overBudgetJdbcRepository.rebuildAll());
+        log.info("Classement des dépassements recalculé : {} lignes", lines);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onExpenseChanged(ExpenseChangedEvent event) {
+        Set<Key> keys = new LinkedHashSet<>();
+        for (ExpenseChangedEvent.Change change : event.changes()) {
+            addKey(keys, event.user().getId(), change.before());
+            addKey(keys, event.user().getId(), change.after());
+        }
+        keys.forEach(key -> overBudgetJdbcRepository.refresh(key.userId(), key.categoryId(), key.month()));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onBudgetChanged(BudgetChangedEvent event) {
+        Set<Key> keys = new LinkedHashSet<>();
+        for (BudgetChangedEvent.Snapshot snapshot : new BudgetChangedEvent.Snapshot[]{event.before(), event.after()}) {
+            if (snapshot != null && snapshot.categoryId() != null && snapshot.month() != null) {
+                keys.add(new Key(event.user().getId(), snapshot.categoryId(), snapshot.month()));
+            }
+        }
+        keys.forEach(key -> overBudgetJdbcRepository.refresh(key.userId(), key.categoryId(), key.month()));
+    }
+
+    private static void addKey(Set<Key> keys, Long userId, ExpenseChangedEvent.Snapshot snapshot) {
+        if (snapshot != null && snapshot.categoryId() != null && snapshot.date() != null) {
+            keys.add(new Key(userId, snapshot.categoryId(), YearMonth.from(snapshot.date())));
+        }
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    private record Key(Long userId, Long categoryId, YearMonth month) {
+    }
+}
@@ -0,0 +1,17 @@
+package ma.xproce.gestion_depenses_projet.service;
+
+import org.springframework.data.domain.Page;
+
+import java.util.List;
+
+/**
+ * One page of the over-budget leaderboard as served by the admin JSON endpoint.
+ */
+public record OverBudgetLeaderboardPage(List<OverBudgetRank> content, int page, int size,
+                                        long totalElements, int totalPages) {
+
+    public static OverBudgetLeaderboardPage of(Page<OverBudgetRank> page) {
+        return new OverBudgetLeaderboardPage(page.getContent(), page.getNumber(), page.getSize(),
+                page.getTotalElements(), page.getTotalPages());
+    }
+}
@@ -0,0 +1,22 @@
+package ma.xproce.gestion_depenses_projet.service;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.Optional;
+
+public interface OverBudgetLeaderboardService {
+
+    /**
+     * Over-budget lines of {@code month}, largest overage first. {@code username} and
+     * {@code categoryName} match substrings, ignoring case; null filters are ignored.
+     */
+    Page<OverBudgetRank> getLeaderboard(YearMonth month, String username, String categoryName,
+                                        BigDecimal minOverage, Pageable pageable);
+
+    Optional<OverBudgetRank> getTopForCurrentOrPreviousMonth();
+
+    int reconcile(YearMonth month);
+}
@@ -0,0 +1,19 @@
+package ma.xproce.gestion_depenses_projet.service;
+
+import ma.xproce.gestion_depenses_projet.dao.repositories.OverBudgetLine;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+
+/**
+ * One line of the over-budget leaderboard. {@code rank} starts at 1 and counts within the
+ * filtered list.
+ */
+public record OverBudgetRank(long rank, Long userId, String username, Long categoryId, String categoryName,
+                             YearMonth month, BigDecimal budgetAmount, BigDecimal spentAmount, BigDecimal overage) {
+
+    static OverBudgetRank of(long rank, OverBudgetLine line) {
+        return new OverBudgetRank(rank, line.userId(), line.username(), line.categoryId(), line.categoryName(),
+                line.month(), line.budgetAmount(), line.spentAmount(), line.overage());
+    }
+}
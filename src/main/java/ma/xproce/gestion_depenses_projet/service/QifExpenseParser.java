@@ -0,0 +1,106 @@
+package ma.xproce.gestion_depenses_projet.service;
+
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+
+/**
+ * Quicken interchange format: one field per line ({@code D} date, {@code T} amount, {@code L}
+ * category, {@code P} payee, {@code M} memo), each transaction closed by {@code ^}.
+ * Dates are read day first, as French banks export them. Amounts are signed account movements,
+ * so debits are negative and imported as positive expenses, while a positive amount is a credit,
+ * refund or deposit, which is skipped.
+ */
+@Component
+public class QifExpenseParser implements ExpenseRecordParser {
+
+    private static final DateTimeFormatter FULL_YEAR = DateTimeFormatter.ofPattern("d/M/yyyy");
+    private static final DateTimeFormatter SHORT_YEAR = DateTimeFormatter.ofPattern("d/M/yy");
+
+    @Override
+    public boolean supports(String filename) {
+        return filename != null && filename.toLowerCase(Locale.ROOT).endsWith(".qif");
+    }
+
+    @Override
+    public void parse(BufferedReader reader, Sink sink) throws IOException {
+        long lineNumber = 0;
+        long recordStart = 0;
+        String date = null;
+        String amount = null;
+        String category = null;
+        String payee = null;
+        String memo = null;
+
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank() || line.startsWith("!")) {
+                continue;
+            }
+            if (recordStart == 0) {
+                recordStart = lineNumber;
+            }
+
+            char code = line.charAt(0);
+            String value = line.substring(1).trim();
+            switch (code) {
+                case 'D' -> date = value;
+                case 'T', 'U' -> amount = value;
+                case 'L' -> category = value;
+                case 'P' -> payee = value;
+                case 'M' -> memo = value;
+                case '^' -> {
+                    emit(sink, recordStart, date, amount, category, payee != null ? payee : memo);
+                    recordStart = 0;
+                    date = amount = category = payee = memo = null;
+                }
+                default -> {
+                }
+            }
+        }
+        if (recordStart != 0) {
+            emit(sink, recordStart, date, amount, category, payee != null ? payee : memo);
+        }
+    }
+
+    private static void emit(Sink sink, long line, String date, String amount,
+                             String category, String description) {
+        LocalDate parsedDate = date != null ? parseDate(date) : null;
+        if (parsedDate == null) {
+            sink.error(line, "Date invalide : " + date);
+            return;
+        }
+        BigDecimal parsedAmount = amount != null ? CsvExpenseParser.parseAmount(amount) : null;
+        if (parsedAmount == null || parsedAmount.signum() == 0) {
+            sink.error(line, "Montant invalide : " + amount);
+            return;
+        }
+        if (parsedAmount.signum() > 0) {
+            sink.skip(line, "Crédit ou remboursement ignoré : " + amount);
+            return;
+        }
+        if (category == null || category.isBlank()) {
+            sink.error(line, "Catégorie manquante");
+            return;
+        }
+        String categoryName = category.startsWith("[") ? category : category.split(":")[0];
+        sink.record(new ExpenseRecord(line, parsedDate, parsedAmount.negate(), categoryName.trim(), description));
+    }
+
+    private static LocalDate parseDate(String value) {
+        String normalized = value.trim().replace('\'', '/').replace('-', '/').replace(" ", "");
+        String year = normalized.substring(normalized.lastIndexOf('/') + 1);
+        try {
+            return LocalDate.parse(normalized, year.length() == 4 ? FULL_YEAR : SHORT_YEAR);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
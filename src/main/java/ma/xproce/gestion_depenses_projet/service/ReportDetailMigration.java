@@ -0,0 +1,120 @@
+package ma.xproce.gestion_depenses_projet.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ma.xproce.gestion_depenses_projet.dao.entities.ReportCategoryLine;
+import ma.xproce.gestion_depenses_projet.dao.entities.ReportSeriesPoint;
+import ma.xproce.gestion_depenses_projet.dao.repositories.ReportDetailJdbcRepository;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Moves report details still stored in the legacy {@code category_details_json} and
+ * {@code time_series_json} columns into the detail tables, then clears those columns.
+ * Does nothing once the columns are gone or empty.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ReportDetailMigration implements ApplicationRunner {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ReportDetailJdbcRepository reportDetailJdbcRepository;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Override
+    public void run(ApplicationArguments args) {
+        Integer legacyColumns = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM information_schema.columns WHERE table_schema = DATABASE() " +
+                        "AND table_name = 'reports' AND column_name IN ('category_details_json', 'time_series_json')",
+                Integer.class);
+        if (legacyColumns == null || legacyColumns < 2) {
+            return;
+        }
+
+        List<Long> reportIds = jdbcTemplate.queryForList(
+                "SELECT id FROM reports WHERE category_details_json IS NOT NULL OR time_series_json IS NOT NULL",
+                Long.class);
+        int migrated = 0;
+        for (Long reportId : reportIds) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> migrate(reportId));
+                migrated++;
+            } catch (RuntimeException e) {
+                log.warn("Impossible de migrer les détails du rapport {}", reportId, e);
+            }
+        }
+        if (migrated > 0) {
+            log.info("{} rapports migrés vers les tables de détail", migrated);
+        }
+    }
+
+    private void migrate(Long reportId) {
+        Map<String, Object> row = jdbcTemplate.queryForMap(
+                "SELECT type, category_details_json, time_series_json FROM reports WHERE id = ?", reportId);
+        boolean annual = "ANNUAL".equals(row.get("type"));
+
+        List<ReportCategoryLine> lines = new ArrayList<>();
+        for (Map<String, Object> details : readList((String) row.get("category_details_json"))) {
+            lines.add(ReportCategoryLine.builder()
+                    .categoryName(String.valueOf(details.get("name")))
+                    .budget(toBigDecimal(details.get("budget")))
+                    .expenses(toBigDecimal(details.get("expenses")))
+                    .usagePercentage(toBigDecimal(details.get("usagePercentage")).doubleValue())
+                    .overBudgetAmount(toBigDecimal(details.get("overBudgetAmount")))
+                    .transactionCount(toBigDecimal(details.get("transactionCount")).intValue())
+                    .build());
+        }
+
+        List<ReportSeriesPoint> points = new ArrayList<>();
+        for (Map<String, Object> point : readList((String) row.get("time_series_json"))) {
+            String date = String.valueOf(point.get("date"));
+            points.add(ReportSeriesPoint.builder()
+                    .pointDate(annual ? YearMonth.parse(date).atDay(1) : LocalDate.parse(date))
+                    .periodExpenses(toBigDecimal(point.get(annual ? "monthExpenses" : "dayExpenses")))
+                    .periodBudget(toBigDecimal(point.get(annual ? "monthBudget" : "dayBudget")))
+                    .build());
+        }
+
+        reportDetailJdbcRepository.deleteDetails(reportId);
+        reportDetailJdbcRepository.insertCategoryLines(reportId, lines);
+        reportDetailJdbcRepository.insertSeriesPoints(reportId, points);
+        jdbcTemplate.update(
+                "UPDATE reports SET category_details_json = NULL, time_series_json = NULL WHERE id = ?", reportId);
+    }
+
+    private List<Map<String, Object>> readList(String json) {
+        if (json == null || json.isBlank()) {
+            return List.of();
+        }
+        try {
+            return objectMapper.readValue(json,
+                    objectMapper.getTypeFactory().constructCollectionType(List.class, Map.class));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Détails du rapport illisibles", e);
+        }
+    }
+
+    private static BigDecimal toBigDecimal(Object value) {
+        if (value == null) {
+            return BigDecimal.ZERO;
+        }
+        if (value instanceof BigDecimal bd) {
+            return bd;
+        }
+        return new BigDecimal(value.toString());
+    }
+}
@@ -0,0 +1,49 @@
+package ma.xproce.gestion_depenses_projet.service;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Read-only views of a report's detail rows, as served by the report data endpoints.
+ */
+public final class ReportDetails {
+
+    private ReportDetails() {
+    }
+
+    public record CategoryLine(String name,
+                               BigDecimal budget,
+                               BigDecimal expenses,
+                               double usagePercentage,
+                               BigDecimal overBudgetAmount,
+                               int transactionCount) {
+    }
+
+    /**
+     * {@code date} is the chart label: an ISO day, or {@code yyyy-MM} for annual reports.
+     * {@code expenses} and {@code budget} are running totals since the start of the report.
+     */
+    public record SeriesPoint(@JsonIgnore LocalDate pointDate,
+                              String date,
+                              BigDecimal expenses,
+                              BigDecimal budget,
+                              BigDecimal periodExpenses,
+                              BigDecimal periodBudget) {
+    }
+
+    public record Categories(List<CategoryLine> categories,
+                             BigDecimal totalBudget,
+                             BigDecimal totalExpenses,
+                             BigDecimal totalSavings,
+                             Double globalUsagePercentage) {
+    }
+
+    public record TimeSeries(List<SeriesPoint> series,
+                             LocalDate startDate,
+                             LocalDate endDate,
+                             String type) {
+    }
+}
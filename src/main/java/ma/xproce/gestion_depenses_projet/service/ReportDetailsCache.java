@@ -0,0 +1,55 @@
+package ma.xproce.gestion_depenses_projet.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Least recently used cache of report detail rows by report id. Each entry remembers the report's
+ * {@code updatedAt}, so a report updated since it was cached is reloaded rather than served stale.
+ */
+@Component
+public class ReportDetailsCache {
+
+    private final LruCache<Long, Entry<ReportDetails.CategoryLine>> categories;
+    private final LruCache<Long, Entry<ReportDetails.SeriesPoint>> series;
+
+    public ReportDetailsCache(@Value("${reports.details-cache.max-entries:200}") int maxEntries) {
+        this.categories = new LruCache<>(maxEntries);
+        this.series = new LruCache<>(maxEntries);
+    }
+
+    public List<ReportDetails.CategoryLine> categories(Long reportId, LocalDateTime version,
+                                                       Supplier<List<ReportDetails.CategoryLine>> loader) {
+        return get(categories, reportId, version, loader);
+    }
+
+    public List<ReportDetails.SeriesPoint> series(Long reportId, LocalDateTime version,
+                                                  Supplier<List<ReportDetails.SeriesPoint>> loader) {
+        return get(series, reportId, version, loader);
+    }
+
+    public List<ReportDetails.SeriesPoint> cachedSeries(Long reportId, LocalDateTime version) {
+        Entry<ReportDetails.SeriesPoint> entry = series.getIfPresent(reportId);
+        return entry != null && Objects.equals(entry.version(), version) ? entry.values() : null;
+    }
+
+    public void evict(Long reportId) {
+        categories.evict(reportId);
+        series.evict(reportId);
+    }
+
+    private static <T> List<T> get(LruCache<Long, Entry<T>> cache, Long reportId, LocalDateTime version,
+                                   Supplier<List<T>> loader) {
+        return cache.get(reportId,
+                entry -> Objects.equals(entry.version(), version),
+                () -> new Entry<>(version, List.copyOf(loader.get()))).values();
+    }
+
+    private record Entry<T>(LocalDateTime version, List<T> values) {
+    }
+}
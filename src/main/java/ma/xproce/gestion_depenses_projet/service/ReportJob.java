@@ -0,0 +1,45 @@
+package ma.xproce.gestion_depenses_projet.service;
+
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+@Getter
+public class ReportJob {
+
+    public enum Status { PENDING, RUNNING, DONE, FAILED }
+
+    private final String id;
+    private final Long userId;
+    private final LocalDateTime submittedAt = LocalDateTime.now();
+
+    private volatile Status status = Status.PENDING;
+    private volatile Long reportId;
+    private volatile String error;
+    private volatile LocalDateTime finishedAt;
+
+    public ReportJob(String id, Long userId) {
+        this.id = id;
+        this.userId = userId;
+    }
+
+    public boolean isFinished() {
+        return status == Status.DONE || status == Status.FAILED;
+    }
+
+    void start() {
+        status = Status.RUNNING;
+    }
+
+    void complete(Long reportId) {
+        this.reportId = reportId;
+        this.finishedAt = LocalDateTime.now();
+        this.status = Status.DONE;
+    }
+
+    void fail(String error) {
+        this.error = error;
+        this.finishedAt = LocalDateTime.now();
+        this.status = Status.FAILED;
+    }
+}
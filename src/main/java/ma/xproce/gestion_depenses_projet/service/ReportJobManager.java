@@ -0,0 +1,106 @@
+package ma.xproce.gestion_depenses_projet.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import ma.xproce.gestion_depenses_projet.dao.entities.Report;
+import ma.xproce.gestion_depenses_projet.dao.entities.User;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs report generation off the request thread. The worker pool is kept smaller than the
+ * connection pool and the queue is bounded, so a burst of requests is refused instead of
+ * piling up transactions. The per-user pending count is reserved atomically before the job
+ * is queued and released when it finishes.
+ */
+@Slf4j
+@Service
+public class ReportJobManager implements ReportJobService {
+
+    private final ThreadPoolExecutor executor;
+    private final Map<String, ReportJob> jobs = new ConcurrentHashMap<>();
+    private final Map<Long, Integer> pendingByUser = new ConcurrentHashMap<>();
+    private final int maxPendingPerUser;
+    private final long retentionMinutes;
+
+    public ReportJobManager(@Value("${reports.jobs.workers:2}") int workers,
+                            @Value("${reports.jobs.queue-capacity:50}") int queueCapacity,
+                            @Value("${reports.jobs.max-pending-per-user:3}") int maxPendingPerUser,
+                            @Value("${reports.jobs.retention-minutes:30}") long retentionMinutes) {
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "report-job-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.maxPendingPerUser = maxPendingPerUser;
+        this.retentionMinutes = retentionMinutes;
+    }
+
+    @Override
+    public ReportJob submit(User user, Supplier<Report> generation) {
+        purgeFinishedJobs();
+
+        pendingByUser.compute(user.getId(), (userId, pending) -> {
+            int count = pending == null ? 0 : pending;
+            if (count >= maxPendingPerUser) {
+                throw new IllegalStateException("Trop de rapports en cours de génération, veuillez patienter");
+            }
+            return count + 1;
+        });
+
+        ReportJob job = new ReportJob(UUID.randomUUID().toString(), user.getId());
+        jobs.put(job.getId(), job);
+        try {
+            executor.execute(() -> run(job, generation));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            release(job.getUserId());
+            throw new IllegalStateException("Le service de rapports est saturé, réessayez dans quelques instants");
+        }
+        return job;
+    }
+
+    @Override
+    public Optional<ReportJob> getJob(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId));
+    }
+
+    private void run(ReportJob job, Supplier<Report> generation) {
+        job.start();
+        try {
+            Report report = generation.get();
+            job.complete(report.getId());
+        } catch (Exception e) {
+            log.error("Erreur lors de la génération du rapport (job {})", job.getId(), e);
+            job.fail(e.getMessage());
+        } finally {
+            release(job.getUserId());
+        }
+    }
+
+    private void release(Long userId) {
+        pendingByUser.computeIfPresent(userId, (id, pending) -> pending > 1 ? pending - 1 : null);
+    }
+
+    private void purgeFinishedJobs() {
+        LocalDateTime limit = LocalDateTime.now().minusMinutes(retentionMinutes);
+        jobs.values().removeIf(job -> job.isFinished() && job.getFinishedAt().isBefore(limit));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,14 @@
+package ma.xproce.gestion_depenses_projet.service;
+
+import ma.xproce.gestion_depenses_projet.dao.entities.Report;
+import ma.xproce.gestion_depenses_projet.dao.entities.User;
+
+import java.util.Optional;
+import java.util.function.Supplier;
+
+public interface ReportJobService {
+
+    ReportJob submit(User user, Supplier<Report> generation);
+
+    Optional<ReportJob> getJob(String jobId);
+}
@@ -1,6 +1,5 @@
 package ma.xproce.gestion_depenses_projet.service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.itextpdf.kernel.pdf.PdfDocument;
 import com.itextpdf.kernel.pdf.PdfWriter;
 import com.itextpdf.layout.Document;
@@ -11,16 +10,25 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import ma.xproce.gestion_depenses_projet.dao.entities.*;
 import ma.xproce.gestion_depenses_projet.dao.repositories.*;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.YearMonth;
 import java.util.*;
+import java.util.function.Function;
 import com.itextpdf.kernel.colors.Color;
 import com.itextpdf.kernel.colors.DeviceRgb;
 import com.itextpdf.layout.properties.TextAlignment;
@@ -36,12 +44,17 @@ public class ReportManager implements ReportService {
 
     private final ReportRepository reportRepository;
     private final ExpenseRepository expenseRepository;
+    private final ExpenseRollupRepository expenseRollupRepository;
     private final BudgetRepository budgetRepository;
     private final CategoryService categoryService;
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ReportCategoryLineRepository reportCategoryLineRepository;
+    private final ReportSeriesPointRepository reportSeriesPointRepository;
+    private final ReportDetailJdbcRepository reportDetailJdbcRepository;
+    private final ReportDetailsCache reportDetailsCache;
+    private final ReportPdfStore reportPdfStore;
+    private final TransactionTemplate transactionTemplate;
 
     @Override
-    @Transactional
     public Report generateMonthlyReport(User user, int year, int month) {
         LocalDate startDate = LocalDate.of(year, month, 1);
         LocalDate endDate = startDate.plusMonths(1).minusDays(1);
@@ -49,7 +62,6 @@ public class ReportManager implements ReportService {
     }
 
     @Override
-    @Transactional
     public Report generateAnnualReport(User user, int year) {
         LocalDate startDate = LocalDate.of(year, 1, 1);
         LocalDate endDate = LocalDate.of(year, 12, 31);
@@ -57,12 +69,24 @@ public class ReportManager implements ReportService {
     }
 
     @Override
-    @Transactional
     public Report generateCustomReport(User user, LocalDate startDate, LocalDate endDate) {
         return generateReport(user, startDate, endDate, Report.ReportType.CUSTOM);
     }
 
+    /**
+     * Reports are unique per user and period. When a concurrent generation of the same period
+     * commits first, the insert fails on that key and the committed report is returned instead.
+     */
     private Report generateReport(User user, LocalDate startDate, LocalDate endDate, Report.ReportType type) {
+        try {
+            return transactionTemplate.execute(status -> findOrGenerate(user, startDate, endDate, type));
+        } catch (DataIntegrityViolationException e) {
+            log.debug("Rapport du {} au {} déjà généré pour l'utilisateur {}", startDate, endDate, user.getId(), e);
+            return reportRepository.findByUserAndPeriod(user, startDate, endDate).orElseThrow(() -> e);
+        }
+    }
+
+    private Report findOrGenerate(User user, LocalDate startDate, LocalDate endDate, Report.ReportType type) {
 
         Optional<Report> existingReport = reportRepository.findByUserAndPeriod(user, startDate, endDate);
         if (existingReport.isPresent()) {
@@ -70,54 +94,101 @@ public class ReportManager implements ReportService {
         }
 
 
-        List<Expense> expenses = expenseRepository.findByUserAndDateBetween(user, startDate, endDate);
-
-
         List<Category> categories = categoryService.getUserCategories(user);
 
 
-        Map<String, CategoryData> categoryDataMap = new HashMap<>();
-        Map<LocalDate, BigDecimal> dailyExpenses = new TreeMap<>();
+        Map<Long, ReportCategoryLine> lines = new HashMap<>();
+        TimeBuckets dailyExpenses = new TimeBuckets(startDate, endDate);
         Map<YearMonth, BigDecimal> monthlyBudgets = new HashMap<>();
 
 
         for (Category category : categories) {
-            categoryDataMap.put(category.getName(), new CategoryData(category.getName()));
+            lines.put(category.getId(), newLine(category.getId(), category.getName()));
         }
 
 
-        LocalDate currentDate = startDate;
-        while (!currentDate.isAfter(endDate)) {
-            YearMonth yearMonth = YearMonth.from(currentDate);
+        YearMonth startMonth = YearMonth.from(startDate);
+        YearMonth endMonth = YearMonth.from(endDate);
+        for (Object[] row : budgetRepository.sumBudgetsByCategoryAndMonth(user, startMonth, endMonth)) {
+            Long categoryId = (Long) row[0];
+            String categoryName = (String) row[1];
+            YearMonth yearMonth = (YearMonth) row[2];
+            BigDecimal amount = (BigDecimal) row[3];
+            if (amount == null) {
+                continue;
+            }
 
-            for (Category category : categories) {
-                Budget budget = budgetRepository.findByUserAndCategoryAndMonth(user, category, yearMonth)
-                        .orElse(null);
+            ReportCategoryLine line = lines.computeIfAbsent(categoryId, id -> newLine(id, categoryName));
+            line.setBudget(line.getBudget().add(amount));
 
-                if (budget != null) {
-                    CategoryData catData = categoryDataMap.get(category.getName());
-                    catData.budget = catData.budget.add(budget.getAmount());
+            monthlyBudgets.merge(yearMonth, amount, BigDecimal::add);
+        }
 
-                    monthlyBudgets.merge(yearMonth, budget.getAmount(), BigDecimal::add);
-                }
+
+        if (type == Report.ReportType.ANNUAL) {
+            for (CategoryTotal total : expenseRollupRepository.findTopCategoriesForUser(
+                    user, startMonth, endMonth, Pageable.unpaged())) {
+                ReportCategoryLine line = lines.computeIfAbsent(total.categoryId(),
+                        id -> newLine(id, total.categoryName()));
+                line.setExpenses(line.getExpenses().add(total.total()));
+                line.setTransactionCount(line.getTransactionCount() + (int) total.expenseCount());
+            }
+
+            for (Object[] row : expenseRollupRepository.sumByMonth(user, startMonth, endMonth)) {
+                dailyExpenses.add(((YearMonth) row[0]).atDay(1), (BigDecimal) row[1]);
+            }
+        } else {
+            for (Object[] row : expenseRepository.getExpensesByCategoryForPeriod(user, startDate, endDate)) {
+                ReportCategoryLine line = lines.computeIfAbsent((Long) row[0], id -> newLine(id, (String) row[1]));
+                line.setExpenses(line.getExpenses().add((BigDecimal) row[2]));
+                line.setTransactionCount(line.getTransactionCount() + ((Number) row[3]).intValue());
+            }
+
+            for (Object[] row : expenseRepository.getDailyExpensesForPeriod(user, startDate, endDate)) {
+                dailyExpenses.add((LocalDate) row[0], (BigDecimal) row[1]);
             }
-            currentDate = currentDate.plusMonths(1);
         }
 
 
-        for (Expense expense : expenses) {
-            String categoryName = expense.getCategory().getName();
-            CategoryData catData = categoryDataMap.computeIfAbsent(categoryName,
-                    k -> new CategoryData(categoryName));
+        List<ReportSeriesPoint> series = generateTimeSeries(dailyExpenses, monthlyBudgets, type);
+
 
-            catData.expenses = catData.expenses.add(expense.getAmount());
-            catData.transactionCount++;
+        try {
+            Report report = Report.builder()
+                    .user(user)
+                    .type(type)
+                    .startDate(startDate)
+                    .endDate(endDate)
+                    .generatedAt(LocalDateTime.now())
+                    .build();
+            writeSummary(report, lines.values());
 
+            Report saved = reportRepository.saveAndFlush(report);
+            reportDetailJdbcRepository.insertCategoryLines(saved.getId(), lines.values());
+            reportDetailJdbcRepository.insertSeriesPoints(saved.getId(), series);
+            return saved;
 
-            dailyExpenses.merge(expense.getDate(), expense.getAmount(), BigDecimal::add);
+        } catch (DataIntegrityViolationException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Erreur lors de la génération du rapport", e);
+            throw new RuntimeException("Erreur lors de la génération du rapport", e);
         }
+    }
 
+    private static ReportCategoryLine newLine(Long categoryId, String categoryName) {
+        return ReportCategoryLine.builder()
+                .categoryId(categoryId)
+                .categoryName(categoryName)
+                .budget(BigDecimal.ZERO)
+                .expenses(BigDecimal.ZERO)
+                .usagePercentage(0.0)
+                .overBudgetAmount(BigDecimal.ZERO)
+                .transactionCount(0)
+                .build();
+    }
 
+    private void writeSummary(Report report, Collection<ReportCategoryLine> lines) {
         BigDecimal totalBudget = BigDecimal.ZERO;
         BigDecimal totalExpenses = BigDecimal.ZERO;
         BigDecimal totalOverBudget = BigDecimal.ZERO;
@@ -125,165 +196,293 @@ public class ReportManager implements ReportService {
         String dominantCategory = "";
         BigDecimal dominantAmount = BigDecimal.ZERO;
 
-        List<Map<String, Object>> categoryDetailsList = new ArrayList<>();
-
-        for (CategoryData catData : categoryDataMap.values()) {
-            totalBudget = totalBudget.add(catData.budget);
-            totalExpenses = totalExpenses.add(catData.expenses);
+        for (ReportCategoryLine line : lines) {
+            totalBudget = totalBudget.add(line.getBudget());
+            totalExpenses = totalExpenses.add(line.getExpenses());
+            line.setUsagePercentage(0.0);
+            line.setOverBudgetAmount(BigDecimal.ZERO);
 
 
-            if (catData.budget.compareTo(BigDecimal.ZERO) > 0) {
-                catData.usagePercentage = catData.expenses
-                        .divide(catData.budget, 2, RoundingMode.HALF_UP)
+            if (line.getBudget().compareTo(BigDecimal.ZERO) > 0) {
+                line.setUsagePercentage(line.getExpenses()
+                        .divide(line.getBudget(), 2, RoundingMode.HALF_UP)
                         .multiply(BigDecimal.valueOf(100))
-                        .doubleValue();
+                        .doubleValue());
 
 
-                if (catData.expenses.compareTo(catData.budget) > 0) {
-                    catData.overBudgetAmount = catData.expenses.subtract(catData.budget);
-                    totalOverBudget = totalOverBudget.add(catData.overBudgetAmount);
+                if (line.getExpenses().compareTo(line.getBudget()) > 0) {
+                    line.setOverBudgetAmount(line.getExpenses().subtract(line.getBudget()));
+                    totalOverBudget = totalOverBudget.add(line.getOverBudgetAmount());
                     overBudgetCount++;
                 }
-            } else if (catData.expenses.compareTo(BigDecimal.ZERO) > 0) {
-                catData.usagePercentage = 100.0;
-                catData.overBudgetAmount = catData.expenses;
-                totalOverBudget = totalOverBudget.add(catData.overBudgetAmount);
+            } else if (line.getExpenses().compareTo(BigDecimal.ZERO) > 0) {
+                line.setUsagePercentage(100.0);
+                line.setOverBudgetAmount(line.getExpenses());
+                totalOverBudget = totalOverBudget.add(line.getOverBudgetAmount());
                 overBudgetCount++;
             }
 
 
-            if (catData.expenses.compareTo(dominantAmount) > 0) {
-                dominantCategory = catData.categoryName;
-                dominantAmount = catData.expenses;
+            if (line.getExpenses().compareTo(dominantAmount) > 0) {
+                dominantCategory = line.getCategoryName();
+                dominantAmount = line.getExpenses();
             }
-
-
-            Map<String, Object> details = new HashMap<>();
-            details.put("name", catData.categoryName);
-            details.put("budget", catData.budget);
-            details.put("expenses", catData.expenses);
-            details.put("usagePercentage", catData.usagePercentage);
-            details.put("overBudgetAmount", catData.overBudgetAmount);
-            details.put("transactionCount", catData.transactionCount);
-            categoryDetailsList.add(details);
         }
 
 
-        List<Map<String, Object>> timeSeriesData = generateTimeSeries(
-                dailyExpenses, monthlyBudgets, startDate, endDate, type);
-
-
         BigDecimal totalSavings = totalBudget.subtract(totalExpenses);
         Double globalUsagePercentage = totalBudget.compareTo(BigDecimal.ZERO) > 0
                 ? totalExpenses.divide(totalBudget, 2, RoundingMode.HALF_UP)
                 .multiply(BigDecimal.valueOf(100)).doubleValue()
                 : 0.0;
 
+        report.setTotalBudget(totalBudget);
+        report.setTotalExpenses(totalExpenses);
+        report.setTotalSavings(totalSavings);
+        report.setGlobalUsagePercentage(globalUsagePercentage);
+        report.setDominantCategory(dominantCategory);
+        report.setDominantCategoryAmount(dominantAmount);
+        report.setOverBudgetCategoriesCount(overBudgetCount);
+        report.setTotalOverBudgetAmount(totalOverBudget);
+        report.setUpdatedAt(LocalDateTime.now());
+    }
 
-        try {
-            Report report = Report.builder()
-                    .user(user)
-                    .type(type)
-                    .startDate(startDate)
-                    .endDate(endDate)
-                    .generatedAt(LocalDateTime.now())
-                    .totalBudget(totalBudget)
-                    .totalExpenses(totalExpenses)
-                    .totalSavings(totalSavings)
-                    .globalUsagePercentage(globalUsagePercentage)
-                    .dominantCategory(dominantCategory)
-                    .dominantCategoryAmount(dominantAmount)
-                    .overBudgetCategoriesCount(overBudgetCount)
-                    .totalOverBudgetAmount(totalOverBudget)
-                    .categoryDetailsJson(objectMapper.writeValueAsString(categoryDetailsList))
-                    .timeSeriesJson(objectMapper.writeValueAsString(timeSeriesData))
-                    .build();
+    private List<ReportSeriesPoint> generateTimeSeries(TimeBuckets dailyExpenses,
+                                                       Map<YearMonth, BigDecimal> monthlyBudgets,
+                                                       Report.ReportType type) {
+        List<ReportSeriesPoint> series = new ArrayList<>();
 
-            return reportRepository.save(report);
+        if (type == Report.ReportType.ANNUAL) {
 
-        } catch (Exception e) {
-            log.error("Erreur lors de la génération du rapport", e);
-            throw new RuntimeException("Erreur lors de la génération du rapport", e);
+            TimeBuckets.Series months = dailyExpenses.aggregate(TimeBuckets.Granularity.MONTH);
+            for (int i = 0; i < months.size(); i++) {
+                YearMonth currentMonth = YearMonth.from(months.bucketStart(i));
+                long monthBudget = TimeBuckets.toCents(monthlyBudgets.getOrDefault(currentMonth, BigDecimal.ZERO));
+
+                series.add(ReportSeriesPoint.builder()
+                        .pointDate(currentMonth.atDay(1))
+                        .periodExpenses(TimeBuckets.toAmount(months.total(i)))
+                        .periodBudget(TimeBuckets.toAmount(monthBudget))
+                        .build());
+            }
+        } else {
+
+            TimeBuckets.Series days = dailyExpenses.aggregate(TimeBuckets.Granularity.DAY);
+            YearMonth currentMonth = null;
+            long dailyBudget = 0;
+
+            for (int i = 0; i < days.size(); i++) {
+                LocalDate currentDate = days.bucketStart(i);
+
+                if (!YearMonth.from(currentDate).equals(currentMonth)) {
+                    currentMonth = YearMonth.from(currentDate);
+                    dailyBudget = TimeBuckets.toCents(dailyBudget(monthlyBudgets.getOrDefault(currentMonth, BigDecimal.ZERO), currentMonth));
+                }
+
+                series.add(ReportSeriesPoint.builder()
+                        .pointDate(currentDate)
+                        .periodExpenses(TimeBuckets.toAmount(days.total(i)))
+                        .periodBudget(TimeBuckets.toAmount(dailyBudget))
+                        .build());
+            }
         }
+
+        return series;
     }
 
-    private List<Map<String, Object>> generateTimeSeries(Map<LocalDate, BigDecimal> dailyExpenses,
-                                                         Map<YearMonth, BigDecimal> monthlyBudgets,
-                                                         LocalDate startDate, LocalDate endDate,
-                                                         Report.ReportType type) {
-        List<Map<String, Object>> series = new ArrayList<>();
-        BigDecimal cumulativeExpenses = BigDecimal.ZERO;
-        BigDecimal cumulativeBudget = BigDecimal.ZERO;
+    private static BigDecimal dailyBudget(BigDecimal monthBudget, YearMonth month) {
+        return monthBudget.divide(BigDecimal.valueOf(month.lengthOfMonth()), 2, RoundingMode.HALF_UP);
+    }
 
-        if (type == Report.ReportType.ANNUAL) {
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onExpenseChanged(ExpenseChangedEvent event) {
+        List<ExpenseDelta> deltas = new ArrayList<>();
+        for (ExpenseChangedEvent.Change change : event.changes()) {
+            addExpenseDelta(deltas, change.before(), -1);
+            addExpenseDelta(deltas, change.after(), 1);
+        }
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        LocalDate from = deltas.stream().map(ExpenseDelta::date).min(Comparator.naturalOrder()).orElseThrow();
+        LocalDate to = deltas.stream().map(ExpenseDelta::date).max(Comparator.naturalOrder()).orElseThrow();
+        for (Report report : reportRepository.findOverlapping(event.user(), from, to)) {
+            applyExpenseDeltas(report, deltas);
+        }
+    }
 
-            YearMonth currentMonth = YearMonth.from(startDate);
-            YearMonth endMonth = YearMonth.from(endDate);
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onBudgetChanged(BudgetChangedEvent event) {
+        List<BudgetDelta> deltas = new ArrayList<>();
+        addBudgetDelta(deltas, event.before(), -1);
+        addBudgetDelta(deltas, event.after(), 1);
+        if (deltas.isEmpty()) {
+            return;
+        }
 
-            while (!currentMonth.isAfter(endMonth)) {
-                BigDecimal monthExpenses = BigDecimal.ZERO;
-                LocalDate monthStart = currentMonth.atDay(1);
-                LocalDate monthEnd = currentMonth.atEndOfMonth();
+        YearMonth from = deltas.stream().map(BudgetDelta::month).min(Comparator.naturalOrder()).orElseThrow();
+        YearMonth to = deltas.stream().map(BudgetDelta::month).max(Comparator.naturalOrder()).orElseThrow();
+        Map<YearMonth, BigDecimal> monthTotals = new HashMap<>();
+        for (Report report : reportRepository.findOverlapping(event.user(), from.atDay(1), to.atEndOfMonth())) {
+            applyBudgetDeltas(report, deltas,
+                    month -> monthTotals.computeIfAbsent(month, m -> sumMonthBudget(event.user(), m)));
+        }
+    }
 
-                for (Map.Entry<LocalDate, BigDecimal> entry : dailyExpenses.entrySet()) {
-                    if (!entry.getKey().isBefore(monthStart) && !entry.getKey().isAfter(monthEnd)) {
-                        monthExpenses = monthExpenses.add(entry.getValue());
-                    }
-                }
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        if (event.deleted()) {
+            return;
+        }
+        categoryService.getCategoryById(event.categoryId()).ifPresent(category -> {
+            for (Long reportId : reportDetailJdbcRepository.renameCategory(category.getId(), category.getName())) {
+                reportDetailsCache.evict(reportId);
+            }
+        });
+    }
+
+    private static void addExpenseDelta(List<ExpenseDelta> deltas, ExpenseChangedEvent.Snapshot snapshot, int sign) {
+        if (snapshot == null || snapshot.categoryName() == null
+                || snapshot.date() == null || snapshot.amount() == null) {
+            return;
+        }
+        BigDecimal amount = sign < 0 ? snapshot.amount().negate() : snapshot.amount();
+        deltas.add(new ExpenseDelta(snapshot.categoryId(), snapshot.categoryName(), snapshot.date(), amount, sign));
+    }
 
-                cumulativeExpenses = cumulativeExpenses.add(monthExpenses);
-                BigDecimal monthBudget = monthlyBudgets.getOrDefault(currentMonth, BigDecimal.ZERO);
-                cumulativeBudget = cumulativeBudget.add(monthBudget);
+    private static void addBudgetDelta(List<BudgetDelta> deltas, BudgetChangedEvent.Snapshot snapshot, int sign) {
+        if (snapshot == null || snapshot.categoryName() == null
+                || snapshot.month() == null || snapshot.amount() == null) {
+            return;
+        }
+        BigDecimal amount = sign < 0 ? snapshot.amount().negate() : snapshot.amount();
+        deltas.add(new BudgetDelta(snapshot.categoryId(), snapshot.categoryName(), snapshot.month(), amount));
+    }
 
-                Map<String, Object> point = new HashMap<>();
-                point.put("date", currentMonth.toString());
-                point.put("expenses", cumulativeExpenses);
-                point.put("budget", cumulativeBudget);
-                point.put("monthExpenses", monthExpenses);
-                point.put("monthBudget", monthBudget);
-                series.add(point);
+    private void applyExpenseDeltas(Report report, List<ExpenseDelta> deltas) {
+        boolean annual = report.getType() == Report.ReportType.ANNUAL;
+        List<ReportCategoryLine> lines = null;
+        Map<LocalDate, BigDecimal> pointDeltas = new TreeMap<>();
 
-                currentMonth = currentMonth.plusMonths(1);
+        for (ExpenseDelta delta : deltas) {
+            if (delta.date().isBefore(report.getStartDate()) || delta.date().isAfter(report.getEndDate())) {
+                continue;
+            }
+            if (lines == null) {
+                lines = reportCategoryLineRepository.findByReportId(report.getId());
             }
-        } else {
 
-            LocalDate currentDate = startDate;
-            YearMonth currentMonth = YearMonth.from(startDate);
-            BigDecimal currentMonthBudget = monthlyBudgets.getOrDefault(currentMonth, BigDecimal.ZERO);
-            int daysInMonth = currentMonth.lengthOfMonth();
-            BigDecimal dailyBudget = currentMonthBudget.divide(BigDecimal.valueOf(daysInMonth), 2, RoundingMode.HALF_UP);
+            ReportCategoryLine line = findLine(lines, report, delta.categoryId(), delta.categoryName());
+            line.setExpenses(line.getExpenses().add(delta.amount()));
+            line.setTransactionCount(line.getTransactionCount() + delta.count());
 
-            while (!currentDate.isAfter(endDate)) {
+            LocalDate pointDate = annual ? delta.date().withDayOfMonth(1) : delta.date();
+            pointDeltas.merge(pointDate, delta.amount(), BigDecimal::add);
+        }
 
-                if (!YearMonth.from(currentDate).equals(currentMonth)) {
-                    currentMonth = YearMonth.from(currentDate);
-                    currentMonthBudget = monthlyBudgets.getOrDefault(currentMonth, BigDecimal.ZERO);
-                    daysInMonth = currentMonth.lengthOfMonth();
-                    dailyBudget = currentMonthBudget.divide(BigDecimal.valueOf(daysInMonth), 2, RoundingMode.HALF_UP);
-                }
+        pointDeltas.forEach((pointDate, amount) -> {
+            if (amount.signum() != 0) {
+                reportDetailJdbcRepository.addExpenses(report.getId(), pointDate, amount);
+            }
+        });
+        if (lines != null) {
+            saveSummary(report, lines);
+        }
+    }
 
-                BigDecimal dayExpenses = dailyExpenses.getOrDefault(currentDate, BigDecimal.ZERO);
-                cumulativeExpenses = cumulativeExpenses.add(dayExpenses);
-                cumulativeBudget = cumulativeBudget.add(dailyBudget);
+    private void applyBudgetDeltas(Report report, List<BudgetDelta> deltas,
+                                   Function<YearMonth, BigDecimal> monthTotals) {
+        boolean annual = report.getType() == Report.ReportType.ANNUAL;
+        YearMonth firstMonth = YearMonth.from(report.getStartDate());
+        YearMonth lastMonth = YearMonth.from(report.getEndDate());
+        List<ReportCategoryLine> lines = null;
+        Set<YearMonth> touchedMonths = new HashSet<>();
+
+        for (BudgetDelta delta : deltas) {
+            if (delta.month().isBefore(firstMonth) || delta.month().isAfter(lastMonth)) {
+                continue;
+            }
+            if (lines == null) {
+                lines = reportCategoryLineRepository.findByReportId(report.getId());
+            }
 
-                Map<String, Object> point = new HashMap<>();
-                point.put("date", currentDate.toString());
-                point.put("expenses", cumulativeExpenses);
-                point.put("budget", cumulativeBudget);
-                point.put("dayExpenses", dayExpenses);
-                point.put("dayBudget", dailyBudget);
-                series.add(point);
+            ReportCategoryLine line = findLine(lines, report, delta.categoryId(), delta.categoryName());
+            line.setBudget(line.getBudget().add(delta.amount()));
 
-                currentDate = currentDate.plusDays(1);
+            if (annual) {
+                reportDetailJdbcRepository.addBudget(report.getId(), delta.month().atDay(1), delta.amount());
+            } else {
+                touchedMonths.add(delta.month());
             }
         }
 
-        return series;
+        for (YearMonth month : touchedMonths) {
+            LocalDate from = month.atDay(1).isBefore(report.getStartDate())
+                    ? report.getStartDate() : month.atDay(1);
+            LocalDate to = month.atEndOfMonth().isAfter(report.getEndDate())
+                    ? report.getEndDate() : month.atEndOfMonth();
+            reportDetailJdbcRepository.setPeriodBudget(report.getId(), from, to,
+                    dailyBudget(monthTotals.apply(month), month));
+        }
+
+        if (lines != null) {
+            saveSummary(report, lines);
+        }
+    }
+
+    private BigDecimal sumMonthBudget(User user, YearMonth month) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (Object[] row : budgetRepository.sumBudgetsByCategoryAndMonth(user, month, month)) {
+            if (row[3] != null) {
+                total = total.add((BigDecimal) row[3]);
+            }
+        }
+        return total;
+    }
+
+    private void saveSummary(Report report, List<ReportCategoryLine> lines) {
+        writeSummary(report, lines);
+        reportCategoryLineRepository.saveAll(lines);
+        reportRepository.save(report);
+        reportDetailsCache.evict(report.getId());
     }
 
+    /**
+     * Finds the line of a category by id. Lines written before the id was stored are matched by name
+     * once and adopt the id, so later renames follow them.
+     */
+    private static ReportCategoryLine findLine(List<ReportCategoryLine> lines, Report report,
+                                               Long categoryId, String categoryName) {
+        ReportCategoryLine legacy = null;
+        for (ReportCategoryLine line : lines) {
+            if (categoryId != null && categoryId.equals(line.getCategoryId())) {
+                return line;
+            }
+            if (legacy == null && line.getCategoryId() == null && line.getCategoryName().equals(categoryName)) {
+                legacy = line;
+            }
+        }
+        if (legacy != null) {
+            legacy.setCategoryId(categoryId);
+            return legacy;
+        }
+        ReportCategoryLine created = newLine(categoryId, categoryName);
+        created.setReport(report);
+        lines.add(created);
+        return created;
+    }
+
+    private record ExpenseDelta(Long categoryId, String categoryName, LocalDate date, BigDecimal amount, int count) {}
+
+    private record BudgetDelta(Long categoryId, String categoryName, YearMonth month, BigDecimal amount) {}
+
     @Override
-    public List<Report> getReportsByUser(User user) {
-        return reportRepository.findAllByUserOrderByGeneratedAtDesc(user);
+    public Page<ReportSummary> getReportSummaries(User user, Pageable pageable) {
+        return reportRepository.findSummariesByUser(user, pageable);
     }
 
     @Override
@@ -294,340 +493,251 @@ public class ReportManager implements ReportService {
     @Override
     @Transactional
     public void deleteReport(User user, Long id) {
-        reportRepository.deleteByUserAndId(user, id);
+        if (reportRepository.deleteByUserAndId(user, id) > 0) {
+            reportDetailsCache.evict(id);
+            reportPdfStore.evict(id);
+        }
     }
 
     @Override
-    public Map<String, Object> getCategoryDetails(Report report) {
-        try {
-            List<Map<String, Object>> categoryDetails = objectMapper.readValue(
-                    report.getCategoryDetailsJson(),
-                    objectMapper.getTypeFactory().constructCollectionType(List.class, Map.class)
-            );
-
-            Map<String, Object> result = new HashMap<>();
-            result.put("categories", categoryDetails);
-            result.put("totalBudget", report.getTotalBudget());
-            result.put("totalExpenses", report.getTotalExpenses());
-            result.put("totalSavings", report.getTotalSavings());
-            result.put("globalUsagePercentage", report.getGlobalUsagePercentage());
-
-            return result;
-        } catch (Exception e) {
-            log.error("Erreur lors de la lecture des détails des catégories", e);
-            return new HashMap<>();
-        }
+    public ReportDetails.Categories getCategoryDetails(Report report) {
+        return new ReportDetails.Categories(
+                getCategoryLines(report),
+                report.getTotalBudget(),
+                report.getTotalExpenses(),
+                report.getTotalSavings(),
+                report.getGlobalUsagePercentage());
     }
 
     @Override
-    public Map<String, Object> getTimeSeriesData(Report report) {
-        try {
-            List<Map<String, Object>> timeSeries = objectMapper.readValue(
-                    report.getTimeSeriesJson(),
-                    objectMapper.getTypeFactory().constructCollectionType(List.class, Map.class)
-            );
-
-            Map<String, Object> result = new HashMap<>();
-            result.put("series", timeSeries);
-            result.put("startDate", report.getStartDate());
-            result.put("endDate", report.getEndDate());
-            result.put("type", report.getType().getLabel());
-
-            return result;
-        } catch (Exception e) {
-            log.error("Erreur lors de la lecture des données temporelles", e);
-            return new HashMap<>();
-        }
+    public ReportDetails.TimeSeries getTimeSeriesData(Report report) {
+        return getTimeSeriesData(report, report.getStartDate(), report.getEndDate());
     }
 
     @Override
-    public byte[] generatePdfReport(Report report) {
-        try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-            PdfWriter writer = new PdfWriter(baos);
-            PdfDocument pdf = new PdfDocument(writer);
-            Document document = new Document(pdf);
-            document.setMargins(30, 30, 30, 30);
-
-            Color blue = new DeviceRgb(52, 73, 94);
-            Color red = new DeviceRgb(192, 57, 43);
-            Color lightBlue = new DeviceRgb(230, 236, 240);
-            Color gray = new DeviceRgb(71, 85, 105);
-            Color green = new DeviceRgb(39, 174, 96);
-
-            Paragraph title = new Paragraph("RAPPORT DE DÉPENSES")
-                    .setFontSize(22)
-                    .setBold()
-                    .setFontColor(blue)
-                    .setTextAlignment(TextAlignment.CENTER)
-                    .setMarginBottom(18);
-            document.add(title);
-
-            Paragraph meta = new Paragraph()
-                    .add(new Text("Type : ").setBold().setFontColor(blue))
-                    .add(report.getType().getLabel() + "  ")
-                    .add(new Text("Période : ").setBold().setFontColor(blue))
-                    .add(report.getStartDate() + " au " + report.getEndDate() + "  ")
-                    .add(new Text("Généré le : ").setBold().setFontColor(blue))
-                    .add(report.getGeneratedAt().toString())
-                    .setFontSize(11)
-                    .setFontColor(gray)
-                    .setMarginBottom(14);
-            document.add(meta);
-
-            Paragraph resume = new Paragraph("RÉSUMÉ")
-                    .setFontSize(14)
-                    .setBold()
-                    .setFontColor(blue)
-                    .setMarginTop(10);
-            document.add(resume);
-
-            document.add(new Paragraph(String.format("Budget total : %.2f MAD", report.getTotalBudget())).setFontColor(gray));
-            document.add(new Paragraph(String.format("Dépenses totales : %.2f MAD", report.getTotalExpenses())).setFontColor(gray));
-            document.add(new Paragraph(String.format("Économies : %.2f MAD", report.getTotalSavings()))
-                    .setFontColor(report.getTotalSavings().compareTo(BigDecimal.ZERO) < 0 ? red : green));
-            if (report.getGlobalUsagePercentage() != null) {
-                document.add(new Paragraph(String.format("Utilisation : %.1f%%", report.getGlobalUsagePercentage())).setFontColor(gray));
-            }
-
-            Paragraph analyse = new Paragraph("ANALYSE")
-                    .setFontSize(14)
-                    .setBold()
-                    .setFontColor(blue)
-                    .setMarginTop(16);
-            document.add(analyse);
-
-            document.add(new Paragraph("Catégorie dominante : " +
-                    (report.getDominantCategory() != null ? report.getDominantCategory() : "N/A")
-                    + " (" + String.format("%.2f MAD",
-                    report.getDominantCategoryAmount() != null ? report.getDominantCategoryAmount() : BigDecimal.ZERO) + ")").setFontColor(gray));
-            document.add(new Paragraph("Catégories en dépassement : " +
-                    (report.getOverBudgetCategoriesCount() != null ? report.getOverBudgetCategoriesCount() : 0)).setFontColor(gray));
-            document.add(new Paragraph("Montant total des dépassements : " +
-                    String.format("%.2f MAD",
-                            report.getTotalOverBudgetAmount() != null ? report.getTotalOverBudgetAmount() : BigDecimal.ZERO)).setFontColor(gray));
-
-            Paragraph detail = new Paragraph("DÉTAIL PAR CATÉGORIE")
-                    .setFontSize(14)
-                    .setBold()
-                    .setFontColor(blue)
-                    .setMarginTop(16);
-            document.add(detail);
-
-            ObjectMapper mapper = new ObjectMapper();
-            List<Map<String, Object>> categoryDetails = mapper.readValue(
-                    report.getCategoryDetailsJson(),
-                    mapper.getTypeFactory().constructCollectionType(List.class, Map.class)
-            );
-
-            Table table = new Table(5);
-            table.setWidth(UnitValue.createPercentValue(100));
-            table.addHeaderCell(new Cell().add(new Paragraph("Catégorie")).setBackgroundColor(lightBlue).setFontColor(blue).setBold());
-            table.addHeaderCell(new Cell().add(new Paragraph("Budget")).setBackgroundColor(lightBlue).setFontColor(blue).setBold());
-            table.addHeaderCell(new Cell().add(new Paragraph("Dépenses")).setBackgroundColor(lightBlue).setFontColor(blue).setBold());
-            table.addHeaderCell(new Cell().add(new Paragraph("Utilisation")).setBackgroundColor(lightBlue).setFontColor(blue).setBold());
-            table.addHeaderCell(new Cell().add(new Paragraph("Dépassement")).setBackgroundColor(lightBlue).setFontColor(blue).setBold());
-
-            for (Map<String, Object> category : categoryDetails) {
-                table.addCell(new Cell().add(new Paragraph(String.valueOf(category.get("name")))).setFontColor(gray));
-                double budget = new BigDecimal(String.valueOf(category.get("budget"))).doubleValue();
-                double expenses = new BigDecimal(String.valueOf(category.get("expenses"))).doubleValue();
-                double usage = Double.parseDouble(String.valueOf(category.get("usagePercentage")));
-                double over = new BigDecimal(String.valueOf(category.get("overBudgetAmount"))).doubleValue();
-                table.addCell(new Cell().add(new Paragraph(String.format("%.2f", budget))).setFontColor(gray));
-                table.addCell(new Cell().add(new Paragraph(String.format("%.2f", expenses))).setFontColor(gray));
-                table.addCell(new Cell().add(new Paragraph(String.format("%.1f%%", usage))).setFontColor(usage > 100 ? red : (usage > 80 ? blue : gray)).setBold());
-                table.addCell(new Cell().add(new Paragraph(over > 0 ? String.format("%.2f", over) : "-")).setFontColor(over > 0 ? red : green).setBold());
-            }
-            document.add(table);
-
-            document.close();
-            return baos.toByteArray();
-        } catch (Exception e) {
-            log.error("Erreur lors de la génération du PDF: " + e.getMessage(), e);
-            try {
-                return generateSimplePdfReport(report);
-            } catch (Exception ex) {
-                log.error("Impossible de générer même un PDF simple", ex);
-                throw new RuntimeException("Erreur lors de la génération du PDF", ex);
-            }
+    public ReportDetails.TimeSeries getTimeSeriesData(Report report, LocalDate from, LocalDate to) {
+        boolean annual = report.getType() == Report.ReportType.ANNUAL;
+        LocalDate start = from == null || from.isBefore(report.getStartDate()) ? report.getStartDate() : from;
+        LocalDate end = to == null || to.isAfter(report.getEndDate()) ? report.getEndDate() : to;
+        if (annual) {
+            start = start.withDayOfMonth(1);
         }
-    }
 
+        boolean fullRange = !start.isAfter(report.getStartDate()) && !end.isBefore(report.getEndDate());
+        List<ReportDetails.SeriesPoint> series = reportDetailsCache.cachedSeries(report.getId(), report.getUpdatedAt());
+        if (series == null && fullRange) {
+            series = reportDetailsCache.series(report.getId(), report.getUpdatedAt(),
+                    () -> loadSeries(report, report.getStartDate(), report.getEndDate()));
+        }
 
-    private byte[] generateSimplePdfReport(Report report) throws Exception {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        PdfWriter writer = new PdfWriter(baos);
-        PdfDocument pdf = new PdfDocument(writer);
-        Document document = new Document(pdf);
+        List<ReportDetails.SeriesPoint> window = series != null
+                ? slice(series, start, end)
+                : loadSeries(report, start, end);
+        return new ReportDetails.TimeSeries(window, report.getStartDate(), report.getEndDate(),
+                report.getType().getLabel());
+    }
 
-        document.add(new Paragraph("RAPPORT DE DÉPENSES").setFontSize(20).setBold());
-        document.add(new Paragraph("\n"));
-        document.add(new Paragraph("Type: " + report.getType().getLabel()));
-        document.add(new Paragraph("Période: " + report.getStartDate() + " au " + report.getEndDate()));
-        document.add(new Paragraph("\n"));
-        document.add(new Paragraph("RÉSUMÉ"));
-        document.add(new Paragraph("Budget total: " + report.getTotalBudget() + " MAD"));
-        document.add(new Paragraph("Dépenses totales: " + report.getTotalExpenses() + " MAD"));
-        document.add(new Paragraph("Économies: " + report.getTotalSavings() + " MAD"));
+    private List<ReportDetails.CategoryLine> getCategoryLines(Report report) {
+        return reportDetailsCache.categories(report.getId(), report.getUpdatedAt(), () -> {
+            List<ReportDetails.CategoryLine> lines = new ArrayList<>();
+            for (ReportCategoryLine line : reportCategoryLineRepository.findByReportId(report.getId())) {
+                lines.add(new ReportDetails.CategoryLine(
+                        line.getCategoryName(),
+                        line.getBudget(),
+                        line.getExpenses(),
+                        line.getUsagePercentage(),
+                        line.getOverBudgetAmount(),
+                        line.getTransactionCount()));
+            }
+            return lines;
+        });
+    }
 
-        if (report.getGlobalUsagePercentage() != null) {
-            document.add(new Paragraph("Utilisation: " +
-                    String.format("%.1f", report.getGlobalUsagePercentage()) + "%"));
+    private List<ReportDetails.SeriesPoint> loadSeries(Report report, LocalDate from, LocalDate to) {
+        boolean annual = report.getType() == Report.ReportType.ANNUAL;
+        BigDecimal cumulativeExpenses = BigDecimal.ZERO;
+        BigDecimal cumulativeBudget = BigDecimal.ZERO;
+        if (from.isAfter(report.getStartDate())) {
+            for (Object[] row : reportSeriesPointRepository.sumBefore(report.getId(), from)) {
+                cumulativeExpenses = (BigDecimal) row[0];
+                cumulativeBudget = (BigDecimal) row[1];
+            }
         }
 
-        document.close();
-        return baos.toByteArray();
+        List<ReportDetails.SeriesPoint> series = new ArrayList<>();
+        for (ReportSeriesPoint point : reportSeriesPointRepository.findRange(report.getId(), from, to)) {
+            cumulativeExpenses = cumulativeExpenses.add(point.getPeriodExpenses());
+            cumulativeBudget = cumulativeBudget.add(point.getPeriodBudget());
+            series.add(new ReportDetails.SeriesPoint(
+                    point.getPointDate(),
+                    annual ? YearMonth.from(point.getPointDate()).toString() : point.getPointDate().toString(),
+                    cumulativeExpenses,
+                    cumulativeBudget,
+                    point.getPeriodExpenses(),
+                    point.getPeriodBudget()));
+        }
+        return series;
     }
 
-    private static class CategoryData {
-        String categoryName;
-        BigDecimal budget = BigDecimal.ZERO;
-        BigDecimal expenses = BigDecimal.ZERO;
-        BigDecimal overBudgetAmount = BigDecimal.ZERO;
-        Double usagePercentage = 0.0;
-        int transactionCount = 0;
+    private static List<ReportDetails.SeriesPoint> slice(List<ReportDetails.SeriesPoint> series,
+                                                         LocalDate from, LocalDate to) {
+        int first = lowerBound(series, from);
+        int last = lowerBound(series, to.plusDays(1));
+        return series.subList(first, Math.max(first, last));
+    }
 
-        CategoryData(String categoryName) {
-            this.categoryName = categoryName;
+    private static int lowerBound(List<ReportDetails.SeriesPoint> series, LocalDate date) {
+        int low = 0;
+        int high = series.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (series.get(mid).pointDate().isBefore(date)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
         }
+        return low;
     }
 
+    @Override
+    public void writePdfReport(Report report, OutputStream out) throws IOException {
+        Document document = openDocument(out);
+        writeReportBody(document, report, "RAPPORT DE DÉPENSES");
+        document.close();
+    }
 
     @Override
-    public byte[] generatePdfReportWithChart(Report report, String base64Chart) {
-        try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-            PdfWriter writer = new PdfWriter(baos);
-            PdfDocument pdf = new PdfDocument(writer);
-            Document document = new Document(pdf);
-            document.setMargins(30, 30, 30, 30);
-
-            
-            Color blue = new DeviceRgb(52, 73, 94); 
-            Color red = new DeviceRgb(192, 57, 43); 
-            Color lightBlue = new DeviceRgb(230, 236, 240); 
-            Color gray = new DeviceRgb(71, 85, 105);
-            Color green = new DeviceRgb(39, 174, 96); 
-          
-            Paragraph title = new Paragraph("RAPPORT DE DÉPENSES AVEC GRAPHIQUE")
-                    .setFontSize(22)
-                    .setBold()
-                    .setFontColor(blue)
-                    .setTextAlignment(TextAlignment.CENTER)
-                    .setMarginBottom(18);
-            document.add(title);
-
-           
-            Paragraph meta = new Paragraph()
-                    .add(new Text("Type : ").setBold().setFontColor(blue))
-                    .add(report.getType().getLabel() + "  ")
-                    .add(new Text("Période : ").setBold().setFontColor(blue))
-                    .add(report.getStartDate() + " au " + report.getEndDate() + "  ")
-                    .add(new Text("Généré le : ").setBold().setFontColor(blue))
-                    .add(report.getGeneratedAt().toString())
-                    .setFontSize(11)
-                    .setFontColor(gray)
-                    .setMarginBottom(14);
-            document.add(meta);
-
-            
-            Paragraph resume = new Paragraph("RÉSUMÉ")
-                    .setFontSize(14)
-                    .setBold()
-                    .setFontColor(blue)
-                    .setMarginTop(10);
-            document.add(resume);
-
-            document.add(new Paragraph(String.format("Budget total : %.2f MAD", report.getTotalBudget())).setFontColor(gray));
-            document.add(new Paragraph(String.format("Dépenses totales : %.2f MAD", report.getTotalExpenses())).setFontColor(gray));
-            document.add(new Paragraph(String.format("Économies : %.2f MAD", report.getTotalSavings()))
-                    .setFontColor(report.getTotalSavings().compareTo(BigDecimal.ZERO) < 0 ? red : green));
-            if (report.getGlobalUsagePercentage() != null) {
-                document.add(new Paragraph(String.format("Utilisation : %.1f%%", report.getGlobalUsagePercentage())).setFontColor(gray));
-            }
+    public void writePdfReportWithChart(Report report, String base64Chart, OutputStream out) throws IOException {
+        Document document = openDocument(out);
+        writeReportBody(document, report, "RAPPORT DE DÉPENSES AVEC GRAPHIQUE");
 
-            
-            Paragraph analyse = new Paragraph("ANALYSE")
-                    .setFontSize(14)
-                    .setBold()
-                    .setFontColor(blue)
-                    .setMarginTop(16);
-            document.add(analyse);
-
-            document.add(new Paragraph("Catégorie dominante : " +
-                    (report.getDominantCategory() != null ? report.getDominantCategory() : "N/A")
-                    + " (" + String.format("%.2f MAD",
-                    report.getDominantCategoryAmount() != null ? report.getDominantCategoryAmount() : BigDecimal.ZERO) + ")").setFontColor(gray));
-            document.add(new Paragraph("Catégories en dépassement : " +
-                    (report.getOverBudgetCategoriesCount() != null ? report.getOverBudgetCategoriesCount() : 0)).setFontColor(gray));
-            document.add(new Paragraph("Montant total des dépassements : " +
-                    String.format("%.2f MAD",
-                            report.getTotalOverBudgetAmount() != null ? report.getTotalOverBudgetAmount() : BigDecimal.ZERO)).setFontColor(gray));
-
-            
-            Paragraph detail = new Paragraph("DÉTAIL PAR CATÉGORIE")
-                    .setFontSize(14)
-                    .setBold()
-                    .setFontColor(blue)
-                    .setMarginTop(16);
-            document.add(detail);
-
-            ObjectMapper mapper = new ObjectMapper();
-            List<Map<String, Object>> categoryDetails = mapper.readValue(
-                    report.getCategoryDetailsJson(),
-                    mapper.getTypeFactory().constructCollectionType(List.class, Map.class)
-            );
-
-            Table table = new Table(5);
-            table.setWidth(UnitValue.createPercentValue(100));
-            table.addHeaderCell(new Cell().add(new Paragraph("Catégorie")).setBackgroundColor(lightBlue).setFontColor(blue).setBold());
-            table.addHeaderCell(new Cell().add(new Paragraph("Budget")).setBackgroundColor(lightBlue).setFontColor(blue).setBold());
-            table.addHeaderCell(new Cell().add(new Paragraph("Dépenses")).setBackgroundColor(lightBlue).setFontColor(blue).setBold());
-            table.addHeaderCell(new Cell().add(new Paragraph("Utilisation")).setBackgroundColor(lightBlue).setFontColor(blue).setBold());
-            table.addHeaderCell(new Cell().add(new Paragraph("Dépassement")).setBackgroundColor(lightBlue).setFontColor(blue).setBold());
-
-            for (Map<String, Object> category : categoryDetails) {
-                table.addCell(new Cell().add(new Paragraph(String.valueOf(category.get("name")))).setFontColor(gray));
-                double budget = new BigDecimal(String.valueOf(category.get("budget"))).doubleValue();
-                double expenses = new BigDecimal(String.valueOf(category.get("expenses"))).doubleValue();
-                double usage = Double.parseDouble(String.valueOf(category.get("usagePercentage")));
-                double over = new BigDecimal(String.valueOf(category.get("overBudgetAmount"))).doubleValue();
-                table.addCell(new Cell().add(new Paragraph(String.format("%.2f", budget))).setFontColor(gray));
-                table.addCell(new Cell().add(new Paragraph(String.format("%.2f", expenses))).setFontColor(gray));
-                table.addCell(new Cell().add(new Paragraph(String.format("%.1f%%", usage))).setFontColor(usage > 100 ? red : (usage > 80 ? blue : gray)).setBold());
-                table.addCell(new Cell().add(new Paragraph(over > 0 ? String.format("%.2f", over) : "-")).setFontColor(over > 0 ? red : green).setBold());
-            }
-            document.add(table);
-
-
-            if (base64Chart != null && !base64Chart.isEmpty()) {
-                Div chartDiv = new Div();
-                chartDiv.setKeepTogether(true);
-                chartDiv.add(new Paragraph("\n--- GRAPHIQUE ---").setBold());
-                base64Chart = base64Chart.replace("data:image/png;base64,", "").trim();
-                try {
-                    byte[] imageBytes = Base64.getDecoder().decode(base64Chart);
-                    com.itextpdf.layout.element.Image chartImage =
-                            new com.itextpdf.layout.element.Image(
-                                    com.itextpdf.io.image.ImageDataFactory.create(imageBytes));
-                    chartImage.setWidth(500);
-                    chartImage.setHeight(300);
-                    chartImage.setMarginTop(10);
-                    chartDiv.add(chartImage);
-                } catch (IllegalArgumentException e) {
-                    chartDiv.add(new Paragraph("Erreur : image du graphique invalide.").setFontColor(com.itextpdf.kernel.colors.ColorConstants.RED));
-                }
-                document.add(chartDiv);
-            } else {
-                document.add(new Paragraph("\n(Aucun graphique transmis)").setItalic());
+
+        if (base64Chart != null && !base64Chart.isEmpty()) {
+            Div chartDiv = new Div();
+            chartDiv.setKeepTogether(true);
+            chartDiv.add(new Paragraph("\n--- GRAPHIQUE ---").setBold());
+            base64Chart = base64Chart.replace("data:image/png;base64,", "").trim();
+            try {
+                byte[] imageBytes = Base64.getDecoder().decode(base64Chart);
+                com.itextpdf.layout.element.Image chartImage =
+                        new com.itextpdf.layout.element.Image(
+                                com.itextpdf.io.image.ImageDataFactory.create(imageBytes));
+                chartImage.setWidth(500);
+                chartImage.setHeight(300);
+                chartImage.setMarginTop(10);
+                chartDiv.add(chartImage);
+            } catch (IllegalArgumentException e) {
+                chartDiv.add(new Paragraph("Erreur : image du graphique invalide.").setFontColor(com.itextpdf.kernel.colors.ColorConstants.RED));
             }
+            document.add(chartDiv);
+        } else {
+            document.add(new Paragraph("\n(Aucun graphique transmis)").setItalic());
+        }
 
+        document.close();
+    }
 
+    /**
+     * Opens a document that writes straight to {@code out}. The stream is flushed but left open
+     * when the document is closed, so it can be a servlet response.
+     */
+    private Document openDocument(OutputStream out) {
+        PdfWriter writer = new PdfWriter(out);
+        writer.setCloseStream(false);
+        PdfDocument pdf = new PdfDocument(writer);
+        Document document = new Document(pdf);
+        document.setMargins(30, 30, 30, 30);
+        return document;
+    }
 
-            document.close();
-            return baos.toByteArray();
+    private void writeReportBody(Document document, Report report, String titleText) {
+        Color blue = new DeviceRgb(52, 73, 94);
+        Color red = new DeviceRgb(192, 57, 43);
+        Color lightBlue = new DeviceRgb(230, 236, 240);
+        Color gray = new DeviceRgb(71, 85, 105);
+        Color green = new DeviceRgb(39, 174, 96);
+
+        Paragraph title = new Paragraph(titleText)
+                .setFontSize(22)
+                .setBold()
+                .setFontColor(blue)
+                .setTextAlignment(TextAlignment.CENTER)
+                .setMarginBottom(18);
+        document.add(title);
+
+        Paragraph meta = new Paragraph()
+                .add(new Text("Type : ").setBold().setFontColor(blue))
+                .add(report.getType().getLabel() + "  ")
+                .add(new Text("Période : ").setBold().setFontColor(blue))
+                .add(report.getStartDate() + " au " + report.getEndDate() + "  ")
+                .add(new Text("Généré le : ").setBold().setFontColor(blue))
+                .add(report.getGeneratedAt().toString())
+                .setFontSize(11)
+                .setFontColor(gray)
+                .setMarginBottom(14);
+        document.add(meta);
+
+        Paragraph resume = new Paragraph("RÉSUMÉ")
+                .setFontSize(14)
+                .setBold()
+                .setFontColor(blue)
+                .setMarginTop(10);
+        document.add(resume);
+
+        document.add(new Paragraph(String.format("Budget total : %.2f MAD", report.getTotalBudget())).setFontColor(gray));
+        document.add(new Paragraph(String.format("Dépenses totales : %.2f MAD", report.getTotalExpenses())).setFontColor(gray));
+        document.add(new Paragraph(String.format("Économies : %.2f MAD", report.getTotalSavings()))
+                .setFontColor(report.getTotalSavings().compareTo(BigDecimal.ZERO) < 0 ? red : green));
+        if (report.getGlobalUsagePercentage() != null) {
+            document.add(new Paragraph(String.format("Utilisation : %.1f%%", report.getGlobalUsagePercentage())).setFontColor(gray));
+        }
 
-        } catch (Exception e) {
-            throw new RuntimeException("Erreur génération PDF avec graphique", e);
+        Paragraph analyse = new Paragraph("ANALYSE")
+                .setFontSize(14)
+                .setBold()
+                .setFontColor(blue)
+                .setMarginTop(16);
+        document.add(analyse);
+
+        document.add(new Paragraph("Catégorie dominante : " +
+                (report.getDominantCategory() != null ? report.getDominantCategory() : "N/A")
+                + " (" + String.format("%.2f MAD",
+                report.getDominantCategoryAmount() != null ? report.getDominantCategoryAmount() : BigDecimal.ZERO) + ")").setFontColor(gray));
+        document.add(new Paragraph("Catégories en dépassement : " +
+                (report.getOverBudgetCategoriesCount() != null ? report.getOverBudgetCategoriesCount() : 0)).setFontColor(gray));
+        document.add(new Paragraph("Montant total des dépassements : " +
+                String.format("%.2f MAD",
+                        report.getTotalOverBudgetAmount() != null ? report.getTotalOverBudgetAmount() : BigDecimal.ZERO)).setFontColor(gray));
+
+        Paragraph detail = new Paragraph("DÉTAIL PAR CATÉGORIE")
+                .setFontSize(14)
+                .setBold()
+                .setFontColor(blue)
+                .setMarginTop(16);
+        document.add(detail);
+
+        List<ReportDetails.CategoryLine> lines = getCategoryLines(report);
+
+        Table table = new Table(5);
+        table.setWidth(UnitValue.createPercentValue(100));
+        table.addHeaderCell(new Cell().add(new Paragraph("Catégorie")).setBackgroundColor(lightBlue).setFontColor(blue).setBold());
+        table.addHeaderCell(new Cell().add(new Paragraph("Budget")).setBackgroundColor(lightBlue).setFontColor(blue).setBold());
+        table.addHeaderCell(new Cell().add(new Paragraph("Dépenses")).setBackgroundColor(lightBlue).setFontColor(blue).setBold());
+        table.addHeaderCell(new Cell().add(new Paragraph("Utilisation")).setBackgroundColor(lightBlue).setFontColor(blue).setBold());
+        table.addHeaderCell(new Cell().add(new Paragraph("Dépassement")).setBackgroundColor(lightBlue).setFontColor(blue).setBold());
+
+        for (ReportDetails.CategoryLine line : lines) {
+            table.addCell(new Cell().add(new Paragraph(line.name())).setFontColor(gray));
+            double budget = line.budget().doubleValue();
+            double expenses = line.expenses().doubleValue();
+            double usage = line.usagePercentage();
+            double over = line.overBudgetAmount().doubleValue();
+            table.addCell(new Cell().add(new Paragraph(String.format("%.2f", budget))).setFontColor(gray));
+            table.addCell(new Cell().add(new Paragraph(String.format("%.2f", expenses))).setFontColor(gray));
+            table.addCell(new Cell().add(new Paragraph(String.format("%.1f%%", usage))).setFontColor(usage > 100 ? red : (usage > 80 ? blue : gray)).setBold());
+            table.addCell(new Cell().add(new Paragraph(over > 0 ? String.format("%.2f", over) : "-")).setFontColor(over > 0 ? red : green).setBold());
         }
+        document.add(table);
     }
-}
\ No newline at end of file
+}
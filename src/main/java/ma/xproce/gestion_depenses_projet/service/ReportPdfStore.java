@@ -0,0 +1,219 @@
+package ma.xproce.gestion_depenses_projet.service;
+
+import lombok.extern.slf4j.Slf4j;
+import ma.xproce.gestion_depenses_projet.dao.entities.Report;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Local file cache of exported report PDFs. Files are named {@code <reportId>-<hash>.pdf}, where
+ * the hash covers the report's summary fields and its last update time, so an updated report
+ * never serves a stale file. The cached files and their sizes are indexed in memory in access
+ * order, so writes evict the least recently used files against the byte budget without listing
+ * the directory. The index is rebuilt once at startup from a single listing, ordered by
+ * modification time, which every read also refreshes on disk.
+ */
+@Slf4j
+@Component
+public class ReportPdfStore {
+
+    private static final String LAYOUT_VERSION = "1";
+
+    @FunctionalInterface
+    public interface PdfWriterCallback {
+        void write(OutputStream out) throws IOException;
+    }
+
+    private final Path directory;
+    private final long maxBytes;
+    private final Map<Path, Long> files = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    public ReportPdfStore(@Value("${reports.pdf-cache.dir:${java.io.tmpdir}/gestion-depenses/pdf}") String directory,
+                          @Value("${reports.pdf-cache.max-bytes:268435456}") long maxBytes) {
+        this.directory = Paths.get(directory);
+        this.maxBytes = maxBytes;
+        loadIndex();
+    }
+
+    private void loadIndex() {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        List<Path> pdfs = new ArrayList<>();
+        try (Stream<Path> listing = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) listing::iterator) {
+                if (file.toString().endsWith(".pdf")) {
+                    pdfs.add(file);
+                } else if (file.toString().endsWith(".tmp")) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Impossible d'indexer le cache des PDF {}", directory, e);
+        }
+        pdfs.sort(Comparator.comparing(ReportPdfStore::lastModified));
+        for (Path file : pdfs) {
+            try {
+                long size = Files.size(file);
+                files.put(file, size);
+                totalBytes += size;
+            } catch (IOException e) {
+                log.debug("PDF {} ignoré à l'indexation", file, e);
+            }
+        }
+    }
+
+    public String contentHash(Report report) {
+        String content = String.join("|",
+                LAYOUT_VERSION,
+                String.valueOf(report.getId()),
+                String.valueOf(report.getType()),
+                String.valueOf(report.getStartDate()),
+                String.valueOf(report.getEndDate()),
+                String.valueOf(report.getGeneratedAt()),
+                String.valueOf(report.getUpdatedAt()),
+                String.valueOf(report.getTotalBudget()),
+                String.valueOf(report.getTotalExpenses()),
+                String.valueOf(report.getTotalSavings()),
+                String.valueOf(report.getGlobalUsagePercentage()),
+                String.valueOf(report.getDominantCategory()),
+                String.valueOf(report.getDominantCategoryAmount()),
+                String.valueOf(report.getOverBudgetCategoriesCount()),
+                String.valueOf(report.getTotalOverBudgetAmount()));
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Opens the cached PDF of {@code report}, writing it first when it is missing or stale. The
+     * returned channel keeps the file's content readable even if the file is evicted before the
+     * caller has finished with it; the caller closes it.
+     */
+    public FileChannel open(Report report, PdfWriterCallback writer) throws IOException {
+        Path target = directory.resolve(report.getId() + "-" + contentHash(report) + ".pdf");
+        if (Files.exists(target)) {
+            try {
+                FileChannel channel = FileChannel.open(target, StandardOpenOption.READ);
+                synchronized (this) {
+                    files.get(target);
+                }
+                touch(target);
+                return channel;
+            } catch (NoSuchFileException e) {
+                log.debug("PDF {} évincé pendant la lecture, régénération", target);
+            }
+        }
+
+        Files.createDirectories(directory);
+        Path tmp = Files.createTempFile(directory, report.getId() + "-", ".tmp");
+        FileChannel channel;
+        try {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tmp))) {
+                writer.write(out);
+            }
+            channel = FileChannel.open(tmp, StandardOpenOption.READ);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        try {
+            long size = channel.size();
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            added(report.getId(), target, size);
+        } catch (IOException e) {
+            log.warn("Impossible de mettre en cache le PDF du rapport {}", report.getId(), e);
+        }
+        return channel;
+    }
+
+    private static void touch(Path file) {
+        try {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            log.debug("Date d'accès du PDF {} non mise à jour", file, e);
+        }
+    }
+
+    public void evict(Long reportId) {
+        for (Path file : removeVersions(reportId, null)) {
+            delete(file);
+        }
+    }
+
+    private void added(Long reportId, Path target, long size) {
+        List<Path> obsolete;
+        synchronized (this) {
+            obsolete = removeVersions(reportId, target);
+            Long previous = files.put(target, size);
+            totalBytes += size - (previous != null ? previous : 0);
+            Iterator<Map.Entry<Path, Long>> eldest = files.entrySet().iterator();
+            while (totalBytes > maxBytes && eldest.hasNext()) {
+                Map.Entry<Path, Long> entry = eldest.next();
+                if (entry.getKey().equals(target)) {
+                    continue;
+                }
+                totalBytes -= entry.getValue();
+                obsolete.add(entry.getKey());
+                eldest.remove();
+            }
+        }
+        for (Path file : obsolete) {
+            delete(file);
+        }
+    }
+
+    private synchronized List<Path> removeVersions(Long reportId, Path keep) {
+        String prefix = reportId + "-";
+        List<Path> removed = new ArrayList<>();
+        Iterator<Map.Entry<Path, Long>> entries = files.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<Path, Long> entry = entries.next();
+            Path file = entry.getKey();
+            if (file.getFileName().toString().startsWith(prefix) && !file.equals(keep)) {
+                totalBytes -= entry.getValue();
+                removed.add(file);
+                entries.remove();
+            }
+        }
+        return removed;
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Impossible de supprimer le PDF {}", file, e);
+        }
+    }
+
+    private static FileTime lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+}
@@ -2,10 +2,13 @@ package ma.xproce.gestion_depenses_projet.service;
 
 import ma.xproce.gestion_depenses_projet.dao.entities.Report;
 import ma.xproce.gestion_depenses_projet.dao.entities.User;
+import ma.xproce.gestion_depenses_projet.dao.repositories.ReportSummary;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDate;
-import java.util.List;
-import java.util.Map;
 import java.util.Optional;
 
 public interface ReportService {
@@ -16,17 +19,19 @@ public interface ReportService {
 
     Report generateCustomReport(User user, LocalDate startDate, LocalDate endDate);
 
-    List<Report> getReportsByUser(User user);
+    Page<ReportSummary> getReportSummaries(User user, Pageable pageable);
 
     Optional<Report> getReportById(Long id);
 
     void deleteReport(User user, Long id);
 
-    Map<String, Object> getCategoryDetails(Report report);
+    ReportDetails.Categories getCategoryDetails(Report report);
 
-    Map<String, Object> getTimeSeriesData(Report report);
+    ReportDetails.TimeSeries getTimeSeriesData(Report report);
 
-    byte[] generatePdfReport(Report report);
+    ReportDetails.TimeSeries getTimeSeriesData(Report report, LocalDate from, LocalDate to);
 
-    public byte[] generatePdfReportWithChart(Report report, String base64Chart);
+    void writePdfReport(Report report, OutputStream out) throws IOException;
+
+    void writePdfReportWithChart(Report report, String base64Chart, OutputStream out) throws IOException;
 }
\ No newline at end of file
@@ -0,0 +1,92 @@
+package ma.xproce.gestion_depenses_projet.service;
+
+import lombok.RequiredArgsConstructor;
+import ma.xproce.gestion_depenses_projet.dao.entities.Category;
+import ma.xproce.gestion_depenses_projet.dao.entities.User;
+import ma.xproce.gestion_depenses_projet.dao.repositories.BudgetRepository;
+import ma.xproce.gestion_depenses_projet.dao.repositories.ExpenseRepository;
+import ma.xproce.gestion_depenses_projet.dao.repositories.ExpenseRollupRepository;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Loads every requested category with one grouped expense query and one grouped budget query,
+ * whatever the number of categories. Month and year series over whole months read the monthly
+ * rollups; day and week series, or ranges cutting a month, group the raw expenses by date.
+ */
+@Service
+@RequiredArgsConstructor
+public class StatisticsQueryManager implements StatisticsQueryService {
+
+    private final ExpenseRepository expenseRepository;
+    private final ExpenseRollupRepository expenseRollupRepository;
+    private final BudgetRepository budgetRepository;
+
+    @Override
+    public StatisticsSeries getSeries(User user, List<Category> categories, TimeBuckets.Granularity granularity,
+                                      LocalDate startDate, LocalDate endDate) {
+        granularity.checkSpan(startDate, endDate);
+
+        Map<Long, String> names = new LinkedHashMap<>();
+        for (Category category : categories) {
+            names.putIfAbsent(category.getId(), category.getName());
+        }
+
+        Map<Long, TimeBuckets> expenses = new LinkedHashMap<>();
+        Map<Long, TimeBuckets> budgets = new LinkedHashMap<>();
+        for (Long categoryId : names.keySet()) {
+            expenses.put(categoryId, new TimeBuckets(startDate, endDate));
+            budgets.put(categoryId, new TimeBuckets(startDate, endDate));
+        }
+
+        if (!names.isEmpty()) {
+            YearMonth startMonth = YearMonth.from(startDate);
+            YearMonth endMonth = YearMonth.from(endDate);
+
+            if (readsRollups(granularity, startDate, endDate)) {
+                for (Object[] row : expenseRollupRepository.findCategoryMonths(user, names.keySet(), startMonth, endMonth)) {
+                    expenses.get((Long) row[0]).add(((YearMonth) row[1]).atDay(1), (BigDecimal) row[2]);
+                }
+            } else {
+                for (Object[] row : expenseRepository.sumByCategoryAndDate(
+                        user, names.keySet(), startDate, endDate.plusDays(1))) {
+                    expenses.get((Long) row[0]).add((LocalDate) row[1], (BigDecimal) row[2]);
+                }
+            }
+
+            for (Object[] row : budgetRepository.sumByCategoryAndMonth(user, names.keySet(), startMonth, endMonth)) {
+                LocalDate monthStart = ((YearMonth) row[1]).atDay(1);
+                budgets.get((Long) row[0]).add(monthStart.isBefore(startDate) ? startDate : monthStart,
+                        (BigDecimal) row[2]);
+            }
+        }
+
+        TimeBuckets.Series axis = new TimeBuckets(startDate, endDate).aggregate(granularity);
+        String[] labels = new String[axis.size()];
+        for (int i = 0; i < labels.length; i++) {
+            labels[i] = axis.label(i);
+        }
+
+        List<StatisticsSeries.CategorySeries> series = new ArrayList<>(names.size());
+        names.forEach((categoryId, name) -> {
+            TimeBuckets.Series spent = expenses.get(categoryId).aggregate(granularity);
+            TimeBuckets.Series budgeted = budgets.get(categoryId).aggregate(granularity);
+            series.add(new StatisticsSeries.CategorySeries(categoryId, name,
+                    spent.totals(), spent.cumulative(), budgeted.totals()));
+        });
+        return new StatisticsSeries(granularity, axis.bucketStarts(), labels, series);
+    }
+
+    private static boolean readsRollups(TimeBuckets.Granularity granularity, LocalDate startDate, LocalDate endDate) {
+        return (granularity == TimeBuckets.Granularity.MONTH || granularity == TimeBuckets.Granularity.YEAR)
+                && startDate.getDayOfMonth() == 1
+                && endDate.equals(YearMonth.from(endDate).atEndOfMonth());
+    }
+}
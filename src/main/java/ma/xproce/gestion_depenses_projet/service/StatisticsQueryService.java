@@ -0,0 +1,19 @@
+package ma.xproce.gestion_depenses_projet.service;
+
+import ma.xproce.gestion_depenses_projet.dao.entities.Category;
+import ma.xproce.gestion_depenses_projet.dao.entities.User;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface StatisticsQueryService {
+
+    /**
+     * Buckets the expenses and budgets of {@code categories} over the closed range
+     * [{@code startDate}, {@code endDate}], one series per distinct category in the given order.
+     *
+     * @throws IllegalArgumentException if the range is longer than {@code granularity} allows
+     */
+    StatisticsSeries getSeries(User user, List<Category> categories, TimeBuckets.Granularity granularity,
+                               LocalDate startDate, LocalDate endDate);
+}
@@ -0,0 +1,29 @@
+package ma.xproce.gestion_depenses_projet.service;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Expense and budget series of several categories over the same buckets, amounts in cents.
+ * A monthly budget is counted in the bucket holding the first day of its month, or in the first
+ * bucket when that month started before the range.
+ */
+public record StatisticsSeries(TimeBuckets.Granularity granularity, LocalDate[] bucketStarts, String[] labels,
+                               List<CategorySeries> series) {
+
+    public int size() {
+        return bucketStarts.length;
+    }
+
+    public record CategorySeries(Long categoryId, String categoryName, long[] totals, long[] cumulative,
+                                 long[] budgets) {
+
+        public long budgetTotal() {
+            long total = 0;
+            for (long budget : budgets) {
+                total += budget;
+            }
+            return total;
+        }
+    }
+}
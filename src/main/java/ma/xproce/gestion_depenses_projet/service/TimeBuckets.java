@@ -0,0 +1,189 @@
+package ma.xproce.gestion_depenses_projet.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.Period;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.IsoFields;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * Daily amounts over a closed date range, stored as cents in a primitive array.
+ * Aggregating to day, week, month or year buckets is a single ordered pass
+ * over a prefix-sum array, whatever the length of the range.
+ */
+public final class TimeBuckets {
+
+    /**
+     * Each granularity caps the span it charts: the buckets keep one slot per day of the range,
+     * whatever the granularity, so an unbounded range would size the arrays from the request.
+     */
+    public enum Granularity {
+        DAY(Period.ofYears(1)),
+        WEEK(Period.ofYears(5)),
+        MONTH(Period.ofYears(20)),
+        YEAR(Period.ofYears(50));
+
+        private final Period maxSpan;
+
+        Granularity(Period maxSpan) {
+            this.maxSpan = maxSpan;
+        }
+
+        public Period getMaxSpan() {
+            return maxSpan;
+        }
+
+        public LocalDate earliestStart(LocalDate end) {
+            return end.minus(maxSpan);
+        }
+
+        public boolean allows(LocalDate start, LocalDate end) {
+            return !start.isBefore(earliestStart(end));
+        }
+
+        public void checkSpan(LocalDate start, LocalDate end) {
+            if (!allows(start, end)) {
+                throw new IllegalArgumentException("Période trop longue pour la granularité " + name()
+                        + " : " + maxSpan.getYears() + " an(s) au maximum");
+            }
+        }
+    }
+
+    private final LocalDate start;
+    private final LocalDate end;
+    private final long[] dailyCents;
+
+    public TimeBuckets(LocalDate start, LocalDate end) {
+        if (end.isBefore(start)) {
+            throw new IllegalArgumentException("La date de fin doit être après la date de début");
+        }
+        this.start = start;
+        this.end = end;
+        this.dailyCents = new long[Math.toIntExact(ChronoUnit.DAYS.between(start, end) + 1)];
+    }
+
+    public LocalDate getStart() {
+        return start;
+    }
+
+    public LocalDate getEnd() {
+        return end;
+    }
+
+    public void add(LocalDate date, BigDecimal amount) {
+        if (amount != null) {
+            addCents(date, toCents(amount));
+        }
+    }
+
+    public void addCents(LocalDate date, long cents) {
+        if (date == null || date.isBefore(start) || date.isAfter(end)) {
+            return;
+        }
+        dailyCents[(int) ChronoUnit.DAYS.between(start, date)] += cents;
+    }
+
+    public Series aggregate(Granularity granularity) {
+        int days = dailyCents.length;
+        long[] prefix = new long[days + 1];
+        for (int i = 0; i < days; i++) {
+            prefix[i + 1] = prefix[i] + dailyCents[i];
+        }
+
+        int capacity = bucketCount(granularity);
+        LocalDate[] bucketStarts = new LocalDate[capacity];
+        long[] totals = new long[capacity];
+        long[] cumulative = new long[capacity];
+
+        int bucket = 0;
+        int from = 0;
+        LocalDate bucketStart = align(start, granularity);
+        while (from < days) {
+            LocalDate next = next(bucketStart, granularity);
+            int to = (int) Math.min(days, ChronoUnit.DAYS.between(start, next));
+            bucketStarts[bucket] = bucketStart;
+            totals[bucket] = prefix[to] - prefix[from];
+            cumulative[bucket] = prefix[to];
+            bucket++;
+            from = to;
+            bucketStart = next;
+        }
+
+        return new Series(granularity, bucketStarts, totals, cumulative);
+    }
+
+    private int bucketCount(Granularity granularity) {
+        LocalDate first = align(start, granularity);
+        LocalDate last = align(end, granularity);
+        return Math.toIntExact(switch (granularity) {
+            case DAY -> ChronoUnit.DAYS.between(first, last);
+            case WEEK -> ChronoUnit.WEEKS.between(first, last);
+            case MONTH -> ChronoUnit.MONTHS.between(first, last);
+            case YEAR -> ChronoUnit.YEARS.between(first, last);
+        } + 1);
+    }
+
+    private static LocalDate align(LocalDate date, Granularity granularity) {
+        return switch (granularity) {
+            case DAY -> date;
+            case WEEK -> date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MONTH -> date.withDayOfMonth(1);
+            case YEAR -> date.withDayOfYear(1);
+        };
+    }
+
+    private static LocalDate next(LocalDate bucketStart, Granularity granularity) {
+        return switch (granularity) {
+            case DAY -> bucketStart.plusDays(1);
+            case WEEK -> bucketStart.plusWeeks(1);
+            case MONTH -> bucketStart.plusMonths(1);
+            case YEAR -> bucketStart.plusYears(1);
+        };
+    }
+
+    public static long toCents(BigDecimal amount) {
+        return amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal toAmount(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    /**
+     * Aggregated buckets in chronological order. {@code cumulative[i]} is the running
+     * total from the start of the range up to the end of bucket {@code i}.
+     */
+    public record Series(Granularity granularity, LocalDate[] bucketStarts, long[] totals, long[] cumulative) {
+
+        public int size() {
+            return totals.length;
+        }
+
+        public LocalDate bucketStart(int index) {
+            return bucketStarts[index];
+        }
+
+        public long total(int index) {
+            return totals[index];
+        }
+
+        public long cumulative(int index) {
+            return cumulative[index];
+        }
+
+        public String label(int index) {
+            LocalDate date = bucketStarts[index];
+            return switch (granularity) {
+                case DAY -> date.toString();
+                case WEEK -> String.format("%d-W%02d",
+                        date.get(IsoFields.WEEK_BASED_YEAR), date.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR));
+                case MONTH -> YearMonth.from(date).toString();
+                case YEAR -> String.valueOf(date.getYear());
+            };
+        }
+    }
+}
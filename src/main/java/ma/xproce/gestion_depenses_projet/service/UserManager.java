@@ -5,6 +5,7 @@ import ma.xproce.gestion_depenses_projet.dao.entities.User;
 import ma.xproce.gestion_depenses_projet.dao.repositories.UserRepository;
 import ma.xproce.gestion_depenses_projet.dao.repositories.ReportRepository;
 import ma.xproce.gestion_depenses_projet.dao.repositories.CategoryRepository;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -21,6 +22,7 @@ public class UserManager implements UserService {
     private final PasswordEncoder passwordEncoder;
     private final ReportRepository reportRepository;
     private final CategoryRepository categoryRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     public User register(User user) {
@@ -35,7 +37,9 @@ public class UserManager implements UserService {
             throw new RuntimeException("Nom d'utilisateur déjà utilisé !");
         }
         user.setPassword(passwordEncoder.encode(user.getPassword()));
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        eventPublisher.publishEvent(new AccountChangedEvent(saved.getId(), false));
+        return saved;
     }
 
     @Override
@@ -56,6 +60,7 @@ public class UserManager implements UserService {
     @Override
     public void deleteUser(Long id) {
         userRepository.deleteById(id);
+        eventPublisher.publishEvent(new AccountChangedEvent(id, true));
     }
 
     @Override
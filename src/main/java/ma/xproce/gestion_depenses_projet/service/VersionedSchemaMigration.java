@@ -0,0 +1,101 @@
+package ma.xproce.gestion_depenses_projet.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * One-off schema changes that Hibernate's schema update cannot express, such as dropping a table
+ * an entity no longer maps or creating a composite index. Each migration runs once and is then
+ * recorded by version in {@code schema_migration}; index steps look the index up by name first so
+ * they also apply cleanly to a schema that already has it. Runs once the persistence layer is up
+ * and before the web server and the scheduled jobs start.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class VersionedSchemaMigration implements SmartInitializingSingleton {
+
+    record Migration(String version, String description, List<Step> steps) {
+    }
+
+    interface Step {
+        void apply(JdbcTemplate jdbcTemplate);
+    }
+
+    static final List<Migration> MIGRATIONS = List.of(
+            new Migration("1", "Suppression des compteurs de dépenses remplacés par les agrégats mensuels",
+                    List.of(sql("DROP TABLE IF EXISTS spend_counter"))),
+            new Migration("2", "Un seul rapport par utilisateur et par période",
+                    List.of(sql("DELETE r FROM reports r JOIN reports kept ON kept.user_id = r.user_id " +
+                                    "AND kept.start_date = r.start_date AND kept.end_date = r.end_date AND kept.id < r.id"),
+                            sql("ALTER TABLE reports ADD CONSTRAINT uk_report_user_period " +
+                                    "UNIQUE (user_id, start_date, end_date)"))),
+            new Migration("3", "Index composites des requêtes mensuelles sur les dépenses et les budgets",
+                    List.of(createIndex("expense", "idx_expense_user_date", "user_id, date"),
+                            createIndex("expense", "idx_expense_user_category_date", "user_id, category_id, date"),
+                            createIndex("expense", "idx_expense_date_category", "date, category_id, amount"),
+                            createIndex("budget", "idx_budget_user_month_category", "user_id, month, category_id"))),
+            new Migration("4", "Index des classements mensuels sur les agrégats et les dépassements",
+                    List.of(createIndex("expense_month_rollup", "idx_rollup_month", "month, category_id"),
+                            createIndex("over_budget_entry", "idx_over_budget_month_overage", "month, overage"))),
+            new Migration("5", "Suppression des index qu'aucune requête n'utilise",
+                    List.of(dropIndex("expense", "idx_expense_user_amount"),
+                            dropIndex("budget", "idx_budget_month"))));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS schema_migration (" +
+                "version VARCHAR(32) NOT NULL PRIMARY KEY, " +
+                "description VARCHAR(255) NOT NULL, " +
+                "applied_at DATETIME NOT NULL)");
+        Set<String> applied = new HashSet<>(
+                jdbcTemplate.queryForList("SELECT version FROM schema_migration", String.class));
+
+        for (Migration migration : MIGRATIONS) {
+            if (applied.contains(migration.version())) {
+                continue;
+            }
+            migration.steps().forEach(step -> step.apply(jdbcTemplate));
+            jdbcTemplate.update("INSERT INTO schema_migration (version, description, applied_at) VALUES (?, ?, NOW())",
+                    migration.version(), migration.description());
+            log.info("Migration {} appliquée : {}", migration.version(), migration.description());
+        }
+    }
+
+    static Step sql(String statement) {
+        return jdbcTemplate -> jdbcTemplate.execute(statement);
+    }
+
+    static Step createIndex(String table, String name, String columns) {
+        return jdbcTemplate -> {
+            if (!indexExists(jdbcTemplate, table, name)) {
+                jdbcTemplate.execute("CREATE INDEX " + name + " ON " + table + " (" + columns + ")");
+            }
+        };
+    }
+
+    static Step dropIndex(String table, String name) {
+        return jdbcTemplate -> {
+            if (indexExists(jdbcTemplate, table, name)) {
+                jdbcTemplate.execute("DROP INDEX " + name + " ON " + table);
+            }
+        };
+    }
+
+    private static boolean indexExists(JdbcTemplate jdbcTemplate, String table, String name) {
+        Integer existing = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM information_schema.statistics WHERE table_schema = DATABASE() " +
+                        "AND table_name = ? AND index_name = ?",
+                Integer.class, table, name);
+        return existing != null && existing > 0;
+    }
+}
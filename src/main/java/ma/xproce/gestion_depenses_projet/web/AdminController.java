@@ -4,12 +4,20 @@ package ma.xproce.gestion_depenses_projet.web;
 import lombok.RequiredArgsConstructor;
 import ma.xproce.gestion_depenses_projet.dao.entities.Admin;
 import ma.xproce.gestion_depenses_projet.dao.entities.User;
+import ma.xproce.gestion_depenses_projet.service.AdminMetrics;
+import ma.xproce.gestion_depenses_projet.service.AdminMetricsService;
 import ma.xproce.gestion_depenses_projet.service.AdminService;
 import ma.xproce.gestion_depenses_projet.service.BudgetService;
 import ma.xproce.gestion_depenses_projet.service.CategoryService;
 import ma.xproce.gestion_depenses_projet.service.ExpenseService;
+import ma.xproce.gestion_depenses_projet.service.MostSpentCategory;
 import ma.xproce.gestion_depenses_projet.service.OverBudgetCategory;
+import ma.xproce.gestion_depenses_projet.service.OverBudgetLeaderboardPage;
+import ma.xproce.gestion_depenses_projet.service.OverBudgetLeaderboardService;
+import ma.xproce.gestion_depenses_projet.service.OverBudgetRank;
 import ma.xproce.gestion_depenses_projet.service.UserService;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Controller;
@@ -17,7 +25,11 @@ import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
+import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+import java.util.Optional;
 
 @Controller
 @RequiredArgsConstructor
@@ -29,34 +41,37 @@ public class AdminController {
     private final CategoryService categoryService;
     private final ExpenseService expenseService;
     private final BudgetService budgetService;
+    private final AdminMetricsService adminMetricsService;
+    private final OverBudgetLeaderboardService overBudgetLeaderboardService;
 
 
     @GetMapping("/home")
     public String adminHome(Model model) {
-        model.addAttribute("totalUsers", userService.getAllUsers().size());
-        model.addAttribute("totalAdmins", adminService.getAllAdmins().size());
-        model.addAttribute("totalCategories", categoryService.countAllCategories());
+        AdminMetrics metrics = adminMetricsService.getMetrics();
+        model.addAttribute("totalUsers", metrics.totalUsers());
+        model.addAttribute("totalAdmins", metrics.totalAdmins());
+        model.addAttribute("totalCategories", metrics.totalCategories());
 
-        var topCategory = expenseService.getTopSpendingCategoryForCurrentMonth();
+        var topCategory = Optional.ofNullable(metrics.topCategory());
         DateTimeFormatter monthFormatter = DateTimeFormatter.ofPattern("MM/yyyy");
         model.addAttribute("topCategoryName",
-            topCategory.map(value -> value.category().getName()).orElse("Aucune dépense"));
+            topCategory.map(MostSpentCategory::categoryName).orElse("Aucune dépense"));
         model.addAttribute("topCategoryAmount",
             topCategory.map(value -> value.totalAmount()).orElse(BigDecimal.ZERO));
         model.addAttribute("topCategoryMonth",
             topCategory.map(value -> value.month()).map(month -> month.format(monthFormatter)).orElse(""));
 
-        var overBudget = budgetService.getTopOverBudgetForCurrentOrPreviousMonth();
+        var overBudget = Optional.ofNullable(metrics.overBudget());
         model.addAttribute("overBudgetCategory",
-            overBudget.map(OverBudgetCategory::category).map(c -> c.getName()).orElse("Aucun dépassement"));
+            overBudget.map(OverBudgetRank::categoryName).orElse("Aucun dépassement"));
         model.addAttribute("overBudgetUser",
-            overBudget.map(OverBudgetCategory::user).map(User::getUsername).orElse(""));
+            overBudget.map(OverBudgetRank::username).orElse(""));
         model.addAttribute("overBudgetBudget",
-            overBudget.map(OverBudgetCategory::budgetAmount).orElse(BigDecimal.ZERO));
+            overBudget.map(OverBudgetRank::budgetAmount).orElse(BigDecimal.ZERO));
         model.addAttribute("overBudgetSpent",
-            overBudget.map(OverBudgetCategory::spentAmount).orElse(BigDecimal.ZERO));
+            overBudget.map(OverBudgetRank::spentAmount).orElse(BigDecimal.ZERO));
         model.addAttribute("overBudgetMonth",
-            overBudget.map(OverBudgetCategory::month).map(month -> month.format(monthFormatter)).orElse(""));
+            overBudget.map(OverBudgetRank::month).map(month -> month.format(monthFormatter)).orElse(""));
         
         BigDecimal percentage = overBudget.map(ob -> {
             if (ob.budgetAmount().compareTo(BigDecimal.ZERO) > 0) {
@@ -68,27 +83,26 @@ public class AdminController {
         }).orElse(BigDecimal.ZERO);
         model.addAttribute("overBudgetPercentage", percentage.setScale(1, java.math.RoundingMode.HALF_UP));
         
-        var allUsers = userService.getAllUsers();
-        model.addAttribute("recentUsers", allUsers.stream().limit(2).toList());
+        model.addAttribute("recentUsers", metrics.recentUsers());
         
         return "admin/admin-home";
     }
 
     @GetMapping("/overbudget")
     public String overBudgetDetails(Model model) {
-        var overBudget = budgetService.getTopOverBudgetForCurrentOrPreviousMonth();
+        var overBudget = Optional.ofNullable(adminMetricsService.getMetrics().overBudget());
         DateTimeFormatter monthFormatter = DateTimeFormatter.ofPattern("MM/yyyy");
 
         model.addAttribute("overBudgetCategory",
-            overBudget.map(OverBudgetCategory::category).map(c -> c.getName()).orElse("Aucun dépassement"));
+            overBudget.map(OverBudgetRank::categoryName).orElse("Aucun dépassement"));
         model.addAttribute("overBudgetUser",
-            overBudget.map(OverBudgetCategory::user).map(User::getUsername).orElse("--"));
+            overBudget.map(OverBudgetRank::username).orElse("--"));
         model.addAttribute("overBudgetBudget",
-            overBudget.map(OverBudgetCategory::budgetAmount).orElse(BigDecimal.ZERO));
+            overBudget.map(OverBudgetRank::budgetAmount).orElse(BigDecimal.ZERO));
         model.addAttribute("overBudgetSpent",
-            overBudget.map(OverBudgetCategory::spentAmount).orElse(BigDecimal.ZERO));
+            overBudget.map(OverBudgetRank::spentAmount).orElse(BigDecimal.ZERO));
         model.addAttribute("overBudgetMonth",
-            overBudget.map(OverBudgetCategory::month).map(month -> month.format(monthFormatter)).orElse("--"));
+            overBudget.map(OverBudgetRank::month).map(month -> month.format(monthFormatter)).orElse("--"));
 
         BigDecimal percentage = overBudget.map(ob -> {
             if (ob.budgetAmount().compareTo(BigDecimal.ZERO) > 0) {
@@ -103,6 +117,28 @@ public class AdminController {
         return "admin/admin-overbudget";
     }
 
+    @GetMapping("/overbudget/leaderboard")
+    @ResponseBody
+    public ResponseEntity<?> overBudgetLeaderboard(
+            @RequestParam(required = false) String month,
+            @RequestParam(required = false) String username,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) BigDecimal minOverage,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+
+        YearMonth leaderboardMonth;
+        try {
+            leaderboardMonth = month == null || month.isBlank() ? YearMonth.now() : YearMonth.parse(month);
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Mois invalide, format attendu : AAAA-MM"));
+        }
+
+        PageRequest pageable = PageRequest.of(Math.max(page, 0), Math.max(1, Math.min(size, 100)));
+        return ResponseEntity.ok(OverBudgetLeaderboardPage.of(overBudgetLeaderboardService.getLeaderboard(
+                leaderboardMonth, username, category, minOverage, pageable)));
+    }
+
 
 
 
@@ -122,7 +158,7 @@ public class AdminController {
         DateTimeFormatter monthFormatter = DateTimeFormatter.ofPattern("MM/yyyy");
         var mostUsedCategory = expenseService.getTopSpendingCategoryForUserCurrentMonth(user);
         model.addAttribute("mostUsedCategory",
-            mostUsedCategory.map(value -> value.category().getName()).orElse("Aucune dépense"));
+            mostUsedCategory.map(MostSpentCategory::categoryName).orElse("Aucune dépense"));
         model.addAttribute("mostUsedCategoryAmount",
             mostUsedCategory.map(value -> value.totalAmount()).orElse(BigDecimal.ZERO));
         model.addAttribute("mostUsedCategoryMonth",
@@ -131,7 +167,7 @@ public class AdminController {
 
         var overBudgetCategory = budgetService.getTopOverBudgetForUserCurrentOrPreviousMonth(user);
         model.addAttribute("overBudgetCategory",
-            overBudgetCategory.map(OverBudgetCategory::category).map(c -> c.getName()).orElse("Aucun dépassement"));
+            overBudgetCategory.map(OverBudgetCategory::categoryName).orElse("Aucun dépassement"));
         model.addAttribute("overBudgetBudget",
             overBudgetCategory.map(OverBudgetCategory::budgetAmount).orElse(BigDecimal.ZERO));
         model.addAttribute("overBudgetSpent",
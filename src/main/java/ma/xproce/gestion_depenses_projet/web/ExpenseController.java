@@ -4,7 +4,8 @@ import lombok.RequiredArgsConstructor;
 import ma.xproce.gestion_depenses_projet.dao.entities.Category;
 import ma.xproce.gestion_depenses_projet.dao.entities.Expense;
 import ma.xproce.gestion_depenses_projet.dao.entities.User;
-import ma.xproce.gestion_depenses_projet.service.BudgetService;
+import ma.xproce.gestion_depenses_projet.service.ExpenseAddResult;
+import ma.xproce.gestion_depenses_projet.service.ExpenseImportService;
 import ma.xproce.gestion_depenses_projet.service.ExpenseService;
 import ma.xproce.gestion_depenses_projet.service.CategoryService;
 import ma.xproce.gestion_depenses_projet.service.UserService;
@@ -13,14 +14,18 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.LocalDate;
-import java.time.YearMonth;
+import java.util.Map;
 
 @Controller
 @RequiredArgsConstructor
@@ -30,7 +35,7 @@ public class ExpenseController {
     private final ExpenseService expenseService;
     private final CategoryService categoryService;
     private final UserService userService;
-    private final BudgetService BudgetService;
+    private final ExpenseImportService expenseImportService;
 
     @GetMapping
     public String showExpenses(
@@ -128,47 +133,31 @@ public class ExpenseController {
         expense.setCategory(category);
 
 
-        YearMonth month = YearMonth.from(expense.getDate());
-        var budgetOpt = BudgetService.getBudget(user, category, month);
-
-        if (budgetOpt.isPresent()) {
-            var budget = budgetOpt.get();
-            var totalSpent = expenseService.getTotalSpentByMonthAndCategory(user, category, month);
-            var totalAfter = totalSpent.add(expense.getAmount());
-
-
-            if (totalAfter.compareTo(budget.getAmount()) > 0 && !confirmOverBudget) {
-              
-                Sort.Direction direction = Sort.Direction.DESC;
-                Pageable pageable = PageRequest.of(page, size, Sort.by(direction, "date"));
-                Page<Expense> expensePage = expenseService.searchExpenses(user, null, null, null, pageable);
-                model.addAttribute("expenses", expensePage.getContent());
-                model.addAttribute("expensePage", expensePage);
-                model.addAttribute("currentPage", page);
-                model.addAttribute("totalPages", expensePage.getTotalPages());
-                model.addAttribute("totalElements", expensePage.getTotalElements());
-                model.addAttribute("size", size);
-                model.addAttribute("sortBy", "date");
-                model.addAttribute("sortDirection", "DESC");
-                model.addAttribute("selectedCategoryId", null);
-                model.addAttribute("startDate", null);
-                model.addAttribute("endDate", null);
-                model.addAttribute("showOverBudgetModal", true);
-                model.addAttribute("budgetAmount", budget.getAmount());
-                model.addAttribute("totalSpent", totalSpent);
-                model.addAttribute("proposedExpense", expense);
-                model.addAttribute("categories", categoryService.getUserCategories(user));
-                model.addAttribute("expense", new Expense());
-                return "expenses";
-            }
-        }
-
-
-        if (confirmOverBudget) {
-            expense.setOverBudget(true);
+        ExpenseAddResult result = expenseService.addExpenseWithinBudget(user, expense, confirmOverBudget);
+        if (!result.isAdded()) {
+            Sort.Direction direction = Sort.Direction.DESC;
+            Pageable pageable = PageRequest.of(page, size, Sort.by(direction, "date"));
+            Page<Expense> expensePage = expenseService.searchExpenses(user, null, null, null, pageable);
+            model.addAttribute("expenses", expensePage.getContent());
+            model.addAttribute("expensePage", expensePage);
+            model.addAttribute("currentPage", page);
+            model.addAttribute("totalPages", expensePage.getTotalPages());
+            model.addAttribute("totalElements", expensePage.getTotalElements());
+            model.addAttribute("size", size);
+            model.addAttribute("sortBy", "date");
+            model.addAttribute("sortDirection", "DESC");
+            model.addAttribute("selectedCategoryId", null);
+            model.addAttribute("startDate", null);
+            model.addAttribute("endDate", null);
+            model.addAttribute("showOverBudgetModal", true);
+            model.addAttribute("budgetAmount", result.budgetAmount());
+            model.addAttribute("totalSpent", result.totalSpent());
+            model.addAttribute("proposedExpense", expense);
+            model.addAttribute("categories", categoryService.getUserCategories(user));
+            model.addAttribute("expense", new Expense());
+            return "expenses";
         }
 
-        expenseService.addExpense(user, expense);
         return String.format("redirect:/expenses?page=%d&size=%d", page, size);
     }
 
@@ -219,9 +208,26 @@ public class ExpenseController {
     }
 
 
+    @PostMapping("/import")
+    @ResponseBody
+    public ResponseEntity<?> importExpenses(
+            @AuthenticationPrincipal UserDetails userDetails,
+            @RequestParam("file") MultipartFile file) throws IOException {
+
+        User user = userService.findByUsername(userDetails.getUsername())
+                .orElseThrow(() -> new RuntimeException("User not found"));
+
+        try (InputStream input = file.getInputStream()) {
+            return ResponseEntity.ok(expenseImportService.importExpenses(user, file.getOriginalFilename(), input));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+
     @GetMapping("/page")
     @ResponseBody
-    public Page<Expense> getExpensesPage(
+    public ResponseEntity<?> getExpensesPage(
             @AuthenticationPrincipal UserDetails userDetails,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
@@ -229,7 +235,9 @@ public class ExpenseController {
             @RequestParam(defaultValue = "DESC") String sortDirection,
             @RequestParam(required = false) Long categoryId,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
-            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
 
         User user = userService.findByUsername(userDetails.getUsername())
                 .orElseThrow(() -> new RuntimeException("User not found"));
@@ -237,13 +245,23 @@ public class ExpenseController {
         Sort.Direction direction = sortDirection.equalsIgnoreCase("ASC")
                 ? Sort.Direction.ASC
                 : Sort.Direction.DESC;
-        Pageable pageable = PageRequest.of(page, size, Sort.by(direction, sortBy));
 
         Category category = categoryId != null
                 ? categoryService.getCategoryById(categoryId).orElse(null)
                 : null;
 
-        return expenseService.searchExpenses(user, category, startDate, endDate, pageable);
+        if (cursor != null) {
+            int scrollSize = Math.max(1, Math.min(size, 100));
+            try {
+                return ResponseEntity.ok(expenseService.scrollExpenses(
+                        user, category, startDate, endDate, sortBy, direction, cursor, scrollSize, includeTotal));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+            }
+        }
+
+        Pageable pageable = PageRequest.of(page, size, Sort.by(direction, sortBy));
+        return ResponseEntity.ok(expenseService.searchExpenses(user, category, startDate, endDate, pageable));
     }
 
 }
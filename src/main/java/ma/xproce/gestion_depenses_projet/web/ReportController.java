@@ -1,24 +1,39 @@
 package ma.xproce.gestion_depenses_projet.web;
 
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import ma.xproce.gestion_depenses_projet.dao.entities.Report;
 import ma.xproce.gestion_depenses_projet.dao.entities.User;
+import ma.xproce.gestion_depenses_projet.dao.repositories.ReportSummary;
+import ma.xproce.gestion_depenses_projet.service.ReportDetails;
+import ma.xproce.gestion_depenses_projet.service.ReportJob;
+import ma.xproce.gestion_depenses_projet.service.ReportJobService;
+import ma.xproce.gestion_depenses_projet.service.ReportPdfStore;
 import ma.xproce.gestion_depenses_projet.service.ReportService;
 import ma.xproce.gestion_depenses_projet.service.UserService;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.time.LocalDate;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.function.Supplier;
 
 @Slf4j
 @Controller
@@ -27,16 +42,25 @@ import java.util.Map;
 public class ReportController {
 
     private final ReportService reportService;
+    private final ReportJobService reportJobService;
+    private final ReportPdfStore reportPdfStore;
     private final UserService userService;
 
     @GetMapping
     public String showReports(@AuthenticationPrincipal UserDetails userDetails,
+                              @RequestParam(defaultValue = "0") int page,
+                              @RequestParam(defaultValue = "6") int size,
                               Model model) {
         User user = userService.findByUsername(userDetails.getUsername())
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
-
-        model.addAttribute("reports", reportService.getReportsByUser(user));
+        Page<ReportSummary> reportPage = reportService.getReportSummaries(
+                user, PageRequest.of(Math.max(page, 0), Math.min(Math.max(size, 1), 50)));
+        model.addAttribute("reports", reportPage.getContent());
+        model.addAttribute("reportPage", reportPage);
+        model.addAttribute("currentPage", reportPage.getNumber());
+        model.addAttribute("totalPages", reportPage.getTotalPages());
+        model.addAttribute("totalElements", reportPage.getTotalElements());
 
 
         LocalDate now = LocalDate.now();
@@ -70,21 +94,21 @@ public class ReportController {
             User user = userService.findByUsername(userDetails.getUsername())
                     .orElseThrow(() -> new RuntimeException("User not found"));
 
-            Report report = null;
+            Supplier<Report> generation;
 
             switch (reportType) {
                 case "MONTHLY":
                     if (year == null || month == null) {
                         throw new IllegalArgumentException("Année et mois requis pour rapport mensuel");
                     }
-                    report = reportService.generateMonthlyReport(user, year, month);
+                    generation = () -> reportService.generateMonthlyReport(user, year, month);
                     break;
 
                 case "ANNUAL":
                     if (year == null) {
                         throw new IllegalArgumentException("Année requise pour rapport annuel");
                     }
-                    report = reportService.generateAnnualReport(user, year);
+                    generation = () -> reportService.generateAnnualReport(user, year);
                     break;
 
                 case "CUSTOM":
@@ -94,16 +118,15 @@ public class ReportController {
                     if (endDate.isBefore(startDate)) {
                         throw new IllegalArgumentException("La date de fin doit être après la date de début");
                     }
-                    report = reportService.generateCustomReport(user, startDate, endDate);
+                    generation = () -> reportService.generateCustomReport(user, startDate, endDate);
                     break;
 
                 default:
                     throw new IllegalArgumentException("Type de rapport invalide");
             }
 
-            redirectAttributes.addFlashAttribute("success",
-                    "Rapport généré avec succès!");
-            return "redirect:/reports/view/" + report.getId();
+            ReportJob job = reportJobService.submit(user, generation);
+            return "redirect:/reports/jobs/" + job.getId();
 
         } catch (Exception e) {
             log.error("Erreur lors de la génération du rapport", e);
@@ -113,6 +136,55 @@ public class ReportController {
         }
     }
 
+    @GetMapping("/jobs/{jobId}")
+    public String showJob(@PathVariable String jobId,
+                          @AuthenticationPrincipal UserDetails userDetails,
+                          Model model,
+                          RedirectAttributes redirectAttributes) {
+        ReportJob job = getUserJob(jobId, userDetails);
+
+        switch (job.getStatus()) {
+            case DONE:
+                redirectAttributes.addFlashAttribute("success",
+                        "Rapport généré avec succès!");
+                return "redirect:/reports/view/" + job.getReportId();
+            case FAILED:
+                redirectAttributes.addFlashAttribute("error",
+                        "Erreur lors de la génération du rapport: " + job.getError());
+                return "redirect:/reports";
+            default:
+                model.addAttribute("job", job);
+                return "report-job";
+        }
+    }
+
+    @GetMapping("/jobs/{jobId}/status")
+    @ResponseBody
+    public Map<String, Object> getJobStatus(@PathVariable String jobId,
+                                            @AuthenticationPrincipal UserDetails userDetails) {
+        ReportJob job = getUserJob(jobId, userDetails);
+
+        Map<String, Object> status = new HashMap<>();
+        status.put("id", job.getId());
+        status.put("status", job.getStatus().name());
+        status.put("reportId", job.getReportId());
+        status.put("error", job.getError());
+        return status;
+    }
+
+    private ReportJob getUserJob(String jobId, UserDetails userDetails) {
+        User user = userService.findByUsername(userDetails.getUsername())
+                .orElseThrow(() -> new RuntimeException("User not found"));
+
+        ReportJob job = reportJobService.getJob(jobId)
+                .orElseThrow(() -> new RuntimeException("Job not found"));
+
+        if (!job.getUserId().equals(user.getId())) {
+            throw new RuntimeException("Access denied");
+        }
+        return job;
+    }
+
     @GetMapping("/view/{id}")
     public String viewReport(@PathVariable Long id,
                              @AuthenticationPrincipal UserDetails userDetails,
@@ -129,16 +201,14 @@ public class ReportController {
         }
 
         model.addAttribute("report", report);
-        model.addAttribute("categoryDetails", reportService.getCategoryDetails(report));
-        model.addAttribute("timeSeriesData", reportService.getTimeSeriesData(report));
 
         return "report-view";
     }
 
     @GetMapping("/data/{id}/categories")
     @ResponseBody
-    public Map<String, Object> getCategoryData(@PathVariable Long id,
-                                               @AuthenticationPrincipal UserDetails userDetails) {
+    public ReportDetails.Categories getCategoryData(@PathVariable Long id,
+                                                    @AuthenticationPrincipal UserDetails userDetails) {
         User user = userService.findByUsername(userDetails.getUsername())
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
@@ -154,8 +224,10 @@ public class ReportController {
 
     @GetMapping("/data/{id}/timeseries")
     @ResponseBody
-    public Map<String, Object> getTimeSeriesData(@PathVariable Long id,
-                                                 @AuthenticationPrincipal UserDetails userDetails) {
+    public ReportDetails.TimeSeries getTimeSeriesData(@PathVariable Long id,
+                                                      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                      @AuthenticationPrincipal UserDetails userDetails) {
         User user = userService.findByUsername(userDetails.getUsername())
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
@@ -166,12 +238,14 @@ public class ReportController {
             throw new RuntimeException("Access denied");
         }
 
-        return reportService.getTimeSeriesData(report);
+        return reportService.getTimeSeriesData(report, from, to);
     }
 
     @GetMapping("/export/{id}/pdf")
-    public ResponseEntity<byte[]> exportPdf(@PathVariable Long id,
-                                            @AuthenticationPrincipal UserDetails userDetails) {
+    public void exportPdf(@PathVariable Long id,
+                          @AuthenticationPrincipal UserDetails userDetails,
+                          ServletWebRequest webRequest,
+                          HttpServletResponse response) throws IOException {
         User user = userService.findByUsername(userDetails.getUsername())
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
@@ -183,18 +257,29 @@ public class ReportController {
             throw new RuntimeException("Access denied");
         }
 
-        byte[] pdfData = reportService.generatePdfReport(report);
-
         String filename = String.format("rapport_%s_%s_%s.pdf",
                 report.getType().name().toLowerCase(),
                 report.getStartDate(),
                 report.getEndDate());
 
-        return ResponseEntity.ok()
-                .header(HttpHeaders.CONTENT_DISPOSITION,
-                        "attachment; filename=\"" + filename + "\"")
-                .contentType(MediaType.APPLICATION_PDF)
-                .body(pdfData);
+        String etag = "\"" + reportPdfStore.contentHash(report) + "\"";
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().cachePrivate().getHeaderValue());
+        if (webRequest.checkNotModified(etag)) {
+            return;
+        }
+
+        try (FileChannel pdf = reportPdfStore.open(report, out -> reportService.writePdfReport(report, out))) {
+            response.setContentType(MediaType.APPLICATION_PDF_VALUE);
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                    "attachment; filename=\"" + filename + "\"");
+            response.setHeader(HttpHeaders.ETAG, etag);
+            response.setContentLengthLong(pdf.size());
+            WritableByteChannel body = Channels.newChannel(response.getOutputStream());
+            for (long position = 0, size = pdf.size(); position < size; ) {
+                position += pdf.transferTo(position, size - position, body);
+            }
+        }
+        response.flushBuffer();
     }
 
     @PostMapping("/delete/{id}")
@@ -219,10 +304,11 @@ public class ReportController {
     }
 
     @PostMapping("/export/{id}/pdf-with-chart")
-    public ResponseEntity<byte[]> exportPdfWithChart(
+    public void exportPdfWithChart(
             @PathVariable Long id,
             @RequestBody Map<String,String> request,
-            @AuthenticationPrincipal UserDetails userDetails) {
+            @AuthenticationPrincipal UserDetails userDetails,
+            HttpServletResponse response) throws IOException {
         User user = userService.findByUsername(userDetails.getUsername())
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
@@ -234,12 +320,11 @@ public class ReportController {
         }
 
         String base64Image = request.get("imageBase64");
-        byte[] pdfData = reportService.generatePdfReportWithChart(report, base64Image);
 
-        return ResponseEntity.ok()
-                .header(HttpHeaders.CONTENT_DISPOSITION,
-                        "attachment; filename=rapport_" + id + "_avec_graphique.pdf")
-                .contentType(MediaType.APPLICATION_PDF)
-                .body(pdfData);
+        response.setContentType(MediaType.APPLICATION_PDF_VALUE);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=rapport_" + id + "_avec_graphique.pdf");
+        reportService.writePdfReportWithChart(report, base64Image, response.getOutputStream());
+        response.flushBuffer();
     }
 }
\ No newline at end of file
@@ -1,23 +1,27 @@
 package ma.xproce.gestion_depenses_projet.web;
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
-import ma.xproce.gestion_depenses_projet.dao.entities.Budget;
 import ma.xproce.gestion_depenses_projet.dao.entities.Category;
-import ma.xproce.gestion_depenses_projet.dao.entities.Expense;
 import ma.xproce.gestion_depenses_projet.dao.entities.User;
+import ma.xproce.gestion_depenses_projet.dao.repositories.CategoryTotal;
 import ma.xproce.gestion_depenses_projet.service.*;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
-import java.time.Year;
 import java.time.YearMonth;
 import java.util.*;
-import java.util.stream.Collectors;
 
 @Controller
 @RequiredArgsConstructor
@@ -26,9 +30,10 @@ public class StatisticsController {
 
     private final ExpenseService expenseService;
     private final CategoryService categoryService;
-    private final BudgetService budgetService;
     private final UserService userService;
     private final LastMonthStatisticsService lastMonthStatisticsService;
+    private final StatisticsQueryService statisticsQueryService;
+    private final ObjectMapper objectMapper;
 
 
 
@@ -39,6 +44,7 @@ public class StatisticsController {
             @RequestParam(required = false) String graphType,
             @RequestParam(required = false) Long category1,
             @RequestParam(required = false) Long category2,
+            @RequestParam(required = false) List<Long> categories,
             @RequestParam(required = false) String periodType,
             @RequestParam(required = false) String singleMonth,
             @RequestParam(required = false) String startMonth,
@@ -47,7 +53,6 @@ public class StatisticsController {
     ) {
         User user = userService.findByUsername(userDetails.getUsername()).orElseThrow();
         List<Category> allCategories = categoryService.getUserCategories(user);
-        List<Budget> allBudgets = budgetService.getAllUserBudgets(user);
 
 
         if (singleMonth != null) singleMonth = singleMonth.trim().replaceAll("[^0-9\\-]", "");
@@ -71,9 +76,14 @@ public class StatisticsController {
             startDate = now.withDayOfMonth(1);
             endDate = now.withDayOfMonth(now.lengthOfMonth());
         }
+        if (endDate.isBefore(startDate)) {
+            LocalDate swap = startDate;
+            startDate = endDate;
+            endDate = swap;
+        }
 
 
-        List<Expense> expenses = expenseService.getExpensesByPeriod(user, startDate, endDate);
+        boolean dayView = "month".equals(periodType) && singleMonth != null && !singleMonth.isBlank();
 
 
         Map<String, Map<String, Double>> dataMap = new LinkedHashMap<>();
@@ -81,193 +91,67 @@ public class StatisticsController {
         Map<String, Map<String, Double>> budgetMap = new LinkedHashMap<>();
 
 
+        List<Long> selectedIds = new ArrayList<>();
+        TimeBuckets.Granularity granularity = TimeBuckets.Granularity.MONTH;
         if ("single".equals(graphType) && category1 != null && category1 > 0L) {
-            Category cat = allCategories.stream()
-                    .filter(c -> c.getId().equals(category1))
-                    .findFirst().orElse(null);
-
-            if (cat != null) {
-                long monthsBetween = startDate.until(endDate).toTotalMonths();
-
+            selectedIds.add(category1);
+            if (dayView) {
+                granularity = TimeBuckets.Granularity.DAY;
+            } else if (startDate.until(endDate).toTotalMonths() > 12) {
+                granularity = TimeBuckets.Granularity.YEAR;
+            }
+        } else if ("compare".equals(graphType) && category1 != null && category1 != -1L) {
+            selectedIds.add(category1);
+            if (category2 != null && category2 != 0L) {
+                selectedIds.add(category2);
+            }
+            if (categories != null) {
+                selectedIds.addAll(categories);
+            }
+            if (dayView) {
+                granularity = TimeBuckets.Granularity.DAY;
+            }
+        }
 
-                if ("month".equals(periodType) && singleMonth != null && !singleMonth.isBlank()) {
-                    YearMonth ymSelected = YearMonth.parse(singleMonth);
 
-                    Map<LocalDate, Double> daily = expenses.stream()
-                            .filter(e -> e.getCategory().getId().equals(category1))
-                            .collect(Collectors.groupingBy(
-                                    Expense::getDate,
-                                    TreeMap::new,
-                                    Collectors.summingDouble(e -> e.getAmount().doubleValue())
-                            ));
+        if (!selectedIds.isEmpty()) {
+            List<Category> selected = ownedCategories(allCategories, selectedIds);
 
+            if (!selected.isEmpty()) {
+                if (!granularity.allows(startDate, endDate)) {
+                    startDate = granularity.earliestStart(endDate);
+                }
+                StatisticsSeries series = statisticsQueryService.getSeries(user, selected, granularity, startDate, endDate);
+                for (StatisticsSeries.CategorySeries category : series.series()) {
                     Map<String, Double> converted = new LinkedHashMap<>();
                     Map<String, Double> cumulative = new LinkedHashMap<>();
-
-                    double runningTotal = 0;
-                    for (Map.Entry<LocalDate, Double> entry : daily.entrySet()) {
-                        runningTotal += entry.getValue();
-                        String key = entry.getKey().getDayOfMonth() + "/" + entry.getKey().getMonthValue();
-                        converted.put(key, entry.getValue());
-                        cumulative.put(key, runningTotal);
+                    Map<String, Double> budgetValues = new LinkedHashMap<>();
+
+                    for (int i = 0; i < series.size(); i++) {
+                        String key = dayView ? dayLabel(series.bucketStarts()[i]) : series.labels()[i];
+                        if (category.totals()[i] != 0) {
+                            converted.put(key, category.totals()[i] / 100.0);
+                            cumulative.put(key, category.cumulative()[i] / 100.0);
+                        }
+                        if (!dayView && category.budgets()[i] != 0) {
+                            budgetValues.put(key, category.budgets()[i] / 100.0);
+                        }
+                    }
+                    if (dayView && category.budgetTotal() != 0) {
+                        budgetValues.put("Budget", category.budgetTotal() / 100.0);
                     }
 
-                    dataMap.put(cat.getName(), converted);
-                    cumulativeMap.put(cat.getName(), cumulative);
-
-
-                    Map<String, Double> budgetDaily = allBudgets.stream()
-                            .filter(b -> b.getCategory().getId().equals(category1)
-                                    && b.getMonth().equals(ymSelected))
-                            .collect(Collectors.toMap(
-                                    b -> "Budget",
-                                    b -> b.getAmount().doubleValue(),
-                                    Double::sum
-                            ));
-                    budgetMap.put(cat.getName(), budgetDaily);
-                    model.addAttribute("timeScale", "day");
-
-                }
-
-                else if (monthsBetween > 12) {
-                    Map<Year, Double> yearly = expenses.stream()
-                            .filter(e -> e.getCategory().getId().equals(category1))
-                            .collect(Collectors.groupingBy(
-                                    e -> Year.from(e.getDate()),
-                                    TreeMap::new,
-                                    Collectors.summingDouble(e -> e.getAmount().doubleValue())
-                            ));
-                    Map<String, Double> converted = new LinkedHashMap<>();
-                    yearly.forEach((y, val) -> converted.put(y.toString(), val));
-                    dataMap.put(cat.getName(), converted);
-
-                    Map<String, Double> budgetYearly = allBudgets.stream()
-                            .filter(b -> b.getCategory().getId().equals(category1))
-                            .collect(Collectors.groupingBy(
-                                    b -> String.valueOf(b.getMonth().getYear()),
-                                    Collectors.summingDouble(b -> b.getAmount().doubleValue())
-                            ));
-                    budgetMap.put(cat.getName(), budgetYearly);
-                    model.addAttribute("timeScale", "year");
-                }
-
-                else {
-                    Map<YearMonth, Double> monthly = expenses.stream()
-                            .filter(e -> e.getCategory().getId().equals(category1))
-                            .collect(Collectors.groupingBy(
-                                    e -> YearMonth.from(e.getDate()),
-                                    TreeMap::new,
-                                    Collectors.summingDouble(e -> e.getAmount().doubleValue())
-                            ));
-                    Map<String, Double> converted = new LinkedHashMap<>();
-                    monthly.forEach((ym, val) -> converted.put(ym.toString(), val));
-                    dataMap.put(cat.getName(), converted);
-
-                    Map<String, Double> budgetMonthly = allBudgets.stream()
-                            .filter(b -> b.getCategory().getId().equals(category1))
-                            .collect(Collectors.toMap(
-                                    b -> b.getMonth().toString(),
-                                    b -> b.getAmount().doubleValue(),
-                                    Double::sum));
-                    budgetMap.put(cat.getName(), budgetMonthly);
-                    model.addAttribute("timeScale", "month");
-                }
-
-                model.addAttribute("chartKind", "line");
-            }
-        }
-
-
-        else if ("compare".equals(graphType) && category1 != null) {
-
-
-            if (category1 == -1L) {
-                Map<String, Double> totals = expenses.stream()
-                        .collect(Collectors.groupingBy(
-                                e -> e.getCategory().getName(),
-                                LinkedHashMap::new,
-                                Collectors.summingDouble(e -> e.getAmount().doubleValue())
-                        ));
-                dataMap.put("ALL", totals);
-                model.addAttribute("chartKind", "pie");
-            }
-            else {
-                List<Long> ids = new ArrayList<>();
-                ids.add(category1);
-                if (category2 != null && category2 != 0L)
-                    ids.add(category2);
-
-                for (Long id : ids) {
-                    Category cat = allCategories.stream()
-                            .filter(c -> c.getId().equals(id))
-                            .findFirst().orElse(null);
-                    if (cat == null) continue;
-
-                    if ("month".equals(periodType) && singleMonth != null && !singleMonth.isBlank()) {
-                        YearMonth ymSelected = YearMonth.parse(singleMonth);
-                        Map<LocalDate, Double> daily = expenses.stream()
-                                .filter(e -> e.getCategory().getId().equals(id))
-                                .filter(e -> YearMonth.from(e.getDate()).equals(ymSelected))
-                                .collect(Collectors.groupingBy(
-                                        Expense::getDate,
-                                        TreeMap::new,
-                                        Collectors.summingDouble(e -> e.getAmount().doubleValue())
-                                ));
-                        Map<String, Double> converted = new LinkedHashMap<>();
-                        daily.forEach((date, val) -> converted.put(date.getDayOfMonth() + "/" + date.getMonthValue(), val));
-                        dataMap.put(cat.getName(), converted);
-
-                        Map<String, Double> budgetValues = allBudgets.stream()
-                                .filter(b -> b.getCategory().getId().equals(id))
-                                .filter(b -> b.getMonth().equals(ymSelected))
-                                .collect(Collectors.toMap(
-                                        b -> "Budget",
-                                        b -> b.getAmount().doubleValue(),
-                                        Double::sum));
-                        budgetMap.put(cat.getName(), budgetValues);
-                        model.addAttribute("timeScale", "day");
-                    } else {
-                        
-                        Map<YearMonth, Double> monthly = expenses.stream()
-                                .filter(e -> e.getCategory().getId().equals(id))
-                                .collect(Collectors.groupingBy(
-                                        e -> YearMonth.from(e.getDate()),
-                                        TreeMap::new,
-                                        Collectors.summingDouble(e -> e.getAmount().doubleValue())
-                                ));
-                        Map<String, Double> converted = new LinkedHashMap<>();
-                        YearMonth ymStart = startMonth != null && !startMonth.isBlank() ? YearMonth.parse(startMonth) : null;
-                        YearMonth ymEnd = endMonth != null && !endMonth.isBlank() ? YearMonth.parse(endMonth) : null;
-                        monthly.forEach((ym, val) -> {
-                            if ((ymStart == null || !ym.isBefore(ymStart)) && (ymEnd == null || !ym.isAfter(ymEnd))) {
-                                converted.put(ym.toString(), val);
-                            }
-                        });
-                        dataMap.put(cat.getName(), converted);
-
-                        Map<String, Double> budgetValues = allBudgets.stream()
-                                .filter(b -> b.getCategory().getId().equals(id))
-                                .collect(Collectors.toMap(
-                                        b -> b.getMonth().toString(),
-                                        b -> b.getAmount().doubleValue(),
-                                        Double::sum));
-                        budgetMap.put(cat.getName(), budgetValues);
-                        model.addAttribute("timeScale", "month");
+                    dataMap.put(category.categoryName(), converted);
+                    if (dayView) {
+                        cumulativeMap.put(category.categoryName(), cumulative);
                     }
+                    budgetMap.put(category.categoryName(), budgetValues);
                 }
+                model.addAttribute("timeScale", granularity.name().toLowerCase());
                 model.addAttribute("chartKind", "line");
             }
-        }
-
-
-        else {
-            Map<String, Double> totals = expenses.stream()
-                    .collect(Collectors.groupingBy(
-                            e -> e.getCategory().getName(),
-                            LinkedHashMap::new,
-                            Collectors.summingDouble(e -> e.getAmount().doubleValue())
-                    ));
-            dataMap.put("ALL", totals);
+        } else {
+            dataMap.put("ALL", categoryTotals(user, startDate, endDate));
             model.addAttribute("chartKind", "pie");
         }
 
@@ -277,11 +161,10 @@ public class StatisticsController {
         model.addAttribute("cumulativeEvolution", cumulativeMap);
         model.addAttribute("budgetsEvolution", budgetMap);
 
-        ObjectMapper mapper = new ObjectMapper();
         try {
-            model.addAttribute("expensesEvolutionJson", mapper.writeValueAsString(dataMap));
-            model.addAttribute("cumulativeEvolutionJson", mapper.writeValueAsString(cumulativeMap));
-            model.addAttribute("budgetsEvolutionJson", mapper.writeValueAsString(budgetMap));
+            model.addAttribute("expensesEvolutionJson", objectMapper.writeValueAsString(dataMap));
+            model.addAttribute("cumulativeEvolutionJson", objectMapper.writeValueAsString(cumulativeMap));
+            model.addAttribute("budgetsEvolutionJson", objectMapper.writeValueAsString(budgetMap));
         } catch (Exception e) {
             model.addAttribute("expensesEvolutionJson", "{}");
             model.addAttribute("cumulativeEvolutionJson", "{}");
@@ -291,4 +174,119 @@ public class StatisticsController {
 
         return "statistics";
     }
+
+    /**
+     * Chart data in columns: one {@code labels} array shared by every series, each series holding
+     * plain number arrays aligned on it. Without categories, the labels are the category names and
+     * the single series holds their totals over the range.
+     */
+    @GetMapping("/data")
+    public void streamSeries(@AuthenticationPrincipal UserDetails userDetails,
+                             @RequestParam(required = false) List<Long> categories,
+                             @RequestParam(defaultValue = "MONTH") TimeBuckets.Granularity granularity,
+                             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                             HttpServletResponse response) throws IOException {
+        User user = userService.findByUsername(userDetails.getUsername()).orElseThrow();
+
+        LocalDate startDate = from != null ? from : LocalDate.now().withDayOfMonth(1);
+        LocalDate endDate = to != null ? to : YearMonth.from(startDate).atEndOfMonth();
+        if (endDate.isBefore(startDate)) {
+            LocalDate swap = startDate;
+            startDate = endDate;
+            endDate = swap;
+        }
+
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+
+        boolean chartsSeries = categories != null && !categories.isEmpty();
+        if (chartsSeries) {
+            try {
+                granularity.checkSpan(startDate, endDate);
+            } catch (IllegalArgumentException e) {
+                response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                objectMapper.writeValue(response.getOutputStream(), Map.of("error", e.getMessage()));
+                return;
+            }
+        }
+
+        if (!chartsSeries) {
+            List<CategoryTotal> totals = expenseService.getTopCategories(
+                    user, startDate, endDate.plusDays(1), Integer.MAX_VALUE);
+            try (JsonGenerator json = objectMapper.createGenerator(response.getOutputStream(), JsonEncoding.UTF8)) {
+                json.writeStartObject();
+                json.writeStringField("kind", "pie");
+                json.writeArrayFieldStart("labels");
+                for (CategoryTotal total : totals) {
+                    json.writeString(total.categoryName());
+                }
+                json.writeEndArray();
+                json.writeArrayFieldStart("series");
+                json.writeStartObject();
+                json.writeStringField("name", "Total");
+                json.writeArrayFieldStart("expenses");
+                for (CategoryTotal total : totals) {
+                    json.writeNumber(total.total());
+                }
+                json.writeEndArray();
+                json.writeEndObject();
+                json.writeEndArray();
+                json.writeEndObject();
+            }
+            return;
+        }
+
+        List<Category> selected = ownedCategories(categoryService.getUserCategories(user), categories);
+        StatisticsSeries series = statisticsQueryService.getSeries(user, selected, granularity, startDate, endDate);
+        try (JsonGenerator json = objectMapper.createGenerator(response.getOutputStream(), JsonEncoding.UTF8)) {
+            json.writeStartObject();
+            json.writeStringField("kind", "line");
+            json.writeStringField("granularity", series.granularity().name());
+            json.writeArrayFieldStart("labels");
+            for (String label : series.labels()) {
+                json.writeString(label);
+            }
+            json.writeEndArray();
+            json.writeArrayFieldStart("series");
+            for (StatisticsSeries.CategorySeries category : series.series()) {
+                json.writeStartObject();
+                json.writeNumberField("categoryId", category.categoryId());
+                json.writeStringField("name", category.categoryName());
+                writeAmounts(json, "expenses", category.totals());
+                writeAmounts(json, "cumulative", category.cumulative());
+                writeAmounts(json, "budgets", category.budgets());
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+            json.writeEndObject();
+        }
+    }
+
+    private static void writeAmounts(JsonGenerator json, String field, long[] cents) throws IOException {
+        json.writeArrayFieldStart(field);
+        for (long value : cents) {
+            json.writeNumber(value / 100.0);
+        }
+        json.writeEndArray();
+    }
+
+    private static List<Category> ownedCategories(List<Category> allCategories, Collection<Long> ids) {
+        return ids.stream()
+                .distinct()
+                .flatMap(id -> allCategories.stream().filter(c -> c.getId().equals(id)))
+                .toList();
+    }
+
+    private Map<String, Double> categoryTotals(User user, LocalDate startDate, LocalDate endDate) {
+        Map<String, Double> totals = new LinkedHashMap<>();
+        for (CategoryTotal total : expenseService.getTopCategories(user, startDate, endDate.plusDays(1), Integer.MAX_VALUE)) {
+            totals.put(total.categoryName(), total.total().doubleValue());
+        }
+        return totals;
+    }
+
+    private static String dayLabel(LocalDate date) {
+        return date.getDayOfMonth() + "/" + date.getMonthValue();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,109 @@
+package ma.xproce.gestion_depenses_projet.dao;
+
+import ma.xproce.gestion_depenses_projet.dao.entities.Budget;
+import ma.xproce.gestion_depenses_projet.dao.entities.Category;
+import ma.xproce.gestion_depenses_projet.dao.entities.ExpenseMonthRollup;
+import ma.xproce.gestion_depenses_projet.dao.entities.User;
+import ma.xproce.gestion_depenses_projet.dao.repositories.BudgetRepository;
+import ma.xproce.gestion_depenses_projet.dao.repositories.OverBudgetLine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class BudgetRepositoryTest {
+
+    private static final YearMonth MONTH = YearMonth.of(2024, 3);
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private BudgetRepository budgetRepository;
+
+    private User user;
+    private Category groceries;
+    private Category leisure;
+
+    @BeforeEach
+    void createBudgetsAndRollups() {
+        user = persistUser();
+        User other = persistUser();
+        groceries = persistCategory(user, "Courses");
+        leisure = persistCategory(user, "Loisirs");
+        Category rent = persistCategory(user, "Loyer");
+        Category otherGroceries = persistCategory(other, "Courses");
+
+        persistBudgetAndRollup(user, groceries, MONTH, "200.00", "250.50");
+        persistBudgetAndRollup(user, leisure, MONTH, "50.00", "170.00");
+        persistBudgetAndRollup(user, rent, MONTH, "700.00", "700.00");
+        persistBudgetAndRollup(user, leisure, MONTH.minusMonths(1), "50.00", "900.00");
+        persistBudgetAndRollup(other, otherGroceries, MONTH, "10.00", "999.00");
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void overBudgetLinesCarryIdsNamesAndAmountsByDescendingOverage() {
+        List<OverBudgetLine> lines = budgetRepository.findTopOverBudgetForUserAndMonth(user, MONTH, Pageable.unpaged());
+
+        assertThat(lines)
+                .usingRecursiveComparison()
+                .withComparatorForType(BigDecimal::compareTo, BigDecimal.class)
+                .isEqualTo(List.of(
+                        new OverBudgetLine(user.getId(), user.getUsername(), leisure.getId(), "Loisirs", MONTH,
+                                new BigDecimal("50.00"), new BigDecimal("170.00"), new BigDecimal("120.00")),
+                        new OverBudgetLine(user.getId(), user.getUsername(), groceries.getId(), "Courses", MONTH,
+                                new BigDecimal("200.00"), new BigDecimal("250.50"), new BigDecimal("50.50"))));
+    }
+
+    @Test
+    void overBudgetLinesArePaged() {
+        List<OverBudgetLine> lines = budgetRepository.findTopOverBudgetForUserAndMonth(user, MONTH, PageRequest.of(0, 1));
+
+        assertThat(lines).extracting(OverBudgetLine::categoryId).containsExactly(leisure.getId());
+    }
+
+    @Test
+    void monthsWithoutOverageHaveNoLine() {
+        List<OverBudgetLine> lines = budgetRepository.findTopOverBudgetForUserAndMonth(
+                user, MONTH.plusMonths(1), Pageable.unpaged());
+
+        assertThat(lines).isEmpty();
+    }
+
+    private User persistUser() {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        return entityManager.persist(User.builder()
+                .username("budget-" + suffix)
+                .email("budget-" + suffix + "@example.com")
+                .password("budget")
+                .build());
+    }
+
+    private Category persistCategory(User owner, String name) {
+        return entityManager.persist(Category.builder().name(name).user(owner).build());
+    }
+
+    private void persistBudgetAndRollup(User owner, Category category, YearMonth month, String budget, String spent) {
+        entityManager.persist(Budget.builder()
+                .user(owner).category(category).month(month).amount(new BigDecimal(budget))
+                .build());
+        entityManager.persist(ExpenseMonthRollup.builder()
+                .user(owner).category(category).month(month).total(new BigDecimal(spent)).expenseCount(1)
+                .build());
+    }
+}
@@ -0,0 +1,164 @@
+package ma.xproce.gestion_depenses_projet.dao;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ma.xproce.gestion_depenses_projet.dao.entities.Category;
+import ma.xproce.gestion_depenses_projet.dao.entities.Expense;
+import ma.xproce.gestion_depenses_projet.dao.entities.User;
+import ma.xproce.gestion_depenses_projet.dao.repositories.CategoryRepository;
+import ma.xproce.gestion_depenses_projet.dao.repositories.UserRepository;
+import org.hibernate.Session;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.function.IntFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares expense insert throughput with one statement per row against ordered JDBC batches
+ * fed by the pooled id generator, and against the same rows in a scratch table keyed by an
+ * IDENTITY column, for which Hibernate cannot batch. Needs the configured MySQL database, so it
+ * only runs with {@code -Dbenchmark=true}; the row count can be set with {@code -Dbenchmark.rows}.
+ * Throughputs are logged at info level.
+ */
+@Slf4j
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ExpenseInsertBenchmarkTest {
+
+    private static final int ROWS = Integer.getInteger("benchmark.rows", 20_000);
+    private static final int FLUSH_EVERY = 1000;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    private Long userId;
+    private Long categoryId;
+
+    @BeforeEach
+    void createOwner() {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        User user = userRepository.save(User.builder()
+                .username("benchmark-" + suffix)
+                .email("benchmark-" + suffix + "@example.com")
+                .password("benchmark")
+                .build());
+        Category category = categoryRepository.save(Category.builder()
+                .name("Benchmark")
+                .user(user)
+                .build());
+        userId = user.getId();
+        categoryId = category.getId();
+    }
+
+    @AfterEach
+    void deleteOwner() {
+        jdbcTemplate.update("DELETE FROM expense WHERE user_id = ?", userId);
+        jdbcTemplate.update("DELETE FROM benchmark_identity_expense WHERE user_id = ?", userId);
+        jdbcTemplate.update("DELETE FROM category WHERE id = ?", categoryId);
+        jdbcTemplate.update("DELETE FROM user WHERE id = ?", userId);
+    }
+
+    @Test
+    void batchedInsertsOutperformOneStatementPerRow() {
+        insert(Math.min(ROWS, 2000), 50, this::expense);
+        insert(Math.min(ROWS, 2000), 50, this::identityExpense);
+
+        double rowByRow = insert(ROWS, 1, this::expense);
+        double batched = insert(ROWS, 50, this::expense);
+        double identity = insert(ROWS, 50, this::identityExpense);
+
+        log.info("Insertion de {} dépenses : {} lignes/s une par une, {} lignes/s par lots (x{}), " +
+                        "{} lignes/s avec une clé IDENTITY (x{})",
+                ROWS, Math.round(rowByRow), Math.round(batched), String.format("%.1f", batched / rowByRow),
+                Math.round(identity), String.format("%.1f", identity / rowByRow));
+        assertThat(batched).isGreaterThan(rowByRow);
+        assertThat(batched).isGreaterThan(identity);
+    }
+
+    private Expense expense(int i) {
+        return Expense.builder()
+                .user(entityManager.getReference(User.class, userId))
+                .category(entityManager.getReference(Category.class, categoryId))
+                .date(LocalDate.now().minusDays(i % 365))
+                .amount(BigDecimal.valueOf(10 + i % 90))
+                .description("Dépense " + i)
+                .build();
+    }
+
+    private IdentityExpense identityExpense(int i) {
+        return IdentityExpense.builder()
+                .userId(userId)
+                .categoryId(categoryId)
+                .date(LocalDate.now().minusDays(i % 365))
+                .amount(BigDecimal.valueOf(10 + i % 90))
+                .description("Dépense " + i)
+                .build();
+    }
+
+    private double insert(int rows, int jdbcBatchSize, IntFunction<Object> row) {
+        long started = System.nanoTime();
+        transactionTemplate.executeWithoutResult(status -> {
+            entityManager.unwrap(Session.class).setJdbcBatchSize(jdbcBatchSize);
+            for (int i = 0; i < rows; i++) {
+                entityManager.persist(row.apply(i));
+                if ((i + 1) % FLUSH_EVERY == 0) {
+                    entityManager.flush();
+                    entityManager.clear();
+                }
+            }
+        });
+        double seconds = (System.nanoTime() - started) / 1_000_000_000.0;
+        return rows / seconds;
+    }
+
+    @Entity
+    @Table(name = "benchmark_identity_expense")
+    @Getter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    static class IdentityExpense {
+
+        @Id
+        @GeneratedValue(strategy = GenerationType.IDENTITY)
+        private Long id;
+
+        private Long userId;
+        private Long categoryId;
+        private LocalDate date;
+        private BigDecimal amount;
+        private String description;
+    }
+}
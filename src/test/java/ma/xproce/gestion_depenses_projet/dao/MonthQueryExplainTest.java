@@ -0,0 +1,295 @@
+package ma.xproce.gestion_depenses_projet.dao;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import ma.xproce.gestion_depenses_projet.dao.entities.Budget;
+import ma.xproce.gestion_depenses_projet.dao.entities.Category;
+import ma.xproce.gestion_depenses_projet.dao.entities.Expense;
+import ma.xproce.gestion_depenses_projet.dao.entities.User;
+import ma.xproce.gestion_depenses_projet.dao.repositories.BudgetRepository;
+import ma.xproce.gestion_depenses_projet.dao.repositories.ExpenseRepository;
+import ma.xproce.gestion_depenses_projet.dao.repositories.ExpenseRollupRepository;
+import ma.xproce.gestion_depenses_projet.dao.repositories.OverBudgetEntryRepository;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks with {@code EXPLAIN} that, without index hints, the optimizer range-scans the date column
+ * of the composite indexes for the month predicates of the expense and budget queries, seeks
+ * the rollup by its unique key in the over-budget join, and reads the cross-user monthly rankings
+ * through their month indexes. Each repository query is run once and the
+ * SQL Hibernate sent is captured by a statement inspector, then explained with the same arguments
+ * in the order their parameters appear. Two users are seeded over two years, the checked one
+ * holding a tenth of the rows, and the tables are analyzed so the plans are costed on real
+ * statistics.
+ */
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class MonthQueryExplainTest {
+
+    private static final YearMonth FIRST_MONTH = YearMonth.of(2023, 4);
+    private static final int MONTHS = 24;
+    private static final int CATEGORIES = 4;
+    private static final LocalDate START = LocalDate.of(2024, 3, 1);
+    private static final LocalDate END = START.plusMonths(1);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private ExpenseRepository expenseRepository;
+
+    @Autowired
+    private BudgetRepository budgetRepository;
+
+    @Autowired
+    private ExpenseRollupRepository expenseRollupRepository;
+
+    @Autowired
+    private OverBudgetEntryRepository overBudgetEntryRepository;
+
+    @Autowired
+    private CapturingStatementInspector statementInspector;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final List<Long> userIds = new ArrayList<>();
+    private Long userId;
+    private Long categoryId;
+
+    @BeforeAll
+    void seedExpensesAndBudgets() {
+        transactionTemplate.executeWithoutResult(status -> {
+            seedUser(5);
+            seedUser(45);
+        });
+        userId = userIds.get(0);
+        jdbcTemplate.update(
+                "INSERT INTO expense_month_rollup (user_id, category_id, month, total, expense_count, min_amount, max_amount) " +
+                        "SELECT user_id, category_id, DATE_FORMAT(date, '%Y-%m'), SUM(amount), COUNT(*), MIN(amount), MAX(amount) " +
+                        "FROM expense WHERE user_id IN (?, ?) GROUP BY user_id, category_id, DATE_FORMAT(date, '%Y-%m')",
+                userIds.get(0), userIds.get(1));
+        jdbcTemplate.update(
+                "INSERT INTO over_budget_entry (user_id, category_id, month, budget_amount, spent_amount, overage) " +
+                        "SELECT b.user_id, b.category_id, b.month, b.amount, r.total, r.total - b.amount " +
+                        "FROM budget b JOIN expense_month_rollup r " +
+                        "ON r.user_id = b.user_id AND r.category_id = b.category_id AND r.month = b.month " +
+                        "WHERE b.user_id IN (?, ?) AND r.total > b.amount",
+                userIds.get(0), userIds.get(1));
+        jdbcTemplate.execute("ANALYZE TABLE expense, budget, expense_month_rollup, over_budget_entry");
+    }
+
+    @AfterAll
+    void deleteSeededRows() {
+        for (Long id : userIds) {
+            jdbcTemplate.update("DELETE FROM over_budget_entry WHERE user_id = ?", id);
+            jdbcTemplate.update("DELETE FROM expense_month_rollup WHERE user_id = ?", id);
+            jdbcTemplate.update("DELETE FROM budget WHERE user_id = ?", id);
+            jdbcTemplate.update("DELETE FROM expense WHERE user_id = ?", id);
+            jdbcTemplate.update("DELETE FROM category WHERE user_id = ?", id);
+            jdbcTemplate.update("DELETE FROM user WHERE id = ?", id);
+        }
+    }
+
+    private void seedUser(int expensesPerCategoryAndMonth) {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        User user = User.builder()
+                .username("explain-" + suffix)
+                .email("explain-" + suffix + "@example.com")
+                .password("explain")
+                .build();
+        entityManager.persist(user);
+        userIds.add(user.getId());
+        for (int c = 0; c < CATEGORIES; c++) {
+            Category category = Category.builder().name("Explain " + c).user(user).build();
+            entityManager.persist(category);
+            if (categoryId == null) {
+                categoryId = category.getId();
+            }
+            for (int m = 0; m < MONTHS; m++) {
+                YearMonth month = FIRST_MONTH.plusMonths(m);
+                entityManager.persist(Budget.builder().user(user).category(category).month(month)
+                        .amount(BigDecimal.valueOf(100)).build());
+                for (int i = 0; i < expensesPerCategoryAndMonth; i++) {
+                    entityManager.persist(Expense.builder().user(user).category(category)
+                            .date(month.atDay(1 + i % month.lengthOfMonth()))
+                            .amount(BigDecimal.valueOf(10 + i))
+                            .description("Explain " + i)
+                            .build());
+                }
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void monthTotalForCategoryRangeScansUserCategoryDate() throws Exception {
+        String sql = capture(() -> expenseRepository.getTotalSpentByUserAndCategoryAndMonth(
+                user(), category(), START, END));
+        JsonNode expense = explain(sql, userId, categoryId, START, END).get(alias(sql, "expense"));
+
+        assertThat(expense.path("key").asText()).isEqualTo("idx_expense_user_category_date");
+        assertThat(expense.path("access_type").asText()).isEqualTo("range");
+        assertThat(keyParts(expense)).containsExactly("user_id", "category_id", "date");
+    }
+
+    @Test
+    void dailyExpensesRangeScanUserDate() throws Exception {
+        String sql = capture(() -> expenseRepository.getDailyExpenses(user(), START, END));
+        JsonNode expense = explain(sql, userId, START, END).get(alias(sql, "expense"));
+
+        assertThat(expense.path("key").asText()).isEqualTo("idx_expense_user_date");
+        assertThat(keyParts(expense)).containsExactly("user_id", "date");
+    }
+
+    @Test
+    void topCategoriesForMonthRangeScanDate() throws Exception {
+        String sql = capture(() -> expenseRepository.findTopCategories(START, END, PageRequest.of(0, 5)));
+        JsonNode expense = explain(sql, START, END, 5).get(alias(sql, "expense"));
+
+        assertThat(expense.path("key").asText()).isEqualTo("idx_expense_date_category");
+        assertThat(expense.path("access_type").asText()).isEqualTo("range");
+        assertThat(keyParts(expense)).containsExactly("date");
+    }
+
+    @Test
+    void overBudgetJoinSeeksBudgetAndRollupKeys() throws Exception {
+        String sql = capture(() -> budgetRepository.findTopOverBudgetForUserAndMonth(
+                user(), YearMonth.from(START), PageRequest.of(0, 5)));
+        Map<String, JsonNode> plan = explain(sql, userId, "2024-03", 5);
+        JsonNode budget = plan.get(alias(sql, "budget"));
+        JsonNode rollup = plan.get(alias(sql, "expense_month_rollup"));
+
+        assertThat(budget.path("key").asText()).isEqualTo("idx_budget_user_month_category");
+        assertThat(keyParts(budget)).containsExactly("user_id", "month");
+        assertThat(rollup.path("key").asText()).isEqualTo("uk_rollup_user_category_month");
+        assertThat(keyParts(rollup)).containsExactly("user_id", "category_id", "month");
+    }
+
+    @Test
+    void topCategoriesFromRollupsRangeScanMonth() throws Exception {
+        YearMonth month = YearMonth.from(START);
+        String sql = capture(() -> expenseRollupRepository.findTopCategories(month, month, PageRequest.of(0, 5)));
+        JsonNode rollup = explain(sql, "2024-03", "2024-03", 5).get(alias(sql, "expense_month_rollup"));
+
+        assertThat(rollup.path("key").asText()).isEqualTo("idx_rollup_month");
+        assertThat(keyParts(rollup)).first().isEqualTo("month");
+    }
+
+    @Test
+    void leaderboardReadsTheMonthInOverageOrder() throws Exception {
+        String sql = capture(() -> overBudgetEntryRepository.findLeaderboard(
+                YearMonth.from(START), null, null, null, PageRequest.of(0, 5)));
+        JsonNode entry = explain(sql, "2024-03", null, null, null, null, null, null, 5)
+                .get(alias(sql, "over_budget_entry"));
+
+        assertThat(entry.path("key").asText()).isEqualTo("idx_over_budget_month_overage");
+        assertThat(keyParts(entry)).containsExactly("month");
+    }
+
+    private User user() {
+        return entityManager.getReference(User.class, userId);
+    }
+
+    private Category category() {
+        return entityManager.getReference(Category.class, categoryId);
+    }
+
+    private String capture(Runnable query) {
+        statementInspector.statements.clear();
+        transactionTemplate.executeWithoutResult(status -> query.run());
+        return statementInspector.statements.stream()
+                .filter(sql -> sql.startsWith("select"))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private static String alias(String sql, String table) {
+        Matcher matcher = Pattern.compile("\\b" + table + "\\s+(\\w+)").matcher(sql);
+        assertThat(matcher.find()).as("table %s in %s", table, sql).isTrue();
+        return matcher.group(1);
+    }
+
+    private Map<String, JsonNode> explain(String sql, Object... args) throws Exception {
+        String json = jdbcTemplate.queryForObject("EXPLAIN FORMAT=JSON " + sql, String.class, args);
+        Map<String, JsonNode> tables = new HashMap<>();
+        collectTables(objectMapper.readTree(json), tables);
+        return tables;
+    }
+
+    private static void collectTables(JsonNode node, Map<String, JsonNode> tables) {
+        if (node.has("table_name") && node.has("access_type")) {
+            tables.put(node.get("table_name").asText(), node);
+        }
+        for (JsonNode child : node) {
+            if (child.isContainerNode()) {
+                collectTables(child, tables);
+            }
+        }
+    }
+
+    private static List<String> keyParts(JsonNode table) {
+        List<String> parts = new ArrayList<>();
+        table.path("used_key_parts").forEach(part -> parts.add(part.asText()));
+        return parts;
+    }
+
+    static class CapturingStatementInspector implements StatementInspector {
+
+        final List<String> statements = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            statements.add(sql);
+            return sql;
+        }
+    }
+
+    @TestConfiguration
+    static class StatementCaptureConfig {
+
+        @Bean
+        CapturingStatementInspector capturingStatementInspector() {
+            return new CapturingStatementInspector();
+        }
+
+        @Bean
+        HibernatePropertiesCustomizer statementInspectorCustomizer(CapturingStatementInspector inspector) {
+            return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, inspector);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package ma.xproce.gestion_depenses_projet.dao;
+
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import ma.xproce.gestion_depenses_projet.dao.entities.Budget;
+import ma.xproce.gestion_depenses_projet.dao.entities.Category;
+import ma.xproce.gestion_depenses_projet.dao.entities.User;
+import ma.xproce.gestion_depenses_projet.dao.repositories.BudgetRepository;
+import ma.xproce.gestion_depenses_projet.dao.repositories.CategoryRepository;
+import ma.xproce.gestion_depenses_projet.dao.repositories.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the heap allocated by the per-user over-budget query when it selects whole
+ * {@code User} and {@code Category} entities against the constructor projection of ids, names
+ * and amounts. Both queries share the joins and filters of the repository query and run in a
+ * read-write transaction, where entities are also snapshotted for dirty checking. Needs the
+ * configured MySQL database, so it only runs with {@code -Dbenchmark=true}; the category count can
+ * be set with {@code -Dbenchmark.categories}. Allocations are logged at info level; the values
+ * themselves are checked by {@link BudgetRepositoryTest}.
+ */
+@Slf4j
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class OverBudgetProjectionBenchmarkTest {
+
+    private static final int CATEGORIES = Integer.getInteger("benchmark.categories", 2000);
+    private static final int ITERATIONS = 50;
+    private static final YearMonth MONTH = YearMonth.of(2024, 3);
+
+    private static final String ENTITY_TUPLES = """
+            SELECT b.user, b.category, b.month, b.amount, r.total, r.total - b.amount
+            FROM Budget b
+            JOIN ExpenseMonthRollup r ON r.user = b.user AND r.category = b.category AND r.month = b.month
+            WHERE b.user = :user AND b.month = :month AND r.total > b.amount
+            ORDER BY (r.total - b.amount) DESC
+            """;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private BudgetRepository budgetRepository;
+
+    private Long userId;
+
+    @BeforeEach
+    void createOverBudgetCategories() {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        User user = userRepository.save(User.builder()
+                .username("benchmark-" + suffix)
+                .email("benchmark-" + suffix + "@example.com")
+                .password("benchmark")
+                .build());
+        userId = user.getId();
+
+        List<Category> categories = new ArrayList<>();
+        for (int i = 0; i < CATEGORIES; i++) {
+            categories.add(Category.builder().name("Benchmark " + i).user(user).build());
+        }
+        categories = categoryRepository.saveAll(categories);
+
+        List<Budget> budgets = new ArrayList<>();
+        List<Object[]> rollups = new ArrayList<>();
+        for (int i = 0; i < categories.size(); i++) {
+            Category category = categories.get(i);
+            budgets.add(Budget.builder().user(user).category(category).month(MONTH)
+                    .amount(BigDecimal.valueOf(100)).build());
+            rollups.add(new Object[]{userId, category.getId(), MONTH.toString(), BigDecimal.valueOf(101 + i), 1});
+        }
+        budgetRepository.saveAll(budgets);
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO expense_month_rollup (user_id, category_id, month, total, expense_count) VALUES (?, ?, ?, ?, ?)",
+                rollups);
+    }
+
+    @AfterEach
+    void deleteOwner() {
+        jdbcTemplate.update("DELETE FROM expense_month_rollup WHERE user_id = ?", userId);
+        jdbcTemplate.update("DELETE FROM budget WHERE user_id = ?", userId);
+        jdbcTemplate.update("DELETE FROM category WHERE user_id = ?", userId);
+        jdbcTemplate.update("DELETE FROM user WHERE id = ?", userId);
+    }
+
+    @Test
+    void projectionAllocatesLessThanEntityTuples() {
+        User user = userRepository.getReferenceById(userId);
+        Supplier<List<?>> entities = () -> entityManager.createQuery(ENTITY_TUPLES, Object[].class)
+                .setParameter("user", user)
+                .setParameter("month", MONTH)
+                .getResultList();
+        Supplier<List<?>> projection = () ->
+                budgetRepository.findTopOverBudgetForUserAndMonth(user, MONTH, Pageable.unpaged());
+
+        allocatedPerRun(entities, 5);
+        allocatedPerRun(projection, 5);
+
+        long entityBytes = allocatedPerRun(entities, ITERATIONS);
+        long projectionBytes = allocatedPerRun(projection, ITERATIONS);
+
+        log.info("Dépassements de {} catégories : {} Ko alloués avec les entités, {} Ko avec la projection (x{})",
+                CATEGORIES, entityBytes / 1024, projectionBytes / 1024,
+                String.format("%.1f", (double) entityBytes / projectionBytes));
+        assertThat(projectionBytes).isLessThan(entityBytes);
+    }
+
+    private long allocatedPerRun(Supplier<List<?>> query, int iterations) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long started = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < iterations; i++) {
+            transactionTemplate.executeWithoutResult(status ->
+                    assertThat(query.get()).hasSize(CATEGORIES));
+        }
+        return (threads.getThreadAllocatedBytes(threadId) - started) / iterations;
+    }
+}
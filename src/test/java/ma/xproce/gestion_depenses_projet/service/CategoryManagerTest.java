@@ -0,0 +1,73 @@
+package ma.xproce.gestion_depenses_projet.service;
+
+import ma.xproce.gestion_depenses_projet.dao.entities.Category;
+import ma.xproce.gestion_depenses_projet.dao.entities.Expense;
+import ma.xproce.gestion_depenses_projet.dao.entities.User;
+import ma.xproce.gestion_depenses_projet.dao.repositories.CategoryRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CategoryManagerTest {
+
+    @Mock
+    private CategoryRepository categoryRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @InjectMocks
+    private CategoryManager categoryManager;
+
+    @Test
+    void deletingACategoryAnnouncesTheRemovalOfItsExpenses() {
+        User user = User.builder().id(1L).build();
+        Category category = Category.builder().id(7L).name("Loisirs").user(user).expenses(new ArrayList<>()).build();
+        category.getExpenses().add(Expense.builder().id(1L).user(user).category(category)
+                .date(LocalDate.of(2024, 3, 5)).amount(new BigDecimal("12.00")).build());
+        category.getExpenses().add(Expense.builder().id(2L).user(user).category(category)
+                .date(LocalDate.of(2024, 4, 1)).amount(new BigDecimal("30.00")).build());
+        when(categoryRepository.findById(7L)).thenReturn(Optional.of(category));
+
+        categoryManager.deleteCategory(7L);
+
+        ArgumentCaptor<Object> events = ArgumentCaptor.forClass(Object.class);
+        InOrder inOrder = inOrder(categoryRepository, eventPublisher);
+        inOrder.verify(categoryRepository).delete(category);
+        inOrder.verify(eventPublisher, times(2)).publishEvent(events.capture());
+
+        ExpenseChangedEvent expenses = (ExpenseChangedEvent) events.getAllValues().get(0);
+        assertThat(expenses.user()).isSameAs(user);
+        assertThat(expenses.changes()).extracting(ExpenseChangedEvent.Change::after).containsOnlyNulls();
+        assertThat(expenses.changes()).extracting(change -> change.before().date())
+                .containsExactly(LocalDate.of(2024, 3, 5), LocalDate.of(2024, 4, 1));
+        assertThat(events.getAllValues().get(1)).isEqualTo(new CategoryChangedEvent(user, 7L, true));
+    }
+
+    @Test
+    void deletingAnEmptyCategoryOnlyAnnouncesTheCategory() {
+        User user = User.builder().id(1L).build();
+        Category category = Category.builder().id(8L).name("Vide").user(user).expenses(List.of()).build();
+        when(categoryRepository.findById(8L)).thenReturn(Optional.of(category));
+
+        categoryManager.deleteCategory(8L);
+
+        verify(eventPublisher).publishEvent(new CategoryChangedEvent(user, 8L, true));
+        verifyNoMoreInteractions(eventPublisher);
+    }
+}
@@ -0,0 +1,71 @@
+package ma.xproce.gestion_depenses_projet.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CsvExpenseParserTest {
+
+    private final CsvExpenseParser parser = new CsvExpenseParser();
+
+    @Test
+    void importsDebitRowsWithDecimalComma() throws IOException {
+        CollectingSink sink = parse("""
+                date;montant;catégorie;libellé
+                15/03/2024;1 234,50;Loyer;Mars
+                """);
+
+        assertThat(sink.errors).isEmpty();
+        assertThat(sink.records).containsExactly(new ExpenseRecord(
+                2, LocalDate.of(2024, 3, 15), new BigDecimal("1234.50"), "Loyer", "Mars"));
+    }
+
+    @Test
+    void skipsCreditRowInsteadOfImportingItAsExpense() throws IOException {
+        CollectingSink sink = parse("""
+                date,amount,category
+                2024-03-15,42.00,Courses
+                2024-03-16,-20.00,Courses
+                """);
+
+        assertThat(sink.records).extracting(ExpenseRecord::amount).containsExactly(new BigDecimal("42.00"));
+        assertThat(sink.errors).isEmpty();
+        assertThat(sink.skipped).containsExactly("3: Crédit ou remboursement ignoré : -20.00");
+    }
+
+    private CollectingSink parse(String content) throws IOException {
+        CollectingSink sink = new CollectingSink();
+        parser.parse(new BufferedReader(new StringReader(content)), sink);
+        return sink;
+    }
+
+    static class CollectingSink implements ExpenseRecordParser.Sink {
+
+        final List<ExpenseRecord> records = new ArrayList<>();
+        final List<String> errors = new ArrayList<>();
+        final List<String> skipped = new ArrayList<>();
+
+        @Override
+        public void record(ExpenseRecord record) {
+            records.add(record);
+        }
+
+        @Override
+        public void error(long line, String message) {
+            errors.add(line + ": " + message);
+        }
+
+        @Override
+        public void skip(long line, String reason) {
+            skipped.add(line + ": " + reason);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package ma.xproce.gestion_depenses_projet.service;
+
+import jakarta.persistence.EntityManager;
+import ma.xproce.gestion_depenses_projet.dao.entities.Budget;
+import ma.xproce.gestion_depenses_projet.dao.entities.Category;
+import ma.xproce.gestion_depenses_projet.dao.entities.Expense;
+import ma.xproce.gestion_depenses_projet.dao.entities.User;
+import ma.xproce.gestion_depenses_projet.dao.repositories.ExpenseRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ExpenseImportManagerTest {
+
+    @Mock
+    private CategoryService categoryService;
+
+    @Mock
+    private ExpenseRepository expenseRepository;
+
+    @Mock
+    private BudgetService budgetService;
+
+    @Mock
+    private ExpenseRollupService expenseRollupService;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private TransactionStatus transactionStatus;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private ExpenseImportManager importManager;
+
+    private final User user = User.builder().id(1L).username("userdemo").build();
+    private final Category courses = Category.builder().id(3L).name("Courses").user(user).build();
+
+    @BeforeEach
+    void setUp() {
+        importManager = new ExpenseImportManager(List.of(new CsvExpenseParser()), categoryService,
+                expenseRepository, budgetService, expenseRollupService, entityManager,
+                transactionTemplate, eventPublisher, 2);
+        when(categoryService.getUserCategories(user)).thenReturn(List.of(courses));
+        doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(transactionStatus);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+    }
+
+    @Test
+    void rejectedRowRollsBackTheWholeImport() throws IOException {
+        ExpenseImportResult result = importCsv("""
+                date,amount,category
+                2024-03-01,10.00,Courses
+                2024-03-02,12.00,Courses
+                2024-03-03,abc,Courses
+                2024-03-04,8.00,Courses
+                """);
+
+        verify(transactionStatus).setRollbackOnly();
+        assertThat(result.totalRows()).isEqualTo(4);
+        assertThat(result.importedRows()).isZero();
+        assertThat(result.rejectedRows()).isEqualTo(1);
+        assertThat(result.errors()).extracting(ExpenseImportResult.RowError::line).containsExactly(4L);
+    }
+
+    @Test
+    void creditRowsAreSkippedAndReportedWithoutFailingTheImport() throws IOException {
+        ExpenseImportResult result = importCsv("""
+                date,amount,category
+                2024-03-01,10.00,Courses
+                2024-03-02,-4.00,Courses
+                """);
+
+        verify(transactionStatus, never()).setRollbackOnly();
+        assertThat(result.totalRows()).isEqualTo(2);
+        assertThat(result.importedRows()).isEqualTo(1);
+        assertThat(result.skippedRows()).isEqualTo(1);
+        assertThat(result.skipped()).extracting(ExpenseImportResult.RowError::line).containsExactly(3L);
+    }
+
+    @Test
+    void expensesPastTheMonthBudgetAreFlagged() throws IOException {
+        List<Expense> saved = new ArrayList<>();
+        when(expenseRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            saved.addAll(invocation.getArgument(0));
+            return invocation.getArgument(0);
+        });
+        when(budgetService.getBudget(user, courses, YearMonth.of(2024, 3))).thenReturn(Optional.of(
+                Budget.builder().amount(new BigDecimal("100.00")).build()));
+        when(expenseRollupService.lockMonthTotal(user, courses, YearMonth.of(2024, 3)))
+                .thenReturn(new BigDecimal("80.00"));
+
+        ExpenseImportResult result = importCsv("""
+                date,amount,category
+                2024-03-01,15.00,Courses
+                2024-03-02,10.00,Courses
+                """);
+
+        assertThat(saved).extracting(Expense::isOverBudget).containsExactly(false, true);
+        verify(expenseRollupService, times(1)).lockMonthTotal(any(), any(), any());
+        verify(transactionStatus, never()).setRollbackOnly();
+        assertThat(result.importedRows()).isEqualTo(2);
+        assertThat(result.overBudgetRows()).isEqualTo(1);
+    }
+
+    private ExpenseImportResult importCsv(String content) throws IOException {
+        return importManager.importExpenses(user, "depenses.csv",
+                new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+    }
+}
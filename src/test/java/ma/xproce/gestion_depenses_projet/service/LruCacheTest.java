@@ -0,0 +1,36 @@
+package ma.xproce.gestion_depenses_projet.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LruCacheTest {
+
+    @Test
+    void valueLoadedWhileAnEvictionHappensIsNotKept() {
+        LruCache<String, Long> cache = new LruCache<>(10);
+
+        long loaded = cache.get("total", () -> {
+            cache.evict("total");
+            return 1L;
+        });
+
+        assertThat(loaded).isEqualTo(1L);
+        assertThat(cache.getIfPresent("total")).isNull();
+        assertThat(cache.get("total", () -> 2L)).isEqualTo(2L);
+        assertThat(cache.getIfPresent("total")).isEqualTo(2L);
+    }
+
+    @Test
+    void leastRecentlyUsedEntryIsDroppedBeyondCapacity() {
+        LruCache<String, Long> cache = new LruCache<>(2);
+        cache.get("a", () -> 1L);
+        cache.get("b", () -> 2L);
+        cache.getIfPresent("a");
+        cache.get("c", () -> 3L);
+
+        assertThat(cache.getIfPresent("b")).isNull();
+        assertThat(cache.getIfPresent("a")).isEqualTo(1L);
+        assertThat(cache.getIfPresent("c")).isEqualTo(3L);
+    }
+}
@@ -0,0 +1,38 @@
+package ma.xproce.gestion_depenses_projet.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class QifExpenseParserTest {
+
+    private final QifExpenseParser parser = new QifExpenseParser();
+
+    @Test
+    void importsDebitsAsPositiveExpensesAndSkipsCredits() throws IOException {
+        CsvExpenseParserTest.CollectingSink sink = new CsvExpenseParserTest.CollectingSink();
+        parser.parse(new BufferedReader(new StringReader("""
+                !Type:Bank
+                D15/03/2024
+                T-42.50
+                LCourses:Alimentation
+                PMarché
+                ^
+                D16/03/2024
+                T1500.00
+                LSalaire
+                ^
+                """)), sink);
+
+        assertThat(sink.records).containsExactly(new ExpenseRecord(
+                2, LocalDate.of(2024, 3, 15), new BigDecimal("42.50"), "Courses", "Marché"));
+        assertThat(sink.errors).isEmpty();
+        assertThat(sink.skipped).containsExactly("7: Crédit ou remboursement ignoré : 1500.00");
+    }
+}
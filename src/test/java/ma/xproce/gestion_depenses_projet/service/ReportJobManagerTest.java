@@ -0,0 +1,96 @@
+package ma.xproce.gestion_depenses_projet.service;
+
+import ma.xproce.gestion_depenses_projet.dao.entities.Report;
+import ma.xproce.gestion_depenses_projet.dao.entities.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ReportJobManagerTest {
+
+    private static final int MAX_PENDING = 2;
+
+    private final ReportJobManager reportJobManager = new ReportJobManager(1, 50, MAX_PENDING, 30);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final User user = User.builder().id(1L).build();
+
+    private final Supplier<Report> blockedGeneration = () -> {
+        try {
+            release.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return Report.builder().id(1L).build();
+    };
+
+    @AfterEach
+    void shutdown() {
+        release.countDown();
+        reportJobManager.shutdown();
+    }
+
+    @Test
+    void concurrentSubmitsNeverExceedThePendingLimit() throws Exception {
+        int callers = 16;
+        CountDownLatch ready = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                results.add(pool.submit(() -> {
+                    ready.await();
+                    try {
+                        reportJobManager.submit(user, blockedGeneration);
+                        return true;
+                    } catch (IllegalStateException e) {
+                        return false;
+                    }
+                }));
+            }
+            ready.countDown();
+
+            int accepted = 0;
+            for (Future<Boolean> result : results) {
+                if (result.get(10, TimeUnit.SECONDS)) {
+                    accepted++;
+                }
+            }
+            assertThat(accepted).isEqualTo(MAX_PENDING);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void finishedJobsFreeTheirSlot() throws Exception {
+        ReportJob first = reportJobManager.submit(user, blockedGeneration);
+        reportJobManager.submit(user, blockedGeneration);
+        assertThatThrownBy(() -> reportJobManager.submit(user, blockedGeneration))
+                .isInstanceOf(IllegalStateException.class);
+
+        release.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        ReportJob next = null;
+        while (next == null && System.nanoTime() < deadline) {
+            try {
+                next = reportJobManager.submit(user, () -> Report.builder().id(2L).build());
+            } catch (IllegalStateException e) {
+                Thread.sleep(10);
+            }
+        }
+
+        assertThat(first.isFinished()).isTrue();
+        assertThat(next).isNotNull();
+    }
+}
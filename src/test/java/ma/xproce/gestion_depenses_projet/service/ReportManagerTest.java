@@ -0,0 +1,206 @@
+package ma.xproce.gestion_depenses_projet.service;
+
+import ma.xproce.gestion_depenses_projet.dao.entities.Category;
+import ma.xproce.gestion_depenses_projet.dao.entities.Report;
+import ma.xproce.gestion_depenses_projet.dao.entities.ReportCategoryLine;
+import ma.xproce.gestion_depenses_projet.dao.entities.ReportSeriesPoint;
+import ma.xproce.gestion_depenses_projet.dao.entities.User;
+import ma.xproce.gestion_depenses_projet.dao.repositories.BudgetRepository;
+import ma.xproce.gestion_depenses_projet.dao.repositories.ExpenseRepository;
+import ma.xproce.gestion_depenses_projet.dao.repositories.ExpenseRollupRepository;
+import ma.xproce.gestion_depenses_projet.dao.repositories.ReportCategoryLineRepository;
+import ma.xproce.gestion_depenses_projet.dao.repositories.ReportDetailJdbcRepository;
+import ma.xproce.gestion_depenses_projet.dao.repositories.ReportRepository;
+import ma.xproce.gestion_depenses_projet.dao.repositories.ReportSeriesPointRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReportManagerTest {
+
+    @Mock
+    private ReportRepository reportRepository;
+
+    @Mock
+    private ExpenseRepository expenseRepository;
+
+    @Mock
+    private ExpenseRollupRepository expenseRollupRepository;
+
+    @Mock
+    private BudgetRepository budgetRepository;
+
+    @Mock
+    private CategoryService categoryService;
+
+    @Mock
+    private ReportCategoryLineRepository reportCategoryLineRepository;
+
+    @Mock
+    private ReportSeriesPointRepository reportSeriesPointRepository;
+
+    @Mock
+    private ReportDetailJdbcRepository reportDetailJdbcRepository;
+
+    @Mock
+    private ReportDetailsCache reportDetailsCache;
+
+    @Mock
+    private ReportPdfStore reportPdfStore;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @InjectMocks
+    private ReportManager reportManager;
+
+    private final User user = User.builder().id(1L).username("userdemo").build();
+
+    @BeforeEach
+    void setUp() {
+        List<Category> categories = IntStream.rangeClosed(1, 30)
+                .mapToObj(i -> Category.builder().id((long) i).name("Catégorie " + i).user(user).build())
+                .toList();
+        lenient().when(categoryService.getUserCategories(user)).thenReturn(categories);
+        lenient().when(reportRepository.saveAndFlush(any(Report.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        lenient().when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+    }
+
+    @Test
+    void annualReportLoadsBudgetsWithASingleQuery() {
+        List<Object[]> rows = new ArrayList<>();
+        for (int month = 1; month <= 12; month++) {
+            for (int cat = 1; cat <= 30; cat++) {
+                rows.add(new Object[]{(long) cat, "Catégorie " + cat, YearMonth.of(2024, month), new BigDecimal("10.00")});
+            }
+        }
+        when(budgetRepository.sumBudgetsByCategoryAndMonth(user, YearMonth.of(2024, 1), YearMonth.of(2024, 12)))
+                .thenReturn(rows);
+
+        Report report = reportManager.generateAnnualReport(user, 2024);
+
+        assertThat(mockingDetails(budgetRepository).getInvocations()).hasSize(1);
+        verify(budgetRepository).sumBudgetsByCategoryAndMonth(user, YearMonth.of(2024, 1), YearMonth.of(2024, 12));
+        assertThat(report.getTotalBudget()).isEqualByComparingTo("3600.00");
+    }
+
+    @Test
+    void budgetQueryCountDoesNotGrowWithPeriodLength() {
+        reportManager.generateMonthlyReport(user, 2024, 2);
+        reportManager.generateCustomReport(user, LocalDate.of(2020, 1, 1), LocalDate.of(2024, 12, 31));
+
+        assertThat(mockingDetails(budgetRepository).getInvocations()).hasSize(2);
+        verify(budgetRepository, never()).findByUserAndCategoryAndMonth(any(), any(), any());
+    }
+
+    @Test
+    void expensesAreAggregatedByTheDatabase() {
+        LocalDate start = LocalDate.of(2024, 3, 1);
+        LocalDate end = LocalDate.of(2024, 3, 31);
+        when(expenseRepository.getExpensesByCategoryForPeriod(user, start, end)).thenReturn(List.of(
+                new Object[]{1L, "Catégorie 1", new BigDecimal("120.50"), 3L},
+                new Object[]{2L, "Catégorie 2", new BigDecimal("40.00"), 1L}));
+        when(expenseRepository.getDailyExpensesForPeriod(user, start, end)).thenReturn(List.of(
+                new Object[]{LocalDate.of(2024, 3, 2), new BigDecimal("100.00")},
+                new Object[]{LocalDate.of(2024, 3, 15), new BigDecimal("60.50")}));
+
+        Report report = reportManager.generateMonthlyReport(user, 2024, 3);
+
+        assertThat(report.getTotalExpenses()).isEqualByComparingTo("160.50");
+        assertThat(report.getDominantCategory()).isEqualTo("Catégorie 1");
+        verify(expenseRepository, never()).findByUserAndDateBetween(any(), any(), any());
+    }
+
+    @Test
+    void concurrentGenerationOfTheSamePeriodReturnsTheCommittedReport() {
+        LocalDate start = LocalDate.of(2024, 3, 1);
+        LocalDate end = LocalDate.of(2024, 3, 31);
+        Report committed = Report.builder().id(42L).user(user).startDate(start).endDate(end).build();
+        when(reportRepository.findByUserAndPeriod(user, start, end))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(committed));
+        when(reportRepository.saveAndFlush(any(Report.class)))
+                .thenThrow(new DataIntegrityViolationException("uk_report_user_period"));
+
+        Report report = reportManager.generateMonthlyReport(user, 2024, 3);
+
+        assertThat(report).isSameAs(committed);
+        verify(reportDetailJdbcRepository, never()).insertCategoryLines(any(), any());
+    }
+
+    @Test
+    void expenseOfARenamedCategoryUpdatesItsExistingLine() {
+        Report report = monthlyReport();
+        ReportCategoryLine line = ReportCategoryLine.builder().id(7L).report(report)
+                .categoryId(1L).categoryName("Ancien nom")
+                .budget(new BigDecimal("100.00")).expenses(new BigDecimal("20.00"))
+                .usagePercentage(20.0).overBudgetAmount(BigDecimal.ZERO).transactionCount(1)
+                .build();
+        when(reportRepository.findOverlapping(user, LocalDate.of(2024, 3, 5), LocalDate.of(2024, 3, 5)))
+                .thenReturn(List.of(report));
+        when(reportCategoryLineRepository.findByReportId(report.getId())).thenReturn(new ArrayList<>(List.of(line)));
+
+        reportManager.onExpenseChanged(ExpenseChangedEvent.of(user, null,
+                new ExpenseChangedEvent.Snapshot(1L, "Nouveau nom", LocalDate.of(2024, 3, 5), new BigDecimal("15.00"))));
+
+        assertThat(line.getExpenses()).isEqualByComparingTo("35.00");
+        assertThat(line.getTransactionCount()).isEqualTo(2);
+        verify(reportCategoryLineRepository).saveAll(List.of(line));
+        verify(reportDetailJdbcRepository).addExpenses(report.getId(), LocalDate.of(2024, 3, 5), new BigDecimal("15.00"));
+    }
+
+    @Test
+    void partialSeriesStartsFromTheSumOfEarlierPoints() {
+        Report report = monthlyReport();
+        LocalDate from = LocalDate.of(2024, 3, 10);
+        LocalDate to = LocalDate.of(2024, 3, 11);
+        when(reportSeriesPointRepository.sumBefore(report.getId(), from)).thenReturn(List.<Object[]>of(
+                new Object[]{new BigDecimal("90.00"), new BigDecimal("30.00")}));
+        when(reportSeriesPointRepository.findRange(report.getId(), from, to)).thenReturn(List.of(
+                point(from, "5.00", "3.00"),
+                point(to, "0.00", "3.00")));
+
+        List<ReportDetails.SeriesPoint> series = reportManager.getTimeSeriesData(report, from, to).series();
+
+        assertThat(series).extracting(ReportDetails.SeriesPoint::expenses)
+                .usingElementComparator(BigDecimal::compareTo)
+                .containsExactly(new BigDecimal("95.00"), new BigDecimal("95.00"));
+        assertThat(series).extracting(ReportDetails.SeriesPoint::budget)
+                .usingElementComparator(BigDecimal::compareTo)
+                .containsExactly(new BigDecimal("33.00"), new BigDecimal("36.00"));
+    }
+
+    private Report monthlyReport() {
+        return Report.builder().id(42L).user(user).type(Report.ReportType.MONTHLY)
+                .startDate(LocalDate.of(2024, 3, 1)).endDate(LocalDate.of(2024, 3, 31))
+                .build();
+    }
+
+    private static ReportSeriesPoint point(LocalDate date, String expenses, String budget) {
+        return ReportSeriesPoint.builder()
+                .pointDate(date)
+                .periodExpenses(new BigDecimal(expenses))
+                .periodBudget(new BigDecimal(budget))
+                .build();
+    }
+}
@@ -0,0 +1,89 @@
+package ma.xproce.gestion_depenses_projet.service;
+
+import ma.xproce.gestion_depenses_projet.dao.entities.Report;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReportPdfStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void writesEvictTheLeastRecentlyReadFilesOverTheBudget() throws IOException {
+        ReportPdfStore store = new ReportPdfStore(directory.toString(), 25);
+
+        open(store, 1L);
+        open(store, 2L);
+        open(store, 1L);
+        open(store, 3L);
+
+        assertThat(cachedReportIds()).containsExactlyInAnyOrder("1", "3");
+    }
+
+    @Test
+    void indexIsRebuiltFromTheDirectoryAtStartup() throws IOException {
+        ReportPdfStore first = new ReportPdfStore(directory.toString(), 25);
+        open(first, 1L);
+        open(first, 2L);
+        Files.setLastModifiedTime(cachedFile("1"), FileTime.fromMillis(1_000));
+        Files.setLastModifiedTime(cachedFile("2"), FileTime.fromMillis(2_000));
+
+        ReportPdfStore restarted = new ReportPdfStore(directory.toString(), 25);
+        open(restarted, 3L);
+
+        assertThat(cachedReportIds()).containsExactlyInAnyOrder("2", "3");
+    }
+
+    @Test
+    void updatedReportReplacesItsPreviousVersion() throws IOException {
+        ReportPdfStore store = new ReportPdfStore(directory.toString(), 1000);
+        Report report = report(1L);
+        store.open(report, out -> out.write(new byte[10])).close();
+
+        report.setUpdatedAt(report.getUpdatedAt().plusMinutes(1));
+        store.open(report, out -> out.write(new byte[10])).close();
+
+        assertThat(cachedReportIds()).containsExactly("1");
+    }
+
+    private static void open(ReportPdfStore store, Long reportId) throws IOException {
+        try (FileChannel channel = store.open(report(reportId), out -> out.write(new byte[10]))) {
+            assertThat(channel.size()).isEqualTo(10);
+        }
+    }
+
+    private static Report report(Long id) {
+        return Report.builder()
+                .id(id)
+                .updatedAt(LocalDateTime.of(2024, 3, 1, 12, 0))
+                .build();
+    }
+
+    private Path cachedFile(String reportId) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().startsWith(reportId + "-"))
+                    .findFirst()
+                    .orElseThrow();
+        }
+    }
+
+    private List<String> cachedReportIds() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString())
+                    .map(name -> name.substring(0, name.indexOf('-')))
+                    .toList();
+        }
+    }
+}
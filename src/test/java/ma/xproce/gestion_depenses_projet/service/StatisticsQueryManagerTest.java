@@ -0,0 +1,57 @@
+package ma.xproce.gestion_depenses_projet.service;
+
+import ma.xproce.gestion_depenses_projet.dao.entities.Category;
+import ma.xproce.gestion_depenses_projet.dao.entities.User;
+import ma.xproce.gestion_depenses_projet.dao.repositories.BudgetRepository;
+import ma.xproce.gestion_depenses_projet.dao.repositories.ExpenseRepository;
+import ma.xproce.gestion_depenses_projet.dao.repositories.ExpenseRollupRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+@ExtendWith(MockitoExtension.class)
+class StatisticsQueryManagerTest {
+
+    @Mock
+    private ExpenseRepository expenseRepository;
+
+    @Mock
+    private ExpenseRollupRepository expenseRollupRepository;
+
+    @Mock
+    private BudgetRepository budgetRepository;
+
+    @InjectMocks
+    private StatisticsQueryManager statisticsQueryManager;
+
+    @Test
+    void rejectsDayRangesLongerThanAYearBeforeQuerying() {
+        User user = User.builder().id(1L).build();
+        List<Category> categories = List.of(Category.builder().id(1L).name("Courses").user(user).build());
+
+        assertThatThrownBy(() -> statisticsQueryManager.getSeries(user, categories, TimeBuckets.Granularity.DAY,
+                LocalDate.of(1990, 1, 1), LocalDate.of(2024, 12, 31)))
+                .isInstanceOf(IllegalArgumentException.class);
+        verifyNoInteractions(expenseRepository, expenseRollupRepository, budgetRepository);
+    }
+
+    @Test
+    void bucketsLongRangesAtACoarserGranularity() {
+        User user = User.builder().id(1L).build();
+
+        StatisticsSeries series = statisticsQueryManager.getSeries(user, List.of(), TimeBuckets.Granularity.YEAR,
+                LocalDate.of(1990, 1, 1), LocalDate.of(2024, 12, 31));
+
+        assertThat(series.labels()).hasSize(35);
+        assertThat(series.series()).isEmpty();
+    }
+}
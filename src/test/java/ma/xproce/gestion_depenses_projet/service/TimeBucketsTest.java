@@ -0,0 +1,95 @@
+package ma.xproce.gestion_depenses_projet.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TimeBucketsTest {
+
+    @Test
+    void monthBucketsSplitOnMonthBoundariesAndKeepPartialMonths() {
+        TimeBuckets buckets = new TimeBuckets(LocalDate.of(2024, 1, 15), LocalDate.of(2024, 3, 10));
+        buckets.add(LocalDate.of(2024, 1, 31), new BigDecimal("10.00"));
+        buckets.add(LocalDate.of(2024, 2, 1), new BigDecimal("2.50"));
+        buckets.add(LocalDate.of(2024, 2, 29), new BigDecimal("1.25"));
+        buckets.add(LocalDate.of(2024, 3, 10), new BigDecimal("4.00"));
+
+        TimeBuckets.Series series = buckets.aggregate(TimeBuckets.Granularity.MONTH);
+
+        assertThat(series.size()).isEqualTo(3);
+        assertThat(series.label(0)).isEqualTo("2024-01");
+        assertThat(series.label(2)).isEqualTo("2024-03");
+        assertThat(series.bucketStart(0)).isEqualTo(LocalDate.of(2024, 1, 1));
+        assertThat(series.totals()).containsExactly(1000, 375, 400);
+        assertThat(series.cumulative()).containsExactly(1000, 1375, 1775);
+    }
+
+    @Test
+    void yearBucketsSplitBetweenDecemberAndJanuary() {
+        TimeBuckets buckets = new TimeBuckets(LocalDate.of(2023, 12, 1), LocalDate.of(2024, 1, 31));
+        buckets.add(LocalDate.of(2023, 12, 31), new BigDecimal("7.00"));
+        buckets.add(LocalDate.of(2024, 1, 1), new BigDecimal("3.00"));
+
+        TimeBuckets.Series series = buckets.aggregate(TimeBuckets.Granularity.YEAR);
+
+        assertThat(series.size()).isEqualTo(2);
+        assertThat(series.label(0)).isEqualTo("2023");
+        assertThat(series.label(1)).isEqualTo("2024");
+        assertThat(series.totals()).containsExactly(700, 300);
+        assertThat(series.cumulative()).containsExactly(700, 1000);
+    }
+
+    @Test
+    void weekBucketsAlignOnMondayAcrossTheYear() {
+        TimeBuckets buckets = new TimeBuckets(LocalDate.of(2024, 12, 30), LocalDate.of(2025, 1, 6));
+        buckets.add(LocalDate.of(2025, 1, 5), new BigDecimal("1.00"));
+        buckets.add(LocalDate.of(2025, 1, 6), new BigDecimal("2.00"));
+
+        TimeBuckets.Series series = buckets.aggregate(TimeBuckets.Granularity.WEEK);
+
+        assertThat(series.size()).isEqualTo(2);
+        assertThat(series.label(0)).isEqualTo("2025-W01");
+        assertThat(series.totals()).containsExactly(100, 200);
+    }
+
+    @Test
+    void emptyBucketsAreKeptAsZeroes() {
+        TimeBuckets buckets = new TimeBuckets(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 4, 30));
+        buckets.add(LocalDate.of(2024, 3, 5), new BigDecimal("5.00"));
+
+        TimeBuckets.Series series = buckets.aggregate(TimeBuckets.Granularity.MONTH);
+
+        assertThat(series.totals()).containsExactly(0, 0, 500, 0);
+        assertThat(series.cumulative()).containsExactly(0, 0, 500, 500);
+    }
+
+    @Test
+    void amountsOutsideTheRangeAreIgnored() {
+        TimeBuckets buckets = new TimeBuckets(LocalDate.of(2024, 2, 1), LocalDate.of(2024, 2, 29));
+        buckets.add(LocalDate.of(2024, 1, 31), new BigDecimal("9.00"));
+        buckets.add(LocalDate.of(2024, 3, 1), new BigDecimal("9.00"));
+        buckets.add(null, new BigDecimal("9.00"));
+
+        TimeBuckets.Series series = buckets.aggregate(TimeBuckets.Granularity.DAY);
+
+        assertThat(series.size()).isEqualTo(29);
+        assertThat(series.totals()).containsOnly(0);
+    }
+
+    @Test
+    void spanIsCappedPerGranularity() {
+        LocalDate end = LocalDate.of(2024, 12, 31);
+
+        assertThat(TimeBuckets.Granularity.DAY.allows(LocalDate.of(2024, 1, 1), end)).isTrue();
+        assertThat(TimeBuckets.Granularity.DAY.allows(LocalDate.of(2023, 12, 30), end)).isFalse();
+        assertThat(TimeBuckets.Granularity.MONTH.allows(LocalDate.of(2010, 1, 1), end)).isTrue();
+        assertThat(TimeBuckets.Granularity.YEAR.allows(LocalDate.of(1900, 1, 1), end)).isFalse();
+        assertThatThrownBy(() -> TimeBuckets.Granularity.WEEK.checkSpan(LocalDate.of(2000, 1, 1), end))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("WEEK");
+    }
+}
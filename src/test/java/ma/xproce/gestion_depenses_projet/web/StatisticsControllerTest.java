@@ -0,0 +1,105 @@
+package ma.xproce.gestion_depenses_projet.web;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ma.xproce.gestion_depenses_projet.dao.entities.Category;
+import ma.xproce.gestion_depenses_projet.dao.entities.User;
+import ma.xproce.gestion_depenses_projet.service.CategoryService;
+import ma.xproce.gestion_depenses_projet.service.ExpenseService;
+import ma.xproce.gestion_depenses_projet.service.LastMonthStatisticsService;
+import ma.xproce.gestion_depenses_projet.service.StatisticsQueryService;
+import ma.xproce.gestion_depenses_projet.service.StatisticsSeries;
+import ma.xproce.gestion_depenses_projet.service.TimeBuckets;
+import ma.xproce.gestion_depenses_projet.service.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StatisticsControllerTest {
+
+    @Mock
+    private ExpenseService expenseService;
+
+    @Mock
+    private CategoryService categoryService;
+
+    @Mock
+    private UserService userService;
+
+    @Mock
+    private LastMonthStatisticsService lastMonthStatisticsService;
+
+    @Mock
+    private StatisticsQueryService statisticsQueryService;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private StatisticsController controller;
+
+    private final UserDetails principal = org.springframework.security.core.userdetails.User
+            .withUsername("alice").password("secret").build();
+
+    private final User user = User.builder().id(1L).username("alice").build();
+
+    @BeforeEach
+    void setUp() {
+        controller = new StatisticsController(expenseService, categoryService, userService,
+                lastMonthStatisticsService, statisticsQueryService, objectMapper);
+        when(userService.findByUsername("alice")).thenReturn(Optional.of(user));
+    }
+
+    @Test
+    void rejectsDaySeriesOverDecadesWithBadRequest() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        controller.streamSeries(principal, List.of(3L), TimeBuckets.Granularity.DAY,
+                LocalDate.of(1980, 1, 1), LocalDate.of(2024, 12, 31), response);
+
+        assertThat(response.getStatus()).isEqualTo(400);
+        assertThat(objectMapper.readTree(response.getContentAsByteArray()).path("error").asText())
+                .contains("DAY");
+        verifyNoInteractions(statisticsQueryService, categoryService);
+    }
+
+    @Test
+    void reversedBoundsAreSwappedBeforeTheCapIsChecked() throws Exception {
+        Category category = Category.builder().id(3L).name("Courses").user(user).build();
+        when(categoryService.getUserCategories(user)).thenReturn(List.of(category));
+        when(statisticsQueryService.getSeries(eq(user), anyList(), eq(TimeBuckets.Granularity.DAY), any(), any()))
+                .thenReturn(new StatisticsSeries(TimeBuckets.Granularity.DAY, new LocalDate[0], new String[0], List.of()));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        controller.streamSeries(principal, List.of(3L), TimeBuckets.Granularity.DAY,
+                LocalDate.of(2024, 12, 31), LocalDate.of(2024, 1, 1), response);
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        verify(statisticsQueryService).getSeries(user, List.of(category), TimeBuckets.Granularity.DAY,
+                LocalDate.of(2024, 1, 1), LocalDate.of(2024, 12, 31));
+    }
+
+    @Test
+    void totalsWithoutCategoriesAreNotCapped() throws Exception {
+        when(expenseService.getTopCategories(eq(user), any(), any(), anyInt())).thenReturn(List.of());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        controller.streamSeries(principal, null, TimeBuckets.Granularity.DAY,
+                LocalDate.of(1980, 1, 1), LocalDate.of(2024, 12, 31), response);
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(objectMapper.readTree(response.getContentAsByteArray()).path("kind").asText()).isEqualTo("pie");
+    }
+}